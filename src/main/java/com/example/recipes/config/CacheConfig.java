@@ -1,68 +1,1058 @@
 package com.example.recipes.config;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import jakarta.annotation.PreDestroy;
+import com.example.recipes.dto.IngredientDto;
+import com.example.recipes.dto.RecipeDto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @Service
 public class CacheConfig {
     private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
-    private static final int MAX_CACHE_SIZE = 100;
 
-    private final Map<String, Object> cache = new LinkedHashMap<>(MAX_CACHE_SIZE, 0.75f, true) {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
-            boolean shouldRemove = size() > MAX_CACHE_SIZE;
-            if (shouldRemove) {
-                logger.info("Removing eldest cache entry: {}", eldest.getKey());
-            }
-            return shouldRemove;
+    // Пространства имён кэша (префиксы ключей)
+    public static final String RECIPE_NAMESPACE = "recipe_";
+    public static final String RECIPES_NAMESPACE = "recipes_";
+    public static final String RECIPES_BY_TITLE_NAMESPACE = "recipes_by_title_";
+    public static final String RECIPES_BY_INGREDIENTS_NAMESPACE = "recipes_by_ingredients_";
+    public static final String RECIPES_BY_RATING_NAMESPACE = "recipes_by_rating_";
+    // Готовые JSON-ответы контроллера, см. CachedResponse
+    public static final String RESPONSE_NAMESPACE = "response_";
+    private static final String DEFAULT_NAMESPACE = "";
+
+    private static final String RECIPE_DEPENDENCY = "recipe:";
+    private static final String INGREDIENT_DEPENDENCY = "ingredient:";
+
+    private static final List<String> NAMESPACES = List.of(
+            RECIPE_NAMESPACE,
+            RECIPES_NAMESPACE,
+            RECIPES_BY_TITLE_NAMESPACE,
+            RECIPES_BY_INGREDIENTS_NAMESPACE,
+            RECIPES_BY_RATING_NAMESPACE,
+            RESPONSE_NAMESPACE);
+
+    // Полосатый SLRU вместо LinkedHashMap: безопасен при параллельных запросах,
+    // ограничен бюджетом памяти в байтах, а не числом записей
+    private final SegmentedLruCache<String, CacheEntry> cache;
+    // Второй ярус вне кучи: сюда вытесняются рецепты из SLRU; null, если ярус отключён
+    private final OffHeapArena<CacheEntry> offHeap;
+    // Рецепты по ID: ключ-примитив, без строк и приведений типов на пути чтения
+    private final LongKeyedCache<RecipeDto> recipesById;
+    private final CacheRegionPolicy recipePolicy;
+
+    // Поколение каждого пространства имён: записи прошлых поколений считаются удалёнными
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    // Обратный индекс: зависимость или пространство имён -> ключи, которые от него зависят
+    private final Map<String, Set<String>> dependentKeys = new ConcurrentHashMap<>();
+
+    // Загрузки, которые выполняются прямо сейчас: остальные промахи по ключу ждут их результат
+    private final Map<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+    // Растёт при любой инвалидации; загрузка, пережившая инвалидацию, не попадает в кэш
+    private final AtomicLong invalidationSequence = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder offHeapHits = new LongAdder();
+    private final LongAdder demotions = new LongAdder();
+
+    // Ключи пустых результатов в порядке записи: старейшие вытесняются при превышении лимита
+    private final ConcurrentLinkedQueue<String> negativeKeys = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger negativeKeyCount = new AtomicInteger();
+
+    // Время жизни и порог фонового обновления по пространствам имён
+    private final Map<String, CacheRegionPolicy> policies;
+    // Короткий срок жизни пустых результатов и их максимальное число
+    private final CacheRegionPolicy negativePolicy;
+    private final int maxNegativeEntries;
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+    // Рассылка инвалидаций другим экземплярам; без шины — ничего не делает
+    private volatile Consumer<CacheInvalidation> invalidationPublisher = invalidation -> { };
+    // Индексы этого узла, которым передаются изменения данных с других узлов
+    private volatile DataChangeListener dataChangeListener;
+
+    @Autowired
+    public CacheConfig(@Value("${recipes.cache.max-weight-bytes:67108864}") long maxWeightBytes,
+                       @Value("${recipes.cache.off-heap-bytes:67108864}") int offHeapBytes,
+                       @Value("${recipes.cache.recipe-by-id.max-entries:10000}")
+                       int recipeByIdEntries,
+                       @Value("${recipes.cache.ttl-seconds.recipe:600}") long recipeTtlSeconds,
+                       @Value("${recipes.cache.ttl-seconds.query:300}") long queryTtlSeconds,
+                       @Value("${recipes.cache.ttl-seconds.rating:120}") long ratingTtlSeconds,
+                       @Value("${recipes.cache.refresh-ahead-ratio:0.8}") double refreshAheadRatio,
+                       @Value("${recipes.cache.refresh-threads:2}") int refreshThreads,
+                       @Value("${recipes.cache.negative.ttl-seconds:30}") long negativeTtlSeconds,
+                       @Value("${recipes.cache.negative.max-entries:10000}") int maxNegativeEntries,
+                       ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this(maxWeightBytes, offHeapBytes, recipeByIdEntries,
+                regionPolicies(recipeTtlSeconds, queryTtlSeconds, ratingTtlSeconds,
+                        refreshAheadRatio),
+                CacheRegionPolicy.of(negativeTtlSeconds, 0), maxNegativeEntries,
+                new RefreshExecutor(refreshThreads, transactionManager.getIfAvailable()),
+                System::nanoTime);
+    }
+
+    /** Кэш без срока жизни записей; фоновые обновления не запускаются. */
+    CacheConfig(long maxWeightBytes) {
+        this(maxWeightBytes, 0, 1024, Map.of(), CacheRegionPolicy.ETERNAL, Integer.MAX_VALUE,
+                Runnable::run, System::nanoTime);
+    }
+
+    CacheConfig(long maxWeightBytes, int offHeapBytes, int recipeByIdEntries,
+                Map<String, CacheRegionPolicy> policies,
+                CacheRegionPolicy negativePolicy, int maxNegativeEntries,
+                Executor refreshExecutor, LongSupplier clock) {
+        if (maxNegativeEntries < 0) {
+            throw new IllegalArgumentException("Negative cache size must not be negative.");
         }
-    };
+        this.policies = Map.copyOf(policies);
+        this.negativePolicy = negativePolicy;
+        this.maxNegativeEntries = maxNegativeEntries;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+        this.cache = new SegmentedLruCache<>(maxWeightBytes, CacheEntry::getWeight,
+                new SegmentedLruCache.EvictionListener<>() {
+                    @Override
+                    public void onEviction(String key, CacheEntry entry) {
+                        logger.info("Removing eldest cache entry: {}", key);
+                        release(key, entry);
+                    }
+
+                    @Override
+                    public void onRejection(String key, CacheEntry entry) {
+                        // Слишком крупный для кучи рецепт ещё может поместиться во внешний ярус
+                        logger.info("Cache entry {} exceeds the heap budget", key);
+                        release(key, entry);
+                    }
+                });
+        this.offHeap = offHeapBytes > 0
+                ? new OffHeapArena<>(offHeapBytes, this::unregister) : null;
+        this.recipePolicy = this.policies.getOrDefault(RECIPE_NAMESPACE,
+                CacheRegionPolicy.ETERNAL);
+        this.recipesById = new LongKeyedCache<>(recipeByIdEntries, recipePolicy.getTtlNanos(),
+                this::demoteRecipe);
+        generations.put(DEFAULT_NAMESPACE, new AtomicLong());
+        NAMESPACES.forEach(namespace -> generations.put(namespace, new AtomicLong()));
+    }
+
+    private static Map<String, CacheRegionPolicy> regionPolicies(long recipeTtlSeconds,
+                                                                 long queryTtlSeconds,
+                                                                 long ratingTtlSeconds,
+                                                                 double refreshAheadRatio) {
+        CacheRegionPolicy query = CacheRegionPolicy.of(queryTtlSeconds, refreshAheadRatio);
+        CacheRegionPolicy recipe = CacheRegionPolicy.of(recipeTtlSeconds, refreshAheadRatio);
+        return Map.of(
+                RECIPE_NAMESPACE, recipe,
+                RESPONSE_NAMESPACE, recipe,
+                RECIPES_NAMESPACE, query,
+                RECIPES_BY_TITLE_NAMESPACE, query,
+                RECIPES_BY_INGREDIENTS_NAMESPACE, query,
+                RECIPES_BY_RATING_NAMESPACE,
+                CacheRegionPolicy.of(ratingTtlSeconds, refreshAheadRatio));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor instanceof RefreshExecutor executor) {
+            executor.shutdown();
+        }
+    }
 
     public Object get(String key) {
         logger.info("Getting data from cache for key: {}", key);
-        return cache.get(key);
+        CacheEntry entry = lookup(key);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * Живое значение без загрузки при промахе и без учёта в статистике попаданий.
+     * Нужно, чтобы проверять кэш на готовые частичные результаты, не засоряя журнал.
+     */
+    public Object getIfPresent(String key) {
+        CacheEntry entry = lookup(key);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * Возвращает значение из кэша, а при промахе загружает его через {@code loader}.
+     * Параллельные промахи по одному ключу не дублируют запрос к БД: первый поток
+     * выполняет загрузку, остальные ждут тот же результат. Исключение загрузчика
+     * (например, NotFoundException) получают все ожидающие, в кэш оно не попадает.
+     *
+     * <p>Если запись прожила большую часть своего срока (см. {@link CacheRegionPolicy}),
+     * чтение возвращает текущее значение и запускает её перезагрузку в фоне, поэтому
+     * часто читаемые записи не истекают и запрос не упирается в медленную загрузку.
+     *
+     * <p>Пустую коллекцию загрузчик должен вернуть, а не сообщать о ней исключением:
+     * она кэшируется как отрицательный результат с коротким сроком жизни, и повторный
+     * поиск без совпадений не доходит до БД.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, Supplier<T> loader,
+                           Function<? super T, Set<String>> dependencies) {
+        CacheEntry entry = lookup(key);
+        if (entry != null) {
+            hits.increment();
+            if (entry.isNegative()) {
+                negativeHits.increment();
+            }
+            if (entry.needsRefresh(clock.getAsLong())) {
+                scheduleRefresh(key, entry, loader, dependencies);
+            }
+            return (T) entry.getValue();
+        }
+        misses.increment();
+
+        long generation = generationOf(key);
+        return loadOnce(key, () -> {
+            CacheEntry loaded = lookup(key);
+            return loaded != null ? (T) loaded.getValue() : null;
+        }, loader, value -> store(key, value, dependencies.apply(value), generation));
+    }
+
+    /**
+     * Рецепт по ID из отдельного региона с ключами {@code long}. Попадание не строит
+     * строковый ключ и ничего не выделяет; чтобы и промах не создавал лямбду,
+     * загрузчик получает ID аргументом и может храниться в поле вызывающего.
+     * Промахи по одному ID объединяются так же, как в {@link #getOrLoad}, и так же
+     * состарившийся рецепт перезагружается в фоне по политике {@link #RECIPE_NAMESPACE}.
+     */
+    public RecipeDto getRecipe(long id, LongFunction<RecipeDto> loader) {
+        long now = clock.getAsLong();
+        RecipeDto cached = recipesById.get(id, now);
+        if (cached != null) {
+            hits.increment();
+            if (recipePolicy.refreshesAhead()) {
+                scheduleRecipeRefresh(id, now, loader);
+            }
+            return cached;
+        }
+        cached = promoteRecipe(id);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        long generation = recipesById.generation();
+        return loadOnce(RECIPE_NAMESPACE + id, () -> recipesById.get(id, clock.getAsLong()),
+                () -> loader.apply(id),
+                recipe -> recipesById.put(id, recipe, clock.getAsLong(), generation));
+    }
+
+    /**
+     * Готовый ответ для рецепта, полученного из {@link #getRecipe}. Ответ хранится
+     * в слоте рецепта в регионе по ID и вытесняется, перезаписывается и инвалидируется
+     * вместе с ним; для рецепта, которого в регионе уже нет, он строится и не запоминается.
+     */
+    public CachedResponse getRecipeResponse(long id, RecipeDto recipe,
+                                            Function<RecipeDto, CachedResponse> renderer) {
+        CachedResponse response = (CachedResponse) recipesById.attachment(id, recipe);
+        if (response == null) {
+            response = renderer.apply(recipe);
+            recipesById.attach(id, recipe, response);
+        }
+        return response;
+    }
+
+    /**
+     * Сквозная запись: кладёт только что сохранённый рецепт в регион по ID, заменяя
+     * прежнюю версию во всех ярусах. Загрузки, начатые до записи, её не перезапишут.
+     */
+    public void putRecipe(RecipeDto recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return;
+        }
+        long id = recipe.getId();
+        invalidationSequence.incrementAndGet();
+        removeEntry(RECIPE_NAMESPACE + id);
+        recipesById.put(id, recipe, clock.getAsLong(), recipesById.generation());
+        logger.info("Wrote through recipe {} to the cache", id);
+        // Другие узлы держат прежнюю версию и перечитают рецепт из БД
+        publish(CacheInvalidation.key(RECIPE_NAMESPACE + id));
+    }
+
+    /** Подключает шину, которой уходят инвалидации, сделанные на этом узле. */
+    void setInvalidationPublisher(Consumer<CacheInvalidation> publisher) {
+        this.invalidationPublisher = publisher;
+    }
+
+    /** Подключает индексы, которые перечитывают данные, изменённые на других узлах. */
+    public void setDataChangeListener(DataChangeListener listener) {
+        this.dataChangeListener = listener;
+    }
+
+    /** Рассылает другим узлам ID рецепта, изменённого или удалённого здесь. */
+    public void publishRecipeChange(long recipeId) {
+        publish(CacheInvalidation.recipeChanged(recipeId));
+    }
+
+    /** Рассылает другим узлам ID рецепта, отзывы которого изменились здесь. */
+    public void publishRatingChange(long recipeId) {
+        publish(CacheInvalidation.ratingChanged(recipeId));
+    }
+
+    /** Рассылает другим узлам ID ингредиента, изменённого или удалённого здесь. */
+    public void publishIngredientChange(long ingredientId) {
+        publish(CacheInvalidation.ingredientChanged(ingredientId));
+    }
+
+    /** Применяет инвалидацию, пришедшую с другого узла, не рассылая её дальше. */
+    void applyRemote(CacheInvalidation invalidation) {
+        String argument = invalidation.getArgument();
+        switch (invalidation.getType()) {
+            case KEY -> evictLocally(argument);
+            case DEPENDENCY -> evictDependentsLocally(argument);
+            case NAMESPACE -> invalidateNamespaceLocally(argument);
+            case PATTERN -> evictByPatternLocally(argument);
+            case CLEAR -> clearLocally();
+            case RECIPE, RATING, INGREDIENT -> applyDataChange(invalidation);
+            default -> throw new IllegalArgumentException("Unknown invalidation: " + invalidation);
+        }
+    }
+
+    private void applyDataChange(CacheInvalidation change) {
+        DataChangeListener listener = dataChangeListener;
+        if (listener == null) {
+            return;
+        }
+        long id = Long.parseLong(change.getArgument());
+        switch (change.getType()) {
+            case RECIPE -> listener.recipeChanged(id);
+            case RATING -> listener.ratingChanged(id);
+            default -> listener.ingredientChanged(id);
+        }
+    }
+
+    private void publish(CacheInvalidation invalidation) {
+        invalidationPublisher.accept(invalidation);
+    }
+
+    // Единственная загрузка на ключ: остальные промахи ждут её результат
+    @SuppressWarnings("unchecked")
+    private <T> T loadOnce(String key, Supplier<T> recheck, Supplier<T> loader,
+                           Consumer<T> store) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlightLoads.putIfAbsent(key, future);
+        if (running != null) {
+            coalescedLoads.increment();
+            return (T) await(running);
+        }
+        try {
+            // Пока мы регистрировали загрузку, другой поток мог успеть её завершить
+            T cached = recheck.get();
+            if (cached != null) {
+                future.complete(cached);
+                return cached;
+            }
+            long sequence = invalidationSequence.get();
+            loads.increment();
+            T value = loader.get();
+            if (value != null && sequence == invalidationSequence.get()) {
+                store.accept(value);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, future);
+        }
+    }
+
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("size", (long) cache.size());
+        statistics.put("recipeByIdEntries", (long) recipesById.size());
+        statistics.put("weightBytes", cache.weight());
+        statistics.put("maxWeightBytes", cache.maxWeight());
+        statistics.put("hits", hits.sum());
+        statistics.put("misses", misses.sum());
+        statistics.put("loads", loads.sum());
+        statistics.put("coalescedLoads", coalescedLoads.sum());
+        statistics.put("inFlightLoads", (long) inFlightLoads.size());
+        statistics.put("refreshes", refreshes.sum());
+        statistics.put("expirations", expirations.sum());
+        statistics.put("negativeHits", negativeHits.sum());
+        statistics.put("negativeEntries", (long) negativeKeyCount.get());
+        statistics.put("offHeapHits", offHeapHits.sum());
+        statistics.put("demotions", demotions.sum());
+        statistics.put("rejections", cache.rejections());
+        statistics.put("offHeapEntries", offHeap != null ? (long) offHeap.size() : 0L);
+        statistics.put("offHeapBytes", offHeap != null ? offHeap.liveBytes() : 0L);
+        statistics.put("offHeapCapacityBytes", offHeap != null ? (long) offHeap.capacity() : 0L);
+        return statistics;
     }
 
     public void put(String key, Object value) {
+        put(key, value, Set.of());
+    }
+
+    /**
+     * Кладёт значение и запоминает, от каких строк БД оно зависит
+     * (см. {@link #recipeDependency} и {@link #ingredientDependency}).
+     */
+    public void put(String key, Object value, Set<String> dependencies) {
+        store(key, value, dependencies, generationOf(key));
+    }
+
+    // Поколение, взятое до загрузки: если пространство инвалидировали во время
+    // загрузки, запись сразу окажется устаревшей
+    private CacheEntry store(String key, Object value, Set<String> dependencies,
+                             long generation) {
+        return store(key, value, dependencies, generation, clock.getAsLong());
+    }
+
+    private CacheEntry store(String key, Object value, Set<String> dependencies,
+                             long generation, long writtenAt) {
         logger.info("Putting data into cache for key: {}", key);
-        cache.put(key, value);
+        String namespace = namespaceOf(key);
+        boolean negative = value instanceof Collection<?> collection && collection.isEmpty();
+        if (negative && maxNegativeEntries == 0) {
+            return null;
+        }
+        CacheRegionPolicy policy = negative
+                ? negativePolicy : policies.getOrDefault(namespace, CacheRegionPolicy.ETERNAL);
+        CacheEntry entry = new CacheEntry(value, namespace, generation, Set.copyOf(dependencies),
+                CacheWeigher.weigh(key, value), policy, writtenAt);
+        register(key, entry);
+        CacheEntry previous = cache.put(key, entry);
+        if (previous != null) {
+            unregister(key, previous);
+        }
+        if (negative) {
+            trackNegative(key);
+        }
+        return entry;
+    }
+
+    /**
+     * Самые читаемые живые записи, которые можно сохранить в снимок
+     * (см. {@link CacheSnapshot}), по убыванию числа чтений.
+     */
+    List<Map.Entry<String, CacheEntry>> hottestEntries(int limit) {
+        List<Map.Entry<String, CacheEntry>> entries = new ArrayList<>();
+        for (String key : cache.keys()) {
+            CacheEntry entry = cache.peek(key);
+            if (entry != null && isLive(entry) && !entry.isNegative()
+                    && RecipeDtoCodec.supports(entry.getValue())) {
+                entries.add(Map.entry(key, entry));
+            }
+        }
+        // Регион рецептов не считает чтения: его записи идут после записей SLRU
+        List<Map.Entry<String, CacheEntry>> recipes = new ArrayList<>();
+        CacheRegionPolicy recipePolicy =
+                policies.getOrDefault(RECIPE_NAMESPACE, CacheRegionPolicy.ETERNAL);
+        recipesById.forEachLive(clock.getAsLong(), (id, recipe, writtenAt) ->
+                recipes.add(Map.entry(RECIPE_NAMESPACE + id, new CacheEntry(recipe,
+                        RECIPE_NAMESPACE, generationOf(RECIPE_NAMESPACE),
+                        recipeDependencies(recipe), 0, recipePolicy, writtenAt))));
+        entries.sort(Comparator.comparingLong(
+                (Map.Entry<String, CacheEntry> entry) -> entry.getValue().getAccesses()).reversed());
+        entries.addAll(recipes);
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    /** Сколько наносекунд назад запись была загружена. */
+    long ageNanos(CacheEntry entry) {
+        return clock.getAsLong() - entry.getWrittenAt();
+    }
+
+    /**
+     * Восстанавливает запись из снимка с её прежним возрастом, чтобы срок жизни
+     * отсчитывался от исходной загрузки. Истёкшие записи не восстанавливаются.
+     *
+     * <p>Пока приложение было остановлено, строки БД могли измениться (в том числе
+     * через другие экземпляры), а инвалидации за это время потеряны. Поэтому запись
+     * восстанавливается уже созревшей для фонового обновления и перечитывается при
+     * первом же обращении; запись региона без фонового обновления перепроверить нечем,
+     * и она не восстанавливается.
+     */
+    boolean restore(String key, Object value, Set<String> dependencies, long snapshotAgeNanos,
+                    long accesses) {
+        CacheRegionPolicy policy =
+                policies.getOrDefault(namespaceOf(key), CacheRegionPolicy.ETERNAL);
+        if (!policy.refreshesAhead() || snapshotAgeNanos >= policy.getTtlNanos()) {
+            return false;
+        }
+        long ageNanos = Math.max(snapshotAgeNanos, policy.getRefreshAfterNanos());
+        long recipeId = recipeIdOf(key);
+        if (recipeId >= 0 && value instanceof RecipeDto recipe) {
+            recipesById.put(recipeId, recipe, clock.getAsLong() - ageNanos,
+                    recipesById.generation());
+            return true;
+        }
+        CacheEntry entry = store(key, value, dependencies, generationOf(key),
+                clock.getAsLong() - ageNanos);
+        if (entry == null) {
+            return false;
+        }
+        entry.restoreAccesses(accesses);
+        return true;
+    }
+
+    // Держит число отрицательных записей в пределах лимита, удаляя самые старые
+    private void trackNegative(String key) {
+        negativeKeys.add(key);
+        if (negativeKeyCount.incrementAndGet() <= maxNegativeEntries) {
+            return;
+        }
+        String oldest = negativeKeys.poll();
+        if (oldest == null) {
+            return;
+        }
+        negativeKeyCount.decrementAndGet();
+        CacheEntry entry = cache.peek(oldest);
+        if (entry != null && entry.isNegative() && cache.remove(oldest, entry)) {
+            unregister(oldest, entry);
+        }
     }
 
     public void clear() {
+        clearLocally();
+        publish(CacheInvalidation.CLEAR);
+    }
+
+    private void clearLocally() {
         logger.info("Clearing the cache");
+        invalidationSequence.incrementAndGet();
         cache.clear();
+        recipesById.clear();
+        if (offHeap != null) {
+            offHeap.clear();
+        }
+        dependentKeys.clear();
+        negativeKeys.clear();
+        negativeKeyCount.set(0);
     }
 
     public void evict(String key) {
-        if (cache.containsKey(key)) {
+        evictLocally(key);
+        publish(CacheInvalidation.key(key));
+    }
+
+    private void evictLocally(String key) {
+        invalidationSequence.incrementAndGet();
+        if (removeEntry(key)) {
             logger.info("Evicting cache entry with key: {}", key);
-            cache.remove(key);
         } else {
             logger.warn("Cache entry with key {} not found", key);
         }
     }
 
     public boolean containsKey(String key) {
-        return cache.containsKey(key);
+        CacheEntry entry = currentEntry(key);
+        return entry != null && isLive(entry);
+    }
+
+    /**
+     * Делает недействительными все записи пространства имён и вложенных в него
+     * пространств за O(1) от размера кэша: увеличивается только счётчик поколения,
+     * устаревшие записи удаляются при следующем обращении или вытесняются SLRU.
+     */
+    public void invalidateNamespace(String namespace) {
+        invalidateNamespaceLocally(namespace);
+        publish(CacheInvalidation.namespace(namespace));
+    }
+
+    private void invalidateNamespaceLocally(String namespace) {
+        if (!generations.containsKey(namespace)) {
+            throw new IllegalArgumentException("Unknown cache namespace: " + namespace);
+        }
+        invalidationSequence.incrementAndGet();
+        for (String registered : NAMESPACES) {
+            if (registered.startsWith(namespace)) {
+                generations.get(registered).incrementAndGet();
+            }
+        }
+        if (RECIPE_NAMESPACE.startsWith(namespace)) {
+            recipesById.invalidateAll();
+        }
+        logger.info("Invalidated cache namespace: {}", namespace);
+    }
+
+    /** Удаляет все записи, построенные из указанной строки БД. */
+    public int evictDependents(String dependency) {
+        int evicted = evictDependentsLocally(dependency);
+        publish(CacheInvalidation.dependency(dependency));
+        return evicted;
+    }
+
+    private int evictDependentsLocally(String dependency) {
+        invalidationSequence.incrementAndGet();
+        int evicted = evictRecipesDependingOn(dependency);
+        Set<String> keys = dependentKeys.remove(dependency);
+        if (keys != null) {
+            for (String key : keys) {
+                if (removeEntry(key)) {
+                    evicted++;
+                }
+            }
+        }
+        logger.info("Evicted {} entries depending on {}", evicted, dependency);
+        return evicted;
+    }
+
+    /**
+     * Удаляет записи пространства имён, ключ которых удовлетворяет условию.
+     * Просматриваются только ключи этого пространства, а не весь кэш. Условие
+     * нельзя передать другим узлам, поэтому там пространство сбрасывается целиком.
+     */
+    public int evictIf(String namespace, Predicate<String> keyPredicate) {
+        int evicted = evictIfLocally(namespace, keyPredicate);
+        publish(CacheInvalidation.namespace(namespace));
+        return evicted;
+    }
+
+    private int evictIfLocally(String namespace, Predicate<String> keyPredicate) {
+        invalidationSequence.incrementAndGet();
+        Set<String> keys = dependentKeys.get(namespace);
+        if (keys == null) {
+            return 0;
+        }
+        int evicted = 0;
+        for (String key : List.copyOf(keys)) {
+            if (!keyPredicate.test(key)) {
+                continue;
+            }
+            if (removeEntry(key)) {
+                evicted++;
+            }
+        }
+        logger.info("Evicted {} entries by condition in namespace: {}", evicted, namespace);
+        return evicted;
+    }
+
+    public static String recipeDependency(Long recipeId) {
+        return RECIPE_DEPENDENCY + recipeId;
+    }
+
+    public static String ingredientDependency(Long ingredientId) {
+        return INGREDIENT_DEPENDENCY + ingredientId;
     }
 
     public void evictByPattern(String pattern) {
-         //String normalizedPattern = pattern.replace("*", "");
-        Set<String> keysToRemove = cache.keySet().stream()
-                .filter(key -> key.startsWith(pattern.replace("*", "")))
-                .collect(Collectors.toSet());
-        keysToRemove.forEach(this::evict);
-        logger.info("Evicted {} entries by pattern: {}", keysToRemove.size(), pattern);
+        evictByPatternLocally(pattern);
+        publish(CacheInvalidation.pattern(pattern));
+    }
+
+    private void evictByPatternLocally(String pattern) {
+        String prefix = pattern.replace("*", "");
+        if (NAMESPACES.contains(prefix)) {
+            invalidateNamespaceLocally(prefix);
+            return;
+        }
+        // Произвольный префикс: приходится просматривать ключи
+        invalidationSequence.incrementAndGet();
+        int evicted = 0;
+        if (RECIPE_NAMESPACE.startsWith(prefix) || prefix.startsWith(RECIPE_NAMESPACE)) {
+            evicted += recipesById.removeIf(recipe -> recipe.getId() != null
+                    && (RECIPE_NAMESPACE + recipe.getId()).startsWith(prefix));
+        }
+        for (String key : allKeys()) {
+            if (!key.startsWith(prefix)) {
+                continue;
+            }
+            if (removeEntry(key)) {
+                evicted++;
+            }
+        }
+        logger.info("Evicted {} entries by pattern: {}", evicted, pattern);
     }
 
     public Set<String> getCachedKeys() {
-        logger.info("Current cache keys: {}", cache.keySet());
-        return cache.keySet();
+        Set<String> keys = new HashSet<>();
+        for (String key : allKeys()) {
+            CacheEntry entry = currentEntry(key);
+            if (entry != null && isLive(entry)) {
+                keys.add(key);
+            }
+        }
+        recipesById.forEachLive(clock.getAsLong(),
+                (id, recipe, writtenAt) -> keys.add(RECIPE_NAMESPACE + id));
+        logger.info("Current cache keys: {}", keys);
+        return keys;
+    }
+
+    // Запись без учёта статистики; устаревшую или истёкшую запись удаляет
+    private CacheEntry lookup(String key) {
+        CacheEntry entry = cache.get(key);
+        if (entry == null) {
+            return promote(key);
+        }
+        boolean expired = entry.isExpired(clock.getAsLong());
+        if (expired || isStale(entry)) {
+            if (cache.remove(key, entry)) {
+                unregister(key, entry);
+                if (expired) {
+                    expirations.increment();
+                }
+            }
+            return null;
+        }
+        entry.recordAccess();
+        return entry;
+    }
+
+    // Запись покинула SLRU: рецепт уходит во внешний ярус, остальное забывается
+    private void release(String key, CacheEntry entry) {
+        if (!demote(key, entry)) {
+            unregister(key, entry);
+        }
+    }
+
+    // Переносит вытесненный из SLRU рецепт во внешний ярус вместо того, чтобы потерять его
+    private boolean demote(String key, CacheEntry entry) {
+        if (offHeap == null || entry.isNegative() || !isLive(entry)
+                || !RecipeDtoCodec.supports(entry.getValue())) {
+            return false;
+        }
+        if (!offHeap.put(key, RecipeDtoCodec.encode(entry.getValue()), entry.withValue(null))) {
+            return false;
+        }
+        demotions.increment();
+        return true;
+    }
+
+    // Возвращает запись из внешнего яруса обратно в кучу
+    private CacheEntry promote(String key) {
+        if (offHeap == null) {
+            return null;
+        }
+        long sequence = invalidationSequence.get();
+        OffHeapArena.Entry<CacheEntry> demoted = offHeap.take(key);
+        if (demoted == null) {
+            return null;
+        }
+        CacheEntry metadata = demoted.getMetadata();
+        boolean expired = metadata.isExpired(clock.getAsLong());
+        if (expired || isStale(metadata)) {
+            unregister(key, metadata);
+            if (expired) {
+                expirations.increment();
+            }
+            return null;
+        }
+        CacheEntry entry = metadata.withValue(RecipeDtoCodec.decode(demoted.getBytes()));
+        CacheEntry current = cache.putIfAbsent(key, entry);
+        if (current != null) {
+            // Пока мы читали журнал, ключ успели записать заново
+            unregister(key, metadata);
+            return current;
+        }
+        // Запись могла устареть, пока была извлечена из журнала и ещё не вернулась в кучу
+        if (sequence != invalidationSequence.get() && cache.remove(key, entry)) {
+            unregister(key, entry);
+            return null;
+        }
+        offHeapHits.increment();
+        entry.recordAccess();
+        return entry;
+    }
+
+    // Удаляет ключ из обоих ярусов и из региона рецептов
+    private boolean removeEntry(String key) {
+        long recipeId = recipeIdOf(key);
+        boolean removed = recipeId >= 0 && recipesById.remove(recipeId) != null;
+        CacheEntry entry = cache.remove(key);
+        if (entry != null) {
+            unregister(key, entry);
+            removed = true;
+        }
+        if (offHeap != null) {
+            CacheEntry demoted = offHeap.remove(key);
+            if (demoted != null) {
+                unregister(key, demoted);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    // Запись в куче, а если её там нет — метаданные записи во внешнем ярусе
+    private CacheEntry currentEntry(String key) {
+        CacheEntry entry = cache.peek(key);
+        if (entry == null && offHeap != null) {
+            entry = offHeap.peek(key);
+        }
+        return entry;
+    }
+
+    private Set<String> allKeys() {
+        Set<String> keys = new HashSet<>(cache.keys());
+        if (offHeap != null) {
+            keys.addAll(offHeap.keys());
+        }
+        return keys;
+    }
+
+    // recipe:ID удаляет один рецепт, ingredient:ID — все рецепты с этим ингредиентом
+    private int evictRecipesDependingOn(String dependency) {
+        if (dependency.startsWith(RECIPE_DEPENDENCY)) {
+            long recipeId = parseId(dependency, RECIPE_DEPENDENCY.length());
+            return recipeId >= 0 && recipesById.remove(recipeId) != null ? 1 : 0;
+        }
+        if (dependency.startsWith(INGREDIENT_DEPENDENCY)) {
+            long ingredientId = parseId(dependency, INGREDIENT_DEPENDENCY.length());
+            // Изменения ингредиентов редки, поэтому регион просматривается целиком
+            return recipesById.removeIf(recipe -> containsIngredient(recipe, ingredientId));
+        }
+        return 0;
+    }
+
+    // Вытесненный из региона рецепт переносится во внешний ярус под строковым ключом
+    private void demoteRecipe(long id, RecipeDto recipe, long writtenAt) {
+        if (offHeap == null) {
+            return;
+        }
+        String key = RECIPE_NAMESPACE + id;
+        CacheEntry metadata = new CacheEntry(null, RECIPE_NAMESPACE,
+                generationOf(RECIPE_NAMESPACE), recipeDependencies(recipe), 0,
+                policies.getOrDefault(RECIPE_NAMESPACE, CacheRegionPolicy.ETERNAL), writtenAt);
+        register(key, metadata);
+        if (offHeap.put(key, RecipeDtoCodec.encode(recipe), metadata)) {
+            demotions.increment();
+        } else {
+            unregister(key, metadata);
+        }
+    }
+
+    private RecipeDto promoteRecipe(long id) {
+        if (offHeap == null) {
+            return null;
+        }
+        String key = RECIPE_NAMESPACE + id;
+        long sequence = invalidationSequence.get();
+        long generation = recipesById.generation();
+        OffHeapArena.Entry<CacheEntry> demoted = offHeap.take(key);
+        if (demoted == null) {
+            return null;
+        }
+        CacheEntry metadata = demoted.getMetadata();
+        unregister(key, metadata);
+        if (isStale(metadata) || metadata.isExpired(clock.getAsLong())) {
+            return null;
+        }
+        RecipeDto recipe = (RecipeDto) RecipeDtoCodec.decode(demoted.getBytes());
+        recipesById.put(id, recipe, metadata.getWrittenAt(), generation);
+        if (sequence != invalidationSequence.get()) {
+            recipesById.remove(id);
+            return null;
+        }
+        offHeapHits.increment();
+        return recipe;
+    }
+
+    private static Set<String> recipeDependencies(RecipeDto recipe) {
+        Set<String> dependencies = new HashSet<>();
+        dependencies.add(recipeDependency(recipe.getId()));
+        if (recipe.getIngredients() != null) {
+            for (IngredientDto ingredient : recipe.getIngredients()) {
+                dependencies.add(ingredientDependency(ingredient.getId()));
+            }
+        }
+        return dependencies;
+    }
+
+    private static boolean containsIngredient(RecipeDto recipe, long ingredientId) {
+        if (recipe.getIngredients() == null) {
+            return false;
+        }
+        for (IngredientDto ingredient : recipe.getIngredients()) {
+            if (ingredient.getId() != null && ingredient.getId() == ingredientId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ID рецепта из ключа recipe_ID или -1, если ключ другого вида
+    private static long recipeIdOf(String key) {
+        return key.startsWith(RECIPE_NAMESPACE) ? parseId(key, RECIPE_NAMESPACE.length()) : -1;
+    }
+
+    private static long parseId(String value, int from) {
+        if (from >= value.length() || value.length() - from > 18) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = from; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    private <T> void scheduleRefresh(String key, CacheEntry entry, Supplier<T> loader,
+                                     Function<? super T, Set<String>> dependencies) {
+        if (!entry.startRefresh()) {
+            return;
+        }
+        long sequence = invalidationSequence.get();
+        long generation = entry.getGeneration();
+        try {
+            refreshExecutor.execute(() -> refresh(key, entry, sequence, generation, loader,
+                    dependencies));
+        } catch (RejectedExecutionException e) {
+            entry.refreshFailed();
+            logger.warn("Refresh queue is full, cache entry {} will be reloaded on expiry", key);
+        }
+    }
+
+    private <T> void refresh(String key, CacheEntry entry, long sequence, long generation,
+                             Supplier<T> loader, Function<? super T, Set<String>> dependencies) {
+        try {
+            T value = loader.get();
+            // Запись могли вытеснить, заменить или инвалидировать, пока шла загрузка
+            if (value != null && sequence == invalidationSequence.get()
+                    && cache.peek(key) == entry) {
+                store(key, value, dependencies.apply(value), generation);
+                refreshes.increment();
+            }
+        } catch (RuntimeException e) {
+            entry.refreshFailed();
+            logger.warn("Background refresh of cache entry {} failed: {}", key, e.getMessage());
+        }
+    }
+
+    private void scheduleRecipeRefresh(long id, long now, LongFunction<RecipeDto> loader) {
+        if (!recipesById.startRefresh(id, now, recipePolicy.getRefreshAfterNanos())) {
+            return;
+        }
+        long sequence = invalidationSequence.get();
+        long generation = recipesById.generation();
+        try {
+            refreshExecutor.execute(() -> refreshRecipe(id, sequence, generation, loader));
+        } catch (RejectedExecutionException e) {
+            recipesById.refreshFailed(id);
+            logger.warn("Refresh queue is full, recipe {} will be reloaded on expiry", id);
+        }
+    }
+
+    private void refreshRecipe(long id, long sequence, long generation,
+                               LongFunction<RecipeDto> loader) {
+        try {
+            RecipeDto recipe = loader.apply(id);
+            // Рецепт могли записать заново или инвалидировать, пока шла загрузка
+            if (recipe != null && sequence == invalidationSequence.get()) {
+                recipesById.put(id, recipe, clock.getAsLong(), generation);
+                refreshes.increment();
+            } else {
+                recipesById.refreshFailed(id);
+            }
+        } catch (RuntimeException e) {
+            recipesById.refreshFailed(id);
+            logger.warn("Background refresh of recipe {} failed: {}", id, e.getMessage());
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private void register(String key, CacheEntry entry) {
+        registerKey(entry.getNamespace(), key);
+        entry.getDependencies().forEach(dependency -> registerKey(dependency, key));
+    }
+
+    private void registerKey(String dependency, String key) {
+        dependentKeys.compute(dependency, (ignored, keys) -> {
+            Set<String> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            result.add(key);
+            return result;
+        });
+    }
+
+    // Снимает регистрацию удалённой записи, если ключ не успели занять записью с той же зависимостью
+    private void unregister(String key, CacheEntry entry) {
+        unregisterKey(entry.getNamespace(), key);
+        entry.getDependencies().forEach(dependency -> unregisterKey(dependency, key));
+    }
+
+    private void unregisterKey(String dependency, String key) {
+        dependentKeys.computeIfPresent(dependency, (ignored, keys) -> {
+            CacheEntry current = currentEntry(key);
+            if (current == null || !dependsOn(current, dependency)) {
+                keys.remove(key);
+            }
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static boolean dependsOn(CacheEntry entry, String dependency) {
+        return entry.getNamespace().equals(dependency)
+                || entry.getDependencies().contains(dependency);
+    }
+
+    private boolean isLive(CacheEntry entry) {
+        return !isStale(entry) && !entry.isExpired(clock.getAsLong());
+    }
+
+    private long generationOf(String key) {
+        return generations.get(namespaceOf(key)).get();
+    }
+
+    private boolean isStale(CacheEntry entry) {
+        return entry.getGeneration() != generations.get(entry.getNamespace()).get();
+    }
+
+    // Самый длинный зарегистрированный префикс ключа
+    static String namespaceOf(String key) {
+        String namespace = DEFAULT_NAMESPACE;
+        for (String candidate : NAMESPACES) {
+            if (key.startsWith(candidate) && candidate.length() > namespace.length()) {
+                namespace = candidate;
+            }
+        }
+        return namespace;
     }
 }
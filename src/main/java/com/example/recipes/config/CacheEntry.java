@@ -0,0 +1,109 @@
+package com.example.recipes.config;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Значение кэша вместе с пространством имён, его поколением на момент записи
+ * и строками БД, от которых значение зависит. Время записи отсчитывается по
+ * {@link System#nanoTime()} и вместе с политикой пространства имён определяет,
+ * когда запись истекает и когда её пора обновить в фоне.
+ */
+final class CacheEntry {
+    private final Object value;
+    private final String namespace;
+    private final long generation;
+    // Строки БД (recipe:ID, ingredient:ID), из которых построено значение
+    private final Set<String> dependencies;
+    // Оценка удерживаемой памяти в байтах, см. CacheWeigher
+    private final long weight;
+    private final CacheRegionPolicy policy;
+    private final long writtenAt;
+    // Не даёт запустить несколько фоновых обновлений одной записи
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    // Число чтений: по нему в снимок кэша отбираются самые востребованные записи
+    private final AtomicLong accesses = new AtomicLong();
+
+    CacheEntry(Object value, String namespace, long generation, Set<String> dependencies,
+               long weight, CacheRegionPolicy policy, long writtenAt) {
+        this.value = value;
+        this.namespace = namespace;
+        this.generation = generation;
+        this.dependencies = dependencies;
+        this.weight = weight;
+        this.policy = policy;
+        this.writtenAt = writtenAt;
+    }
+
+    Object getValue() {
+        return value;
+    }
+
+    String getNamespace() {
+        return namespace;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    Set<String> getDependencies() {
+        return dependencies;
+    }
+
+    long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Копия записи с другим значением и теми же метаданными. Без значения (null)
+     * копия служит описанием записи, вынесенной во внешний ярус.
+     */
+    CacheEntry withValue(Object newValue) {
+        CacheEntry copy = new CacheEntry(newValue, namespace, generation, dependencies, weight,
+                policy, writtenAt);
+        copy.accesses.set(accesses.get());
+        return copy;
+    }
+
+    long getWrittenAt() {
+        return writtenAt;
+    }
+
+    void recordAccess() {
+        accesses.incrementAndGet();
+    }
+
+    long getAccesses() {
+        return accesses.get();
+    }
+
+    void restoreAccesses(long count) {
+        accesses.set(count);
+    }
+
+    /** Пустой результат поиска: кэшируется ненадолго, чтобы не повторять запрос без совпадений. */
+    boolean isNegative() {
+        return value instanceof Collection<?> collection && collection.isEmpty();
+    }
+
+    boolean isExpired(long now) {
+        return policy.expires() && now - writtenAt >= policy.getTtlNanos();
+    }
+
+    boolean needsRefresh(long now) {
+        return policy.refreshesAhead() && now - writtenAt >= policy.getRefreshAfterNanos()
+                && !refreshing.get();
+    }
+
+    /** Помечает запись как обновляемую; {@code false}, если обновление уже идёт. */
+    boolean startRefresh() {
+        return refreshing.compareAndSet(false, true);
+    }
+
+    void refreshFailed() {
+        refreshing.set(false);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.recipes.config;
+
+import java.util.Objects;
+
+/**
+ * Инвалидация кэша, которую узел рассылает остальным экземплярам приложения.
+ * Несёт только вид операции и её аргумент (ключ, зависимость, пространство имён
+ * или шаблон), поэтому её можно передать по сети и применить к чужому кэшу.
+ *
+ * <p>Виды {@code RECIPE}, {@code RATING} и {@code INGREDIENT} — не инвалидации, а ID
+ * изменённых данных для индексов в памяти других узлов (см. {@link DataChangeListener}).
+ */
+final class CacheInvalidation {
+
+    enum Type {
+        // Порядковый номер вида передаётся по сети: новые виды добавляются в конец
+        KEY, DEPENDENCY, NAMESPACE, PATTERN, CLEAR, RECIPE, RATING, INGREDIENT
+    }
+
+    static final CacheInvalidation CLEAR = new CacheInvalidation(Type.CLEAR, "");
+
+    private final Type type;
+    private final String argument;
+
+    CacheInvalidation(Type type, String argument) {
+        this.type = Objects.requireNonNull(type);
+        this.argument = Objects.requireNonNull(argument);
+    }
+
+    static CacheInvalidation key(String key) {
+        return new CacheInvalidation(Type.KEY, key);
+    }
+
+    static CacheInvalidation dependency(String dependency) {
+        return new CacheInvalidation(Type.DEPENDENCY, dependency);
+    }
+
+    static CacheInvalidation namespace(String namespace) {
+        return new CacheInvalidation(Type.NAMESPACE, namespace);
+    }
+
+    static CacheInvalidation pattern(String pattern) {
+        return new CacheInvalidation(Type.PATTERN, pattern);
+    }
+
+    static CacheInvalidation recipeChanged(long recipeId) {
+        return new CacheInvalidation(Type.RECIPE, Long.toString(recipeId));
+    }
+
+    static CacheInvalidation ratingChanged(long recipeId) {
+        return new CacheInvalidation(Type.RATING, Long.toString(recipeId));
+    }
+
+    static CacheInvalidation ingredientChanged(long ingredientId) {
+        return new CacheInvalidation(Type.INGREDIENT, Long.toString(ingredientId));
+    }
+
+    /** Изменение данных для индексов, а не инвалидация кэша. */
+    boolean isDataChange() {
+        return type == Type.RECIPE || type == Type.RATING || type == Type.INGREDIENT;
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    String getArgument() {
+        return argument;
+    }
+
+    /**
+     * Инвалидация, после которой эта уже ничего не удалит. Изменение данных ничем не
+     * покрывается: очистка кэша не обновляет индексы.
+     */
+    boolean isCoveredBy(CacheInvalidation other) {
+        if (isDataChange()) {
+            return false;
+        }
+        if (other.type == Type.CLEAR) {
+            return true;
+        }
+        if (type == Type.KEY && (other.type == Type.NAMESPACE || other.type == Type.PATTERN)) {
+            return argument.startsWith(other.argument.replace("*", ""));
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheInvalidation that)) {
+            return false;
+        }
+        return type == that.type && argument.equals(that.argument);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + argument.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return type + (argument.isEmpty() ? "" : ":" + argument);
+    }
+}
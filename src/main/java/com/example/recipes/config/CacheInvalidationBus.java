@@ -0,0 +1,242 @@
+package com.example.recipes.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Шина инвалидаций между экземплярами приложения за балансировщиком. Всё, что
+ * {@link CacheConfig} удаляет на этом узле, копится в очереди и раз в
+ * {@code flush-millis} уходит другим узлам пачками; там инвалидации применяются
+ * без повторной рассылки.
+ *
+ * <p>Перед отправкой очередь схлопывается: повторы отбрасываются, ключ внутри уже
+ * сброшенного пространства имён не отправляется, а полная очистка заменяет всё
+ * остальное. Формат пачки: сигнатура, идентификатор узла-отправителя, число
+ * инвалидаций и сами инвалидации (вид и аргумент в UTF-8).
+ */
+@Component
+public class CacheInvalidationBus {
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private static final int MAGIC = 0x52434231; // "RCB1"
+    // Сигнатура, идентификатор узла и число инвалидаций
+    private static final int HEADER_BYTES = 4 + 16 + 2;
+    private static final CacheInvalidation.Type[] TYPES = CacheInvalidation.Type.values();
+
+    private final CacheConfig cacheConfig;
+    private final InvalidationTransport transport;
+    private final long flushMillis;
+    private final UUID nodeId = UUID.randomUUID();
+    // Ещё не отправленные инвалидации в порядке появления
+    private final Set<CacheInvalidation> pending = new LinkedHashSet<>();
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public CacheInvalidationBus(CacheConfig cacheConfig,
+                                @Value("${recipes.cache.bus.transport:none}") String transport,
+                                @Value("${recipes.cache.bus.udp.bind-address:127.0.0.1}")
+                                String udpBindAddress,
+                                @Value("${recipes.cache.bus.udp.port:47100}") int udpPort,
+                                @Value("${recipes.cache.bus.udp.peers:}") String udpPeers,
+                                @Value("${recipes.cache.bus.udp.secret:}") String udpSecret,
+                                @Value("${recipes.cache.bus.flush-millis:20}") long flushMillis) {
+        this(cacheConfig, createTransport(transport, udpBindAddress, udpPort, udpPeers,
+                udpSecret), flushMillis);
+    }
+
+    /** При {@code flushMillis <= 0} очередь отправляется только вызовом {@link #flush()}. */
+    CacheInvalidationBus(CacheConfig cacheConfig, InvalidationTransport transport,
+                         long flushMillis) {
+        this.cacheConfig = cacheConfig;
+        this.transport = transport;
+        this.flushMillis = flushMillis;
+    }
+
+    private static InvalidationTransport createTransport(String type, String udpBindAddress,
+                                                         int udpPort, String udpPeers,
+                                                         String udpSecret) {
+        return switch (type) {
+            case "none" -> null;
+            case "udp" -> new UdpInvalidationTransport(parseAddress(udpBindAddress), udpPort,
+                    UdpInvalidationTransport.parsePeers(udpPeers),
+                    udpSecret.getBytes(StandardCharsets.UTF_8));
+            default -> throw new IllegalArgumentException(
+                    "Unknown cache bus transport: " + type);
+        };
+    }
+
+    private static InetAddress parseAddress(String address) {
+        try {
+            return InetAddress.getByName(address);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid cache bus bind address: " + address, e);
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (transport == null) {
+            return;
+        }
+        transport.start(this::receive);
+        cacheConfig.setInvalidationPublisher(this::publish);
+        if (flushMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cache-bus-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        logger.info("Cache invalidation bus started, node {}", nodeId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (transport == null) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+        transport.close();
+    }
+
+    void publish(CacheInvalidation invalidation) {
+        synchronized (pending) {
+            for (CacheInvalidation queued : pending) {
+                if (invalidation.isCoveredBy(queued)) {
+                    return;
+                }
+            }
+            // Очистка вытесняет все инвалидации, но не изменения данных для индексов
+            pending.removeIf(queued -> queued.isCoveredBy(invalidation));
+            pending.add(invalidation);
+        }
+    }
+
+    /** Отправляет накопленные инвалидации; ошибки транспорта только логируются. */
+    void flush() {
+        List<CacheInvalidation> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        try {
+            for (byte[] message : encode(batch, transport.maxBatchBytes())) {
+                transport.send(message);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Узлы, не получившие пачку, увидят изменения после истечения срока жизни
+            logger.warn("Failed to broadcast {} cache invalidations: {}", batch.size(),
+                    e.getMessage());
+        }
+    }
+
+    private void receive(byte[] message) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            if (in.readInt() != MAGIC) {
+                logger.warn("Ignoring unknown message on the cache invalidation bus");
+                return;
+            }
+            UUID origin = new UUID(in.readLong(), in.readLong());
+            if (origin.equals(nodeId)) {
+                return;
+            }
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                int type = in.readUnsignedByte();
+                if (type >= TYPES.length) {
+                    throw new IOException("unknown invalidation type " + type);
+                }
+                cacheConfig.applyRemote(new CacheInvalidation(TYPES[type], in.readUTF()));
+            }
+            logger.debug("Applied {} cache invalidations from node {}", count, origin);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to apply cache invalidations: {}", e.getMessage());
+        }
+    }
+
+    private List<byte[]> encode(List<CacheInvalidation> invalidations, int maxBatchBytes)
+            throws IOException {
+        List<byte[]> batches = new ArrayList<>();
+        List<CacheInvalidation> current = new ArrayList<>();
+        int currentBytes = HEADER_BYTES;
+        for (CacheInvalidation invalidation : invalidations) {
+            CacheInvalidation fitting = fit(invalidation, maxBatchBytes);
+            int size = encodedSize(fitting);
+            if (!current.isEmpty() && currentBytes + size > maxBatchBytes) {
+                batches.add(encodeBatch(current));
+                current.clear();
+                currentBytes = HEADER_BYTES;
+            }
+            current.add(fitting);
+            currentBytes += size;
+        }
+        batches.add(encodeBatch(current));
+        return batches;
+    }
+
+    // Слишком длинный ключ заменяется сбросом его пространства имён, остальное — очисткой
+    private static CacheInvalidation fit(CacheInvalidation invalidation, int maxBatchBytes) {
+        if (HEADER_BYTES + encodedSize(invalidation) <= maxBatchBytes) {
+            return invalidation;
+        }
+        if (invalidation.getType() == CacheInvalidation.Type.KEY) {
+            return CacheInvalidation.namespace(CacheConfig.namespaceOf(invalidation.getArgument()));
+        }
+        return CacheInvalidation.CLEAR;
+    }
+
+    // Вид, длина строки и строка в модифицированном UTF-8, как её пишет writeUTF
+    private static int encodedSize(CacheInvalidation invalidation) {
+        String argument = invalidation.getArgument();
+        int size = 1 + 2;
+        for (int i = 0; i < argument.length(); i++) {
+            char c = argument.charAt(i);
+            size += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        return size;
+    }
+
+    private byte[] encodeBatch(List<CacheInvalidation> invalidations) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeLong(nodeId.getMostSignificantBits());
+            out.writeLong(nodeId.getLeastSignificantBits());
+            out.writeShort(invalidations.size());
+            for (CacheInvalidation invalidation : invalidations) {
+                out.writeByte(invalidation.getType().ordinal());
+                out.writeUTF(invalidation.getArgument());
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.recipes.config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время жизни записей одного пространства имён кэша и момент, после которого
+ * чтение записи запускает её фоновое обновление (refresh-ahead).
+ */
+final class CacheRegionPolicy {
+
+    /** Записи без срока жизни: живут до вытеснения или инвалидации. */
+    static final CacheRegionPolicy ETERNAL = new CacheRegionPolicy(0, 0);
+
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+
+    private CacheRegionPolicy(long ttlNanos, long refreshAfterNanos) {
+        this.ttlNanos = ttlNanos;
+        this.refreshAfterNanos = refreshAfterNanos;
+    }
+
+    /**
+     * @param ttlSeconds время жизни записи; 0 — без ограничения
+     * @param refreshAheadRatio доля времени жизни, после которой запись обновляется
+     *                          в фоне; 0 или 1 и больше отключают обновление
+     */
+    static CacheRegionPolicy of(long ttlSeconds, double refreshAheadRatio) {
+        if (ttlSeconds < 0) {
+            throw new IllegalArgumentException("Cache TTL must not be negative.");
+        }
+        if (ttlSeconds == 0) {
+            return ETERNAL;
+        }
+        long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        long refreshAfterNanos = refreshAheadRatio > 0 && refreshAheadRatio < 1
+                ? (long) (ttlNanos * refreshAheadRatio) : 0;
+        return new CacheRegionPolicy(ttlNanos, refreshAfterNanos);
+    }
+
+    boolean expires() {
+        return ttlNanos > 0;
+    }
+
+    boolean refreshesAhead() {
+        return refreshAfterNanos > 0;
+    }
+
+    long getTtlNanos() {
+        return ttlNanos;
+    }
+
+    long getRefreshAfterNanos() {
+        return refreshAfterNanos;
+    }
+}
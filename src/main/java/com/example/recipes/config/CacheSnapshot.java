@@ -0,0 +1,176 @@
+package com.example.recipes.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Снимок самых читаемых записей кэша на локальном диске: пишется при штатной
+ * остановке и загружается при старте до того, как приложение начнёт принимать
+ * запросы, поэтому после перезапуска кэш не начинается с нуля.
+ *
+ * <p>Формат: сигнатура, версия, время создания, число записей, записи (ключ, число
+ * чтений, возраст, зависимости, значение в кодировке {@link RecipeDtoCodec}) и
+ * CRC32 всего предыдущего содержимого. Повреждённый, чужой версии или слишком
+ * старый снимок игнорируется; загруженный снимок удаляется, чтобы после аварийного
+ * перезапуска не подхватить его повторно. Восстановленные записи считаются
+ * устаревшими и обновляются в фоне при первом чтении (см. {@link CacheConfig#restore}).
+ */
+@Component
+public class CacheSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(CacheSnapshot.class);
+
+    private static final int MAGIC = 0x52435331; // "RCS1"
+    private static final int VERSION = 1;
+
+    private final CacheConfig cacheConfig;
+    private final Path path;
+    private final int maxEntries;
+    private final long maxAgeMillis;
+
+    public CacheSnapshot(CacheConfig cacheConfig,
+                         @Value("${recipes.cache.snapshot.path:cache/recipes-cache.snapshot}")
+                         String path,
+                         @Value("${recipes.cache.snapshot.max-entries:5000}") int maxEntries,
+                         @Value("${recipes.cache.snapshot.max-age-seconds:600}")
+                         long maxAgeSeconds) {
+        this.cacheConfig = cacheConfig;
+        this.path = Paths.get(path);
+        this.maxEntries = maxEntries;
+        this.maxAgeMillis = TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (maxEntries <= 0 || !Files.exists(path)) {
+            return;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            int restored = restore(bytes);
+            logger.info("Restored {} cache entries from snapshot {}", restored, path);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cache snapshot {} is ignored: {}", path, e.getMessage());
+        } finally {
+            deleteQuietly();
+        }
+    }
+
+    @PreDestroy
+    public void save() {
+        if (maxEntries <= 0) {
+            return;
+        }
+        try {
+            List<Map.Entry<String, CacheEntry>> entries = cacheConfig.hottestEntries(maxEntries);
+            byte[] bytes = encode(entries);
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            // Пишем во временный файл и переименовываем: недописанный снимок не подхватится
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(temporary, bytes);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Saved {} cache entries to snapshot {}", entries.size(), path);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to save cache snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    private byte[] encode(List<Map.Entry<String, CacheEntry>> entries) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(entries.size());
+        for (Map.Entry<String, CacheEntry> item : entries) {
+            CacheEntry entry = item.getValue();
+            out.writeUTF(item.getKey());
+            out.writeLong(entry.getAccesses());
+            out.writeLong(cacheConfig.ageNanos(entry));
+            out.writeInt(entry.getDependencies().size());
+            for (String dependency : entry.getDependencies()) {
+                out.writeUTF(dependency);
+            }
+            byte[] value = RecipeDtoCodec.encode(entry.getValue());
+            out.writeInt(value.length);
+            out.write(value);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private int restore(byte[] bytes) throws IOException {
+        if (bytes.length < Long.BYTES) {
+            throw new IOException("snapshot is truncated");
+        }
+        int contentLength = bytes.length - Long.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, contentLength);
+        if (crc.getValue() != ByteBuffer.wrap(bytes, contentLength, Long.BYTES).getLong()) {
+            throw new IOException("checksum mismatch");
+        }
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(bytes, 0, contentLength));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("unsupported snapshot format");
+        }
+        long elapsedMillis = System.currentTimeMillis() - in.readLong();
+        if (elapsedMillis < 0 || elapsedMillis > maxAgeMillis) {
+            throw new IOException("snapshot is older than " + maxAgeMillis + " ms");
+        }
+        long elapsedNanos = TimeUnit.MILLISECONDS.toNanos(elapsedMillis);
+        int count = in.readInt();
+        int restored = 0;
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            long accesses = in.readLong();
+            long ageNanos = in.readLong() + elapsedNanos;
+            int dependencyCount = in.readInt();
+            Set<String> dependencies = new HashSet<>();
+            for (int j = 0; j < dependencyCount; j++) {
+                dependencies.add(in.readUTF());
+            }
+            byte[] value = new byte[in.readInt()];
+            in.readFully(value);
+            if (cacheConfig.restore(key, RecipeDtoCodec.decode(value), dependencies, ageNanos,
+                    accesses)) {
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    private void deleteQuietly() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete cache snapshot {}: {}", path, e.getMessage());
+        }
+    }
+}
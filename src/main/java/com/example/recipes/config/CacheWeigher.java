@@ -0,0 +1,123 @@
+package com.example.recipes.config;
+
+import com.example.recipes.dto.IngredientDto;
+import com.example.recipes.dto.RecipeDto;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Оценивает, сколько байт кучи удерживает закэшированное значение.
+ *
+ * <p>Оценка рассчитана на 64-битную JVM со сжатыми указателями: заголовок объекта 12 байт,
+ * ссылка 4 байта, выравнивание по 8. Строки учитываются с компактным хранением
+ * (Latin-1 — байт на символ, иначе два). Точность в пределах десятков процентов
+ * достаточна, чтобы соизмерять бюджет кэша с размером кучи.
+ */
+final class CacheWeigher {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int STRING_SHALLOW = 24;
+    private static final int BOXED_LONG = 16;
+    // HashMap.Node: заголовок + hash + три ссылки
+    private static final int HASH_NODE = 32;
+    // HashSet + внутренний HashMap
+    private static final int HASH_SET_SHALLOW = 16 + 48;
+    // Узел SLRU, CacheEntry и регистрация ключа в индексе зависимостей
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int UNKNOWN_OBJECT = 64;
+
+    private CacheWeigher() {
+    }
+
+    static long weigh(String key, Object value) {
+        return ENTRY_OVERHEAD + weighString(key) + weighValue(value);
+    }
+
+    static long weighValue(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String string) {
+            return weighString(string);
+        }
+        if (value instanceof RecipeDto recipeDto) {
+            return weighRecipe(recipeDto);
+        }
+        if (value instanceof IngredientDto ingredientDto) {
+            return weighIngredient(ingredientDto);
+        }
+        if (value instanceof Long || value instanceof Double || value instanceof Integer) {
+            return BOXED_LONG;
+        }
+        if (value instanceof CachedResponse response) {
+            return align(OBJECT_HEADER + 3L * REFERENCE) + weighValue(response.getBody())
+                    + weighString(response.getETag()) + weighCollection(response.getDependencies());
+        }
+        if (value instanceof byte[] bytes) {
+            return align(ARRAY_HEADER + bytes.length);
+        }
+        if (value instanceof Collection<?> collection) {
+            return weighCollection(collection);
+        }
+        if (value instanceof Map<?, ?> map) {
+            long weight = HASH_SET_SHALLOW + align(ARRAY_HEADER + (long) REFERENCE * map.size() * 2);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                weight += HASH_NODE + weighValue(entry.getKey()) + weighValue(entry.getValue());
+            }
+            return weight;
+        }
+        return UNKNOWN_OBJECT;
+    }
+
+    static long weighString(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return STRING_SHALLOW + align(ARRAY_HEADER + (long) value.length() * bytesPerChar);
+    }
+
+    private static long weighRecipe(RecipeDto recipeDto) {
+        long weight = align(OBJECT_HEADER + 5L * REFERENCE);
+        weight += recipeDto.getId() != null ? BOXED_LONG : 0;
+        weight += weighString(recipeDto.getTitle());
+        weight += weighString(recipeDto.getDescription());
+        weight += weighString(recipeDto.getInstruction());
+        if (recipeDto.getIngredients() != null) {
+            weight += weighCollection(recipeDto.getIngredients());
+        }
+        return weight;
+    }
+
+    private static long weighIngredient(IngredientDto ingredientDto) {
+        long weight = align(OBJECT_HEADER + 2L * REFERENCE);
+        weight += ingredientDto.getId() != null ? BOXED_LONG : 0;
+        return weight + weighString(ingredientDto.getName());
+    }
+
+    private static long weighCollection(Collection<?> collection) {
+        int size = collection.size();
+        // Для множеств учитываем узлы хэш-таблицы, для списков — массив ссылок
+        long weight = collection instanceof Set<?>
+                ? HASH_SET_SHALLOW + align(ARRAY_HEADER + (long) REFERENCE * size * 2)
+                        + (long) HASH_NODE * size
+                : align(OBJECT_HEADER + 8) + align(ARRAY_HEADER + (long) REFERENCE * size);
+        for (Object element : collection) {
+            weight += weighValue(element);
+        }
+        return weight;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
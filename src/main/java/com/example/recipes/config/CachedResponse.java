@@ -0,0 +1,90 @@
+package com.example.recipes.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Готовое тело HTTP-ответа в UTF-8 вместе с сильным ETag.
+ *
+ * <p>ETag — усечённый SHA-256 от тела: он меняется тогда и только тогда, когда
+ * меняется содержимое ответа, поэтому после инвалидации и повторной загрузки тех же
+ * данных клиенты продолжают получать 304.
+ */
+public final class CachedResponse {
+
+    // 128 бит хэша достаточно, чтобы случайные совпадения были невозможны на практике
+    private static final int ETAG_BYTES = 16;
+
+    private final byte[] body;
+    private final String eTag;
+    // Строки БД, из которых собран ответ (см. CacheConfig#recipeDependency)
+    private final Set<String> dependencies;
+    // Курсор следующей страницы для постраничных ответов, иначе null
+    private final String nextCursor;
+
+    public CachedResponse(byte[] body, Set<String> dependencies) {
+        this(body, dependencies, null);
+    }
+
+    public CachedResponse(byte[] body, Set<String> dependencies, String nextCursor) {
+        this.body = body;
+        // Курсор тоже входит в ETag: последняя страница перестаёт быть последней,
+        // когда появляются новые строки, даже если её тело не изменилось
+        this.eTag = "\"" + HexFormat.of().formatHex(sha256(body, nextCursor), 0, ETAG_BYTES)
+                + "\"";
+        this.dependencies = Set.copyOf(dependencies);
+        this.nextCursor = nextCursor;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public Set<String> getDependencies() {
+        return dependencies;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Проверяет заголовок If-None-Match. Для него допускается слабое сравнение,
+     * поэтому префикс {@code W/} игнорируется.
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] sha256(byte[] data, String nextCursor) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data);
+            if (nextCursor != null) {
+                digest.update(nextCursor.getBytes(StandardCharsets.UTF_8));
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
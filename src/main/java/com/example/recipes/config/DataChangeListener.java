@@ -0,0 +1,18 @@
+package com.example.recipes.config;
+
+/**
+ * Получатель изменений данных, сделанных на других узлах и пришедших по
+ * {@link CacheInvalidationBus}. Передаются только ID: сами данные получатель
+ * перечитывает из БД.
+ */
+public interface DataChangeListener {
+
+    /** Рецепт создан, изменён или удалён. */
+    void recipeChanged(long recipeId);
+
+    /** Изменились отзывы рецепта. */
+    void ratingChanged(long recipeId);
+
+    /** Ингредиент создан, переименован или удалён. */
+    void ingredientChanged(long ingredientId);
+}
@@ -0,0 +1,50 @@
+package com.example.recipes.config;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Транспорт внутри одной JVM: пачка синхронно передаётся всем остальным
+ * подписчикам того же {@link Channel}. Нужен для тестов, где несколько
+ * {@link CacheConfig} изображают узлы кластера.
+ */
+final class InJvmInvalidationTransport implements InvalidationTransport {
+
+    /** Общая «сеть» для транспортов, которые должны слышать друг друга. */
+    static final class Channel {
+        private final List<InJvmInvalidationTransport> members = new CopyOnWriteArrayList<>();
+    }
+
+    private final Channel channel;
+    private volatile Consumer<byte[]> receiver;
+
+    InJvmInvalidationTransport(Channel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        channel.members.add(this);
+    }
+
+    @Override
+    public void send(byte[] batch) {
+        for (InJvmInvalidationTransport member : channel.members) {
+            if (member != this) {
+                member.receiver.accept(batch.clone());
+            }
+        }
+    }
+
+    @Override
+    public int maxBatchBytes() {
+        return 64 * 1024;
+    }
+
+    @Override
+    public void close() {
+        channel.members.remove(this);
+    }
+}
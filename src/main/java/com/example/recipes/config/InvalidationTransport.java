@@ -0,0 +1,23 @@
+package com.example.recipes.config;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Канал, по которому {@link CacheInvalidationBus} обменивается пачками инвалидаций
+ * с другими экземплярами приложения. Пачка — непрозрачный массив байт; транспорт
+ * не гарантирует доставку и не должен возвращать узлу его собственные сообщения
+ * (шина всё равно отбрасывает их по идентификатору узла).
+ */
+interface InvalidationTransport {
+
+    /** Начинает приём; {@code receiver} вызывается для каждой полученной пачки. */
+    void start(Consumer<byte[]> receiver) throws IOException;
+
+    void send(byte[] batch) throws IOException;
+
+    /** Наибольший размер пачки, который транспорт передаёт одним сообщением. */
+    int maxBatchBytes();
+
+    void close();
+}
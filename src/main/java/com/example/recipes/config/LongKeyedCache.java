@@ -0,0 +1,417 @@
+package com.example.recipes.config;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+/**
+ * Кэш с ключами-примитивами {@code long}: открытая адресация с линейным пробированием
+ * по параллельным массивам, без упаковки ключей и без объектов-узлов.
+ *
+ * <p>Чтение выполняется под оптимистичной блокировкой {@link StampedLock} и при
+ * попадании ничего не выделяет в куче; только если параллельная запись сделала
+ * снимок недействительным, чтение повторяется под блокировкой чтения. Ёмкость
+ * ограничена числом записей, вытеснение — CLOCK (второй шанс): попадание ставит
+ * бит обращения, стрелка вытесняет первую запись без него.
+ *
+ * <p>Каждый слот хранит поколение региона и время записи: {@link #invalidateAll()}
+ * за O(1) делает все записи устаревшими, а истёкшие и устаревшие слоты вытесняются
+ * в первую очередь. По времени записи вызывающий решает, пора ли обновить запись
+ * в фоне (см. {@link #startRefresh}).
+ *
+ * <p>К записи можно прикрепить производное значение (например, готовый ответ, см.
+ * {@link #attach}): оно живёт в том же слоте и пропадает при перезаписи, удалении
+ * или вытеснении записи.
+ */
+final class LongKeyedCache<V> {
+
+    private static final byte EMPTY = 0;
+    private static final byte FULL = 1;
+    private static final byte DELETED = 2;
+
+    /** Получает живые записи, вытесненные из-за нехватки места. */
+    interface EvictionListener<V> {
+        void onEviction(long key, V value, long writtenAt);
+    }
+
+    /** Обход живых записей, см. {@link #forEachLive}. */
+    interface EntryConsumer<V> {
+        void accept(long key, V value, long writtenAt);
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final EvictionListener<V> listener;
+    // Все поля ниже меняются только под блокировкой записи
+    private final long[] keys;
+    private final Object[] values;
+    private final Object[] attachments;
+    private final long[] writtenAt;
+    private final long[] generations;
+    private final byte[] states;
+    private final boolean[] referenced;
+    private final boolean[] refreshing;
+    private final int mask;
+    private volatile long generation;
+    private int size;
+    private int tombstones;
+    private int hand;
+
+    /**
+     * @param ttlNanos время жизни записи; 0 — без ограничения
+     */
+    LongKeyedCache(int maxEntries, long ttlNanos, EvictionListener<V> listener) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be greater than 0.");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.listener = listener;
+        // Заполненность не выше половины: короткие цепочки пробирования
+        int capacity = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.attachments = new Object[capacity];
+        this.writtenAt = new long[capacity];
+        this.generations = new long[capacity];
+        this.states = new byte[capacity];
+        this.referenced = new boolean[capacity];
+        this.refreshing = new boolean[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /** Значение или {@code null}, если записи нет, она истекла или устарела. */
+    @SuppressWarnings("unchecked")
+    V get(long key, long now) {
+        long stamp = lock.tryOptimisticRead();
+        int index = find(key);
+        Object value = index >= 0 && isLive(index, now) ? values[index] : null;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                index = find(key);
+                value = index >= 0 && isLive(index, now) ? values[index] : null;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (value != null) {
+            // Бит обращения неточен при гонке с записью, для CLOCK этого достаточно
+            referenced[index] = true;
+        }
+        return (V) value;
+    }
+
+    /**
+     * Прикреплённое к записи значение или {@code null}, если его нет или по ключу лежит
+     * уже не {@code value}.
+     */
+    Object attachment(long key, V value) {
+        long stamp = lock.tryOptimisticRead();
+        int index = find(key);
+        Object attachment = index >= 0 && values[index] == value ? attachments[index] : null;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                index = find(key);
+                attachment = index >= 0 && values[index] == value ? attachments[index] : null;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return attachment;
+    }
+
+    /** Прикрепляет значение к записи, только если по ключу всё ещё лежит {@code value}. */
+    void attach(long key, V value, Object attachment) {
+        long stamp = lock.writeLock();
+        try {
+            int index = find(key);
+            if (index >= 0 && values[index] == value) {
+                attachments[index] = attachment;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Помечает живую запись старше {@code refreshAfterNanos} как обновляемую. {@code true}
+     * получает только один вызывающий; пометку снимает следующий {@link #put} по ключу
+     * или {@link #refreshFailed}. Запись, которую обновлять рано, проверяется без
+     * блокировки записи.
+     */
+    boolean startRefresh(long key, long now, long refreshAfterNanos) {
+        long stamp = lock.tryOptimisticRead();
+        int index = find(key);
+        boolean due = index >= 0 && isRefreshDue(index, now, refreshAfterNanos);
+        if (!due && lock.validate(stamp)) {
+            return false;
+        }
+        stamp = lock.writeLock();
+        try {
+            index = find(key);
+            if (index < 0 || !isRefreshDue(index, now, refreshAfterNanos)) {
+                return false;
+            }
+            refreshing[index] = true;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Снимает пометку {@link #startRefresh}, если обновление не состоялось. */
+    void refreshFailed(long key) {
+        long stamp = lock.writeLock();
+        try {
+            int index = find(key);
+            if (index >= 0) {
+                refreshing[index] = false;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Текущее поколение; его нужно взять до загрузки и передать в {@link #put}. */
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * Кладёт значение с поколением, взятым до загрузки: если регион инвалидировали
+     * во время загрузки, запись сразу окажется устаревшей.
+     */
+    void put(long key, V value, long time, long loadGeneration) {
+        Evicted<V> evicted = null;
+        long stamp = lock.writeLock();
+        try {
+            int index = find(key);
+            if (index < 0) {
+                if (size >= maxEntries) {
+                    evicted = evictOne(time);
+                }
+                if (size + tombstones >= (mask + 1) * 3 / 4) {
+                    compact();
+                }
+                index = insertionSlot(key);
+                if (states[index] == DELETED) {
+                    tombstones--;
+                }
+                states[index] = FULL;
+                keys[index] = key;
+                size++;
+            }
+            values[index] = value;
+            attachments[index] = null;
+            writtenAt[index] = time;
+            generations[index] = loadGeneration;
+            referenced[index] = false;
+            refreshing[index] = false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (evicted != null && listener != null) {
+            listener.onEviction(evicted.key, evicted.value, evicted.writtenAt);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        long stamp = lock.writeLock();
+        try {
+            int index = find(key);
+            if (index < 0) {
+                return null;
+            }
+            V value = (V) values[index];
+            delete(index);
+            return value;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Удаляет записи, значение которых удовлетворяет условию; просматривает весь регион. */
+    @SuppressWarnings("unchecked")
+    int removeIf(Predicate<? super V> predicate) {
+        long stamp = lock.writeLock();
+        try {
+            int removed = 0;
+            for (int i = 0; i <= mask; i++) {
+                if (states[i] == FULL && predicate.test((V) values[i])) {
+                    delete(i);
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void invalidateAll() {
+        long stamp = lock.writeLock();
+        try {
+            generation++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void clear() {
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i <= mask; i++) {
+                values[i] = null;
+                attachments[i] = null;
+                states[i] = EMPTY;
+                refreshing[i] = false;
+            }
+            size = 0;
+            tombstones = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachLive(long now, EntryConsumer<V> consumer) {
+        long stamp = lock.readLock();
+        try {
+            for (int i = 0; i <= mask; i++) {
+                if (states[i] == FULL && isLive(i, now)) {
+                    consumer.accept(keys[i], (V) values[i], writtenAt[i]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int find(long key) {
+        int index = indexFor(key);
+        for (int probes = 0; probes <= mask; probes++) {
+            byte state = states[index];
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state == FULL && keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int insertionSlot(long key) {
+        int index = indexFor(key);
+        while (states[index] == FULL) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private boolean isLive(int index, long now) {
+        return generations[index] == generation
+                && (ttlNanos == 0 || now - writtenAt[index] < ttlNanos);
+    }
+
+    private boolean isRefreshDue(int index, long now, long refreshAfterNanos) {
+        return isLive(index, now) && !refreshing[index]
+                && now - writtenAt[index] >= refreshAfterNanos;
+    }
+
+    // Стрелка CLOCK: устаревшие и истёкшие записи уходят без уведомления, живые — со вторым шансом
+    @SuppressWarnings("unchecked")
+    private Evicted<V> evictOne(long now) {
+        while (true) {
+            int index = hand;
+            hand = (hand + 1) & mask;
+            if (states[index] != FULL) {
+                continue;
+            }
+            if (!isLive(index, now)) {
+                delete(index);
+                return null;
+            }
+            if (referenced[index]) {
+                referenced[index] = false;
+                continue;
+            }
+            Evicted<V> evicted = new Evicted<>(keys[index], (V) values[index], writtenAt[index]);
+            delete(index);
+            return evicted;
+        }
+    }
+
+    private void delete(int index) {
+        states[index] = DELETED;
+        values[index] = null;
+        attachments[index] = null;
+        refreshing[index] = false;
+        size--;
+        tombstones++;
+    }
+
+    // Перекладывает живые слоты заново, избавляясь от надгробий удалённых записей
+    private void compact() {
+        int capacity = mask + 1;
+        long[] oldKeys = keys.clone();
+        Object[] oldValues = values.clone();
+        Object[] oldAttachments = attachments.clone();
+        long[] oldWrittenAt = writtenAt.clone();
+        long[] oldGenerations = generations.clone();
+        byte[] oldStates = states.clone();
+        boolean[] oldReferenced = referenced.clone();
+        boolean[] oldRefreshing = refreshing.clone();
+        for (int i = 0; i < capacity; i++) {
+            states[i] = EMPTY;
+            values[i] = null;
+            attachments[i] = null;
+        }
+        for (int i = 0; i < capacity; i++) {
+            if (oldStates[i] != FULL) {
+                continue;
+            }
+            int index = insertionSlot(oldKeys[i]);
+            states[index] = FULL;
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+            attachments[index] = oldAttachments[i];
+            writtenAt[index] = oldWrittenAt[i];
+            generations[index] = oldGenerations[i];
+            referenced[index] = oldReferenced[i];
+            refreshing[index] = oldRefreshing[i];
+        }
+        tombstones = 0;
+    }
+
+    private int indexFor(long key) {
+        // Перемешивание битов: последовательные идентификаторы не образуют кластеров
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static final class Evicted<V> {
+        final long key;
+        final V value;
+        final long writtenAt;
+
+        Evicted(long key, V value, long writtenAt) {
+            this.key = key;
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+}
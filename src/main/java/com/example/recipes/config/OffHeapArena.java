@@ -0,0 +1,172 @@
+package com.example.recipes.config;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кольцевой журнал сериализованных значений в прямой (direct) памяти вне кучи.
+ *
+ * <p>Записи дописываются подряд; дойдя до конца буфера, запись продолжается с начала
+ * и затирает самые старые значения, так что вытеснение получается FIFO без
+ * фрагментации и без отдельного учёта свободного места. Позиции записей абсолютные
+ * (растут монотонно), поэтому затёртость записи определяется сравнением её начала с
+ * текущей позицией минус ёмкость. В куче остаются только индекс ключей и метаданные.
+ *
+ * <p>Доступ к журналу сериализуется одним монитором: он используется только при
+ * промахе по кэшу в куче, а копирование байтов занимает микросекунды.
+ */
+final class OffHeapArena<M> {
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final SegmentedLruCache.EvictionListener<String, M> listener;
+    private final Map<String, Slot<M>> index = new HashMap<>();
+    // Записи в порядке записи в журнал: голова затирается первой
+    private final ArrayDeque<Slot<M>> order = new ArrayDeque<>();
+    private long writePosition;
+    private long liveBytes;
+
+    OffHeapArena(int capacity, SegmentedLruCache.EvictionListener<String, M> listener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Off-heap arena capacity must be greater than 0.");
+        }
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        this.capacity = capacity;
+        this.listener = listener;
+    }
+
+    /** Записывает значение; затёртые им записи передаются слушателю. */
+    boolean put(String key, byte[] bytes, M metadata) {
+        if (bytes.length > capacity) {
+            return false;
+        }
+        List<Slot<M>> overwritten;
+        synchronized (this) {
+            int offset = (int) (writePosition % capacity);
+            if (offset + bytes.length > capacity) {
+                // Запись не помещается в хвост буфера: начинаем с его начала
+                writePosition += capacity - offset;
+                offset = 0;
+            }
+            Slot<M> slot = new Slot<>(key, writePosition, bytes.length, metadata);
+            buffer.put(offset, bytes);
+            writePosition += bytes.length;
+            order.addLast(slot);
+            Slot<M> previous = index.put(key, slot);
+            if (previous != null) {
+                liveBytes -= previous.length;
+            }
+            liveBytes += slot.length;
+            overwritten = purgeOverwritten();
+        }
+        if (overwritten != null && listener != null) {
+            for (Slot<M> slot : overwritten) {
+                listener.onEviction(slot.key, slot.metadata);
+            }
+        }
+        return true;
+    }
+
+    /** Извлекает значение из журнала: после чтения запись удаляется. */
+    synchronized Entry<M> take(String key) {
+        Slot<M> slot = index.remove(key);
+        if (slot == null) {
+            return null;
+        }
+        liveBytes -= slot.length;
+        byte[] bytes = new byte[slot.length];
+        buffer.get((int) (slot.start % capacity), bytes);
+        return new Entry<>(bytes, slot.metadata);
+    }
+
+    synchronized M peek(String key) {
+        Slot<M> slot = index.get(key);
+        return slot == null ? null : slot.metadata;
+    }
+
+    synchronized M remove(String key) {
+        Slot<M> slot = index.remove(key);
+        if (slot == null) {
+            return null;
+        }
+        liveBytes -= slot.length;
+        return slot.metadata;
+    }
+
+    synchronized void clear() {
+        index.clear();
+        order.clear();
+        liveBytes = 0;
+    }
+
+    synchronized List<String> keys() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    synchronized long liveBytes() {
+        return liveBytes;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    private List<Slot<M>> purgeOverwritten() {
+        List<Slot<M>> overwritten = null;
+        long oldestValid = writePosition - capacity;
+        while (!order.isEmpty() && order.peekFirst().start < oldestValid) {
+            Slot<M> slot = order.pollFirst();
+            // Запись могли удалить или заменить раньше, тогда её байты уже не нужны
+            if (index.get(slot.key) == slot) {
+                index.remove(slot.key);
+                liveBytes -= slot.length;
+                if (overwritten == null) {
+                    overwritten = new ArrayList<>(1);
+                }
+                overwritten.add(slot);
+            }
+        }
+        return overwritten;
+    }
+
+    /** Значение, извлечённое из журнала, вместе с его метаданными. */
+    static final class Entry<M> {
+        private final byte[] bytes;
+        private final M metadata;
+
+        Entry(byte[] bytes, M metadata) {
+            this.bytes = bytes;
+            this.metadata = metadata;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        M getMetadata() {
+            return metadata;
+        }
+    }
+
+    private static final class Slot<M> {
+        final String key;
+        final long start;
+        final int length;
+        final M metadata;
+
+        Slot(String key, long start, int length, M metadata) {
+            this.key = key;
+            this.start = start;
+            this.length = length;
+            this.metadata = metadata;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.recipes.config;
+
+import com.example.recipes.dto.IngredientDto;
+import com.example.recipes.dto.RecipeDto;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Компактное двоичное представление {@link RecipeDto} и списков рецептов для
+ * хранения вне кучи.
+ *
+ * <p>Формат: байт типа значения, затем поля рецепта по порядку. Целые числа
+ * записываются как varint (идентификаторы — со сдвигом на единицу, чтобы 0 означал
+ * {@code null}), строки — длиной UTF-8 в байтах плюс один и самими байтами.
+ * Так короткие идентификаторы занимают один-два байта, а текст хранится без
+ * двукратного раздувания UTF-16.
+ */
+final class RecipeDtoCodec {
+
+    private static final byte RECIPE = 1;
+    private static final byte RECIPE_LIST = 2;
+
+    private RecipeDtoCodec() {
+    }
+
+    /** Поддерживает ли кодек значение; прочие значения во внешний ярус не попадают. */
+    static boolean supports(Object value) {
+        if (value instanceof RecipeDto) {
+            return true;
+        }
+        if (value instanceof List<?> list) {
+            for (Object element : list) {
+                if (!(element instanceof RecipeDto)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    static byte[] encode(Object value) {
+        Writer writer = new Writer();
+        if (value instanceof RecipeDto recipeDto) {
+            writer.write(RECIPE);
+            writeRecipe(writer, recipeDto);
+        } else if (value instanceof List<?> list) {
+            writer.write(RECIPE_LIST);
+            writer.writeVarLong(list.size());
+            for (Object element : list) {
+                writeRecipe(writer, (RecipeDto) element);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported cache value: " + value.getClass());
+        }
+        return writer.toByteArray();
+    }
+
+    static Object decode(byte[] bytes) {
+        Reader reader = new Reader(bytes);
+        byte type = reader.readByte();
+        if (type == RECIPE) {
+            return readRecipe(reader);
+        }
+        if (type == RECIPE_LIST) {
+            int size = (int) reader.readVarLong();
+            List<RecipeDto> recipes = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                recipes.add(readRecipe(reader));
+            }
+            return List.copyOf(recipes);
+        }
+        throw new IllegalArgumentException("Unknown cache value type: " + type);
+    }
+
+    private static void writeRecipe(Writer writer, RecipeDto recipeDto) {
+        writer.writeNullableLong(recipeDto.getId());
+        writer.writeString(recipeDto.getTitle());
+        writer.writeString(recipeDto.getDescription());
+        writer.writeString(recipeDto.getInstruction());
+        Set<IngredientDto> ingredients = recipeDto.getIngredients();
+        writer.writeVarLong(ingredients == null ? 0 : ingredients.size() + 1L);
+        if (ingredients != null) {
+            for (IngredientDto ingredientDto : ingredients) {
+                writer.writeNullableLong(ingredientDto.getId());
+                writer.writeString(ingredientDto.getName());
+            }
+        }
+    }
+
+    private static RecipeDto readRecipe(Reader reader) {
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setId(reader.readNullableLong());
+        recipeDto.setTitle(reader.readString());
+        recipeDto.setDescription(reader.readString());
+        recipeDto.setInstruction(reader.readString());
+        int ingredientCount = (int) reader.readVarLong();
+        if (ingredientCount > 0) {
+            Set<IngredientDto> ingredients = new LinkedHashSet<>();
+            for (int i = 0; i < ingredientCount - 1; i++) {
+                IngredientDto ingredientDto = new IngredientDto();
+                ingredientDto.setId(reader.readNullableLong());
+                ingredientDto.setName(reader.readString());
+                ingredients.add(ingredientDto);
+            }
+            recipeDto.setIngredients(ingredients);
+        }
+        return recipeDto;
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+
+        Writer() {
+            super(256);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeNullableLong(Long value) {
+            // Идентификаторы неотрицательны, поэтому сдвиг на единицу не переполняется
+            writeVarLong(value == null ? 0 : value + 1);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte readByte() {
+            return bytes[position++];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = bytes[position++];
+                value |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return value;
+        }
+
+        Long readNullableLong() {
+            long value = readVarLong();
+            return value == 0 ? null : value - 1;
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            if (length == 0) {
+                return null;
+            }
+            String value = new String(bytes, position, length - 1, StandardCharsets.UTF_8);
+            position += length - 1;
+            return value;
+        }
+    }
+}
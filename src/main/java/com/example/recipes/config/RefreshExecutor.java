@@ -0,0 +1,59 @@
+package com.example.recipes.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Пул фоновых обновлений кэша. Каждая задача выполняется в транзакции только
+ * для чтения, чтобы загрузчик мог обходить ленивые коллекции сущностей вне
+ * HTTP-запроса. Очередь ограничена: при переполнении задача отклоняется
+ * {@link java.util.concurrent.RejectedExecutionException}, и запись обновится
+ * синхронно после истечения срока жизни.
+ */
+final class RefreshExecutor implements Executor {
+
+    private static final int QUEUE_CAPACITY = 256;
+
+    private final ThreadPoolExecutor pool;
+    private final TransactionTemplate transactionTemplate;
+
+    RefreshExecutor(int threads, PlatformTransactionManager transactionManager) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "cache-refresh-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        if (transactionManager != null) {
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.transactionTemplate.setReadOnly(true);
+        } else {
+            this.transactionTemplate = null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (transactionTemplate == null) {
+            pool.execute(task);
+            return;
+        }
+        pool.execute(() -> transactionTemplate.execute(status -> {
+            task.run();
+            return null;
+        }));
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,377 @@
+package com.example.recipes.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Потокобезопасный кэш с сегментированным LRU (SLRU) и разбиением на полосы (lock striping).
+ *
+ * <p>Ключи распределяются по независимым полосам, у каждой свой монитор, поэтому
+ * параллельные запросы к разным ключам не блокируют друг друга. Внутри полосы
+ * новые записи попадают в испытательный сегмент (probation) и переходят в защищённый
+ * (protected) только при повторном обращении. Однократные обращения вытесняются
+ * первыми и не выталкивают часто читаемые записи.
+ *
+ * <p>Ёмкость задаётся суммарным весом записей (например, оценкой их размера в байтах),
+ * а не их количеством. Запись тяжелее бюджета полосы в кэш не попадает: она передаётся
+ * в {@link EvictionListener#onRejection} и учитывается отдельно от вытеснений.
+ */
+final class SegmentedLruCache<K, V> {
+
+    /** Доля ёмкости полосы, отводимая под защищённый сегмент. */
+    private static final double PROTECTED_RATIO = 0.8;
+    private static final int MIN_WEIGHT_PER_STRIPE = 8;
+    private static final int MAX_STRIPES = 16;
+
+    /** Получает записи, удалённые из кэша при вытеснении или не принятые из-за веса. */
+    interface EvictionListener<K, V> {
+        void onEviction(K key, V value);
+
+        /** Значение тяжелее бюджета полосы; по умолчанию обрабатывается как вытеснение. */
+        default void onRejection(K key, V value) {
+            onEviction(key, value);
+        }
+    }
+
+    private final Stripe<K, V>[] stripes;
+    private final int mask;
+    private final long maxWeight;
+    private final LongAdder rejections = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    SegmentedLruCache(long maxWeight, ToLongFunction<V> weigher, EvictionListener<K, V> listener) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be greater than 0.");
+        }
+        this.maxWeight = maxWeight;
+        int stripeCount = stripeCount(maxWeight);
+        this.stripes = new Stripe[stripeCount];
+        this.mask = stripeCount - 1;
+        long perStripe = maxWeight / stripeCount;
+        long remainder = maxWeight % stripeCount;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>(perStripe + (i < remainder ? 1 : 0), weigher, listener,
+                    rejections);
+        }
+    }
+
+    V get(K key) {
+        return stripeFor(key).get(key);
+    }
+
+    /** Читает значение, не меняя его позицию в очереди вытеснения. */
+    V peek(K key) {
+        return stripeFor(key).peek(key);
+    }
+
+    boolean containsKey(K key) {
+        return stripeFor(key).containsKey(key);
+    }
+
+    /** Кладёт значение и возвращает предыдущее значение ключа или {@code null}. */
+    V put(K key, V value) {
+        return stripeFor(key).put(key, value, false);
+    }
+
+    /** Кладёт значение, только если ключа нет; иначе возвращает текущее значение. */
+    V putIfAbsent(K key, V value) {
+        return stripeFor(key).put(key, value, true);
+    }
+
+    V remove(K key) {
+        return stripeFor(key).remove(key);
+    }
+
+    /** Удаляет запись, только если ключ всё ещё связан с указанным значением. */
+    boolean remove(K key, V expected) {
+        return stripeFor(key).remove(key, expected);
+    }
+
+    void clear() {
+        for (Stripe<K, V> stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    long weight() {
+        long weight = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            weight += stripe.weight();
+        }
+        return weight;
+    }
+
+    long maxWeight() {
+        return maxWeight;
+    }
+
+    /** Число значений, не принятых из-за веса; в вытеснения они не входят. */
+    long rejections() {
+        return rejections.sum();
+    }
+
+    /** Возвращает снимок ключей; последующие изменения кэша на него не влияют. */
+    List<K> keys() {
+        List<K> keys = new ArrayList<>();
+        for (Stripe<K, V> stripe : stripes) {
+            stripe.collectKeys(keys);
+        }
+        return keys;
+    }
+
+    private Stripe<K, V> stripeFor(K key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    /**
+     * Число полос — степень двойки порядка 4 x число ядер (не больше {@link #MAX_STRIPES}),
+     * но так, чтобы на каждую полосу приходилось достаточно веса для осмысленного LRU.
+     */
+    private static int stripeCount(long maxWeight) {
+        long wanted = Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors() * 4L);
+        long limit = Math.max(1, maxWeight / MIN_WEIGHT_PER_STRIPE);
+        int count = 1;
+        while (count * 2L <= Math.min(wanted, limit)) {
+            count *= 2;
+        }
+        return count;
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        V value;
+        long weight;
+        boolean isProtected;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /** Двусвязный список с головой на самой старой записи. */
+    private static final class AccessQueue<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+        long weight;
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void unlink(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+
+        Node<K, V> pollFirst() {
+            Node<K, V> first = head;
+            if (first != null) {
+                unlink(first);
+            }
+            return first;
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+            weight = 0;
+        }
+    }
+
+    private static final class Stripe<K, V> {
+        private final long capacity;
+        private final long protectedCapacity;
+        private final ToLongFunction<V> weigher;
+        private final EvictionListener<K, V> listener;
+        private final LongAdder rejections;
+        private final Map<K, Node<K, V>> nodes = new HashMap<>();
+        private final AccessQueue<K, V> probation = new AccessQueue<>();
+        private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+
+        Stripe(long capacity, ToLongFunction<V> weigher, EvictionListener<K, V> listener,
+               LongAdder rejections) {
+            this.capacity = Math.max(1, capacity);
+            this.protectedCapacity = (long) (this.capacity * PROTECTED_RATIO);
+            this.weigher = weigher;
+            this.listener = listener;
+            this.rejections = rejections;
+        }
+
+        synchronized V get(K key) {
+            Node<K, V> node = nodes.get(key);
+            if (node == null) {
+                return null;
+            }
+            onAccess(node);
+            return node.value;
+        }
+
+        synchronized V peek(K key) {
+            Node<K, V> node = nodes.get(key);
+            return node == null ? null : node.value;
+        }
+
+        synchronized boolean containsKey(K key) {
+            return nodes.containsKey(key);
+        }
+
+        V put(K key, V value, boolean onlyIfAbsent) {
+            long weight = Math.max(1, weigher.applyAsLong(value));
+            List<Node<K, V>> evicted;
+            boolean rejected = false;
+            V previous = null;
+            synchronized (this) {
+                Node<K, V> node = nodes.get(key);
+                if (node != null && onlyIfAbsent) {
+                    return node.value;
+                }
+                if (weight > capacity) {
+                    // Слишком тяжёлое значение вытеснило бы всю полосу: не принимаем его
+                    if (node != null) {
+                        nodes.remove(key);
+                        queueOf(node).unlink(node);
+                        previous = node.value;
+                    }
+                    rejected = true;
+                    evicted = null;
+                } else if (node != null) {
+                    previous = node.value;
+                    queueOf(node).weight += weight - node.weight;
+                    node.weight = weight;
+                    node.value = value;
+                    onAccess(node);
+                    evicted = evictIfNeeded();
+                } else {
+                    node = new Node<>(key, value, weight);
+                    nodes.put(key, node);
+                    probation.addLast(node);
+                    evicted = evictIfNeeded();
+                }
+            }
+            if (rejected) {
+                rejections.increment();
+                if (listener != null) {
+                    listener.onRejection(key, value);
+                }
+            }
+            notifyEvicted(evicted);
+            return previous;
+        }
+
+        synchronized V remove(K key) {
+            Node<K, V> node = nodes.remove(key);
+            if (node == null) {
+                return null;
+            }
+            queueOf(node).unlink(node);
+            return node.value;
+        }
+
+        synchronized boolean remove(K key, V expected) {
+            Node<K, V> node = nodes.get(key);
+            if (node == null || node.value != expected) {
+                return false;
+            }
+            nodes.remove(key);
+            queueOf(node).unlink(node);
+            return true;
+        }
+
+        synchronized void clear() {
+            nodes.clear();
+            probation.clear();
+            protectedQueue.clear();
+        }
+
+        synchronized int size() {
+            return nodes.size();
+        }
+
+        synchronized long weight() {
+            return probation.weight + protectedQueue.weight;
+        }
+
+        synchronized void collectKeys(List<K> keys) {
+            keys.addAll(nodes.keySet());
+        }
+
+        private void onAccess(Node<K, V> node) {
+            if (node.isProtected) {
+                protectedQueue.unlink(node);
+                protectedQueue.addLast(node);
+                return;
+            }
+            probation.unlink(node);
+            node.isProtected = true;
+            protectedQueue.addLast(node);
+            while (protectedQueue.weight > protectedCapacity && protectedQueue.head != node) {
+                Node<K, V> demoted = protectedQueue.pollFirst();
+                demoted.isProtected = false;
+                probation.addLast(demoted);
+            }
+        }
+
+        private List<Node<K, V>> evictIfNeeded() {
+            List<Node<K, V>> evicted = null;
+            while (probation.weight + protectedQueue.weight > capacity) {
+                Node<K, V> victim = probation.head != null
+                        ? probation.pollFirst() : protectedQueue.pollFirst();
+                nodes.remove(victim.key);
+                if (evicted == null) {
+                    evicted = new ArrayList<>(1);
+                }
+                evicted.add(victim);
+            }
+            return evicted;
+        }
+
+        private void notifyEvicted(List<Node<K, V>> evicted) {
+            if (evicted == null || listener == null) {
+                return;
+            }
+            for (Node<K, V> node : evicted) {
+                listener.onEviction(node.key, node.value);
+            }
+        }
+
+        private AccessQueue<K, V> queueOf(Node<K, V> node) {
+            return node.isProtected ? protectedQueue : probation;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.recipes.config;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Транспорт на UDP-датаграммах: каждая пачка отправляется всем узлам из списка,
+ * а входящие датаграммы читает отдельный поток-демон. Доставка не гарантируется,
+ * поэтому потерянная инвалидация доживает только до истечения срока жизни записи.
+ * Пачка помещается в одну датаграмму без IP-фрагментации при обычном MTU 1500.
+ *
+ * <p>Сокет слушает только заданный адрес (по умолчанию loopback). С общим секретом
+ * каждая датаграмма подписывается HMAC-SHA256, и датаграммы с неверной подписью
+ * отбрасываются; без секрета принимаются только датаграммы с адресов из списка узлов.
+ */
+final class UdpInvalidationTransport implements InvalidationTransport {
+    private static final Logger logger = LoggerFactory.getLogger(UdpInvalidationTransport.class);
+
+    private static final int MAX_DATAGRAM_BYTES = 1400;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAC_BYTES = 32;
+
+    private final InetAddress bindAddress;
+    private final int port;
+    private final List<InetSocketAddress> peers;
+    private final Set<InetAddress> allowedSenders = new HashSet<>();
+    // Ключ HMAC; null — подпись не используется
+    private final SecretKeySpec key;
+    private DatagramSocket socket;
+    private Thread receiverThread;
+
+    /**
+     * @param secret общий секрет всех узлов; пустой — проверка только по адресу отправителя
+     */
+    UdpInvalidationTransport(InetAddress bindAddress, int port, List<InetSocketAddress> peers,
+                             byte[] secret) {
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.peers = List.copyOf(peers);
+        for (InetSocketAddress peer : peers) {
+            if (peer.getAddress() != null) {
+                allowedSenders.add(peer.getAddress());
+            }
+        }
+        this.key = secret.length > 0 ? new SecretKeySpec(secret, MAC_ALGORITHM) : null;
+    }
+
+    /** Разбирает список узлов вида {@code host:port,host:port}. */
+    static List<InetSocketAddress> parsePeers(String peers) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String peer : peers.split(",")) {
+            String trimmed = peer.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int colon = trimmed.lastIndexOf(':');
+            if (colon <= 0 || colon == trimmed.length() - 1) {
+                throw new IllegalArgumentException("Invalid cache bus peer: " + trimmed);
+            }
+            addresses.add(new InetSocketAddress(trimmed.substring(0, colon),
+                    Integer.parseInt(trimmed.substring(colon + 1))));
+        }
+        return addresses;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) throws SocketException {
+        socket = new DatagramSocket(new InetSocketAddress(bindAddress, port));
+        if (key == null && !bindAddress.isLoopbackAddress()) {
+            logger.warn("Cache invalidation bus accepts unsigned datagrams on {}; "
+                    + "set recipes.cache.bus.udp.secret", bindAddress);
+        }
+        receiverThread = new Thread(() -> receive(receiver), "cache-bus-udp");
+        receiverThread.setDaemon(true);
+        receiverThread.start();
+        logger.info("Cache invalidation bus listens on UDP {}:{}, peers: {}",
+                bindAddress.getHostAddress(), socket.getLocalPort(), peers);
+    }
+
+    private void receive(Consumer<byte[]> receiver) {
+        byte[] buffer = new byte[MAX_DATAGRAM_BYTES];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                byte[] batch = authenticate(packet);
+                if (batch == null) {
+                    logger.warn("Dropped unauthenticated cache invalidation from {}",
+                            packet.getSocketAddress());
+                    continue;
+                }
+                receiver.accept(batch);
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    logger.warn("Failed to receive cache invalidation: {}", e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to apply cache invalidation: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Пачка из подписанной датаграммы или null, если отправителю нельзя доверять
+    private byte[] authenticate(DatagramPacket packet) {
+        int offset = packet.getOffset();
+        int length = packet.getLength();
+        if (key == null) {
+            return allowedSenders.contains(packet.getAddress())
+                    ? Arrays.copyOfRange(packet.getData(), offset, offset + length) : null;
+        }
+        if (length < MAC_BYTES) {
+            return null;
+        }
+        byte[] batch = Arrays.copyOfRange(packet.getData(), offset, offset + length - MAC_BYTES);
+        byte[] tag = Arrays.copyOfRange(packet.getData(), offset + length - MAC_BYTES,
+                offset + length);
+        // Сравнение за постоянное время: подпись нельзя подобрать по времени ответа
+        return MessageDigest.isEqual(tag, sign(batch)) ? batch : null;
+    }
+
+    @Override
+    public void send(byte[] batch) throws IOException {
+        byte[] datagram = batch;
+        if (key != null) {
+            datagram = Arrays.copyOf(batch, batch.length + MAC_BYTES);
+            System.arraycopy(sign(batch), 0, datagram, batch.length, MAC_BYTES);
+        }
+        for (InetSocketAddress peer : peers) {
+            socket.send(new DatagramPacket(datagram, datagram.length, peer));
+        }
+    }
+
+    // Mac не потокобезопасен, а подписывают и поток отправки, и поток приёма
+    private byte[] sign(byte[] batch) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(batch);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    @Override
+    public int maxBatchBytes() {
+        return key != null ? MAX_DATAGRAM_BYTES - MAC_BYTES : MAX_DATAGRAM_BYTES;
+    }
+
+    /** Фактический порт; полезен, когда в конфигурации указан 0. */
+    int localPort() {
+        return socket.getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.recipes.controller;
+
+import com.example.recipes.config.CacheConfig;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.Map;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Кэш", description = "Статистика кэша рецептов")
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+
+    private final CacheConfig cacheService;
+
+    public CacheController(CacheConfig cacheService) {
+        this.cacheService = cacheService;
+    }
+
+    @Operation(
+            summary = "Получить статистику кэша",
+            description = "Возвращает размер кэша, число попаданий, промахов, "
+                    + "загрузок из БД и объединённых (coalesced) загрузок.",
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Статистика успешно получена.")
+            }
+    )
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Long>> getStatistics() {
+        return ResponseEntity.ok(cacheService.getStatistics());
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.recipes.controller;
 
+import com.example.recipes.dto.CursorPage;
 import com.example.recipes.dto.IngredientDto;
 import com.example.recipes.service.IngredientService;
+import com.example.recipes.service.PageCursor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,7 +15,8 @@ import java.util.List;
 import java.util.Set;
 
 @Tag(name = "Запросы ингредментов", description = "CRUD operations for ingredients")
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173",
+        exposedHeaders = PageCursor.NEXT_CURSOR_HEADER)
 @RestController
 @RequestMapping("/ingredients")
 public class IngredientController {
@@ -24,9 +27,49 @@ public class IngredientController {
         this.ingredientService = ingredientService;
     }
 
+    @Operation(
+            summary = "Получить все ингредиенты",
+            description = "Возвращает ингредиенты постранично по возрастанию ID. "
+                    + "Курсор следующей страницы приходит в заголовке "
+                    + PageCursor.NEXT_CURSOR_HEADER + "; на последней странице его нет.",
+            responses = {
+                @ApiResponse(responseCode = "200",
+                        description = "Страница ингредиентов получена."),
+                @ApiResponse(responseCode = "400",
+                        description = "Неверный курсор или размер страницы.")
+            }
+    )
     @GetMapping("/all")
-    public List<IngredientDto> getAllIngredients() {
-        return ingredientService.getAllIngredients();
+    public ResponseEntity<List<IngredientDto>> getAllIngredients(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + PageCursor.DEFAULT_PAGE_SIZE) int size) {
+        CursorPage<IngredientDto> page = ingredientService.getAllIngredients(cursor, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(PageCursor.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    @Operation(
+            summary = "Автодополнение ингредиентов",
+            description = "Возвращает ингредиенты, имя которых начинается с префикса, "
+                    + "самые используемые в рецептах первыми.",
+            responses = {
+                @ApiResponse(responseCode = "200",
+                        description = "Подсказки получены."),
+                @ApiResponse(responseCode = "400",
+                        description = "Пустой префикс или неверный limit."),
+                @ApiResponse(responseCode = "503",
+                        description = "Подсказки ещё строятся после запуска.")
+            }
+    )
+    @GetMapping("/autocomplete")
+    public List<IngredientDto> suggestIngredients(
+            @Parameter(description = "Начало имени ингредиента", required = true)
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ingredientService.suggestIngredients(prefix, limit);
     }
 
     @Operation(
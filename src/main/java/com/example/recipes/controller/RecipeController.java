@@ -1,28 +1,54 @@
 package com.example.recipes.controller;
 
+import com.example.recipes.config.CachedResponse;
+import com.example.recipes.dto.PantryRecipeDto;
 import com.example.recipes.dto.RecipeDto;
 import com.example.recipes.dto.RecipeFullDto;
+import com.example.recipes.service.PageCursor;
+import com.example.recipes.service.RecipeExportService;
+import com.example.recipes.service.RecipeResponseCache;
 import com.example.recipes.service.RecipeService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 @Tag(name = "Управление рецептами", description = "API для операций с рецептами")
 @RestController
 @RequestMapping("/recipes")
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173",
+        exposedHeaders = {RecipeController.CORRECTED_INGREDIENTS_HEADER, PageCursor.NEXT_CURSOR_HEADER})
 public class RecipeController {
 
+    static final String CORRECTED_INGREDIENTS_HEADER = "X-Corrected-Ingredients";
+    private static final int EXPORT_BUFFER_BYTES = 64 * 1024;
+
     private final RecipeService recipeService;
+    private final RecipeResponseCache recipeResponseCache;
+    private final RecipeExportService recipeExportService;
 
-    public RecipeController(RecipeService recipeService) {
+    public RecipeController(RecipeService recipeService,
+                            RecipeResponseCache recipeResponseCache,
+                            RecipeExportService recipeExportService) {
         this.recipeService = recipeService;
+        this.recipeResponseCache = recipeResponseCache;
+        this.recipeExportService = recipeExportService;
     }
 
     @Operation(
@@ -54,29 +80,83 @@ public class RecipeController {
 
     @Operation(
             summary = "Получить все рецепты",
-            description = "Возвращает полный список всех рецептов.",
+            description = "Возвращает рецепты постранично по возрастанию ID. "
+                    + "Курсор следующей страницы приходит в заголовке "
+                    + PageCursor.NEXT_CURSOR_HEADER + "; на последней странице его нет.",
             responses = {
                     @ApiResponse(responseCode = "200",
-                            description = "Список рецептов успешно получен.")
+                            description = "Страница рецептов успешно получена.",
+                            content = @Content(
+                                    schema = @Schema(implementation = RecipeDto[].class))),
+                    @ApiResponse(responseCode = "304",
+                            description = "Страница не изменилась с версии из If-None-Match."),
+                    @ApiResponse(responseCode = "400",
+                            description = "Неверный курсор или размер страницы.")
             }
     )
     @GetMapping("/all")
-    public ResponseEntity<List<RecipeDto>> getAllRecipes() {
-        List<RecipeDto> recipes = recipeService.getAllRecipes();
-        return ResponseEntity.ok(recipes);
+    public ResponseEntity<byte[]> getAllRecipes(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + PageCursor.DEFAULT_PAGE_SIZE) int size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+            String ifNoneMatch) {
+        return respond(recipeResponseCache.getAllRecipes(cursor, size), ifNoneMatch);
+    }
+
+    @Operation(
+            summary = "Выгрузить каталог рецептов",
+            description = "Потоково отдаёт все рецепты в формате NDJSON: один JSON-объект "
+                    + "на строку. Если клиент принимает gzip, ответ сжимается.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Выгрузка начата.")
+            }
+    )
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportRecipes(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding) {
+        boolean gzip = acceptEncoding != null
+                && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        // Тело пишется уже после выхода из метода, в потоке асинхронной обработки
+        StreamingResponseBody body = out -> {
+            if (!gzip) {
+                recipeExportService.exportRecipes(out);
+                return;
+            }
+            ExportGzipStream compressed = new ExportGzipStream(out);
+            try {
+                recipeExportService.exportRecipes(compressed);
+                compressed.finish();
+            } finally {
+                compressed.releaseDeflater();
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @Operation(
             summary = "Получить рецепт по ID",
             description = "Возвращает рецепт по указанному уникальному идентификатору.",
             responses = {
-                    @ApiResponse(responseCode = "200", description = "Рецепт найден."),
+                    @ApiResponse(responseCode = "200", description = "Рецепт найден.",
+                            content = @Content(schema = @Schema(implementation = RecipeDto.class))),
+                    @ApiResponse(responseCode = "304",
+                            description = "Рецепт не изменился с версии из If-None-Match."),
                     @ApiResponse(responseCode = "404", description = "Рецепт с указанным ID не найден.")
             }
     )
     @GetMapping("/{id}")
-    public ResponseEntity<RecipeDto> getRecipeById(@PathVariable Long id) {
-        return ResponseEntity.ok(recipeService.getRecipeById(id));
+    public ResponseEntity<byte[]> getRecipeById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+            String ifNoneMatch) {
+        return respond(recipeResponseCache.getRecipeById(id), ifNoneMatch);
     }
 
     @Operation(
@@ -145,7 +225,9 @@ public class RecipeController {
 
     @Operation(
             summary = "Найти рецепты по ингредиентам",
-            description = "Ищет рецепты, содержащие указанные ингредиенты.",
+            description = "Ищет рецепты, содержащие указанные ингредиенты. Опечатки в "
+                    + "именах исправляются, исправления перечислены в заголовке "
+                    + "X-Corrected-Ingredients.",
             responses = {
                     @ApiResponse(responseCode = "200",
                             description = "Список рецептов успешно найден."),
@@ -156,8 +238,79 @@ public class RecipeController {
     @GetMapping("/search/multiple-ingredients")
     public ResponseEntity<List<RecipeDto>> findRecipesByIngredientNames(
             @RequestParam List<String> ingredientNames) {
-        List<RecipeDto> recipes = recipeService.findRecipesByIngredientNames(ingredientNames);
-        return ResponseEntity.ok(recipes);
+        // Опечатки исправляются до поиска, исправления возвращаются в заголовке
+        Map<String, String> corrections = recipeService.correctIngredientNames(ingredientNames);
+        List<String> resolvedNames = ingredientNames.stream()
+                .map(name -> corrections.getOrDefault(name, name))
+                .toList();
+        List<RecipeDto> recipes = recipeService.findRecipesByIngredientNames(resolvedNames);
+        if (corrections.isEmpty()) {
+            return ResponseEntity.ok(recipes);
+        }
+        return ResponseEntity.ok()
+                .header(CORRECTED_INGREDIENTS_HEADER, formatCorrections(corrections))
+                .body(recipes);
+    }
+
+    @Operation(
+            summary = "Что приготовить из кладовой",
+            description = "Ищет рецепты, для которых среди указанных ингредиентов не хватает "
+                    + "не больше maxMissing, начиная с тех, где не хватает меньше всего.",
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Страница подходящих рецептов."),
+                    @ApiResponse(responseCode = "400",
+                            description = "Некорректные ингредиенты или параметры страницы.")
+            }
+    )
+    @GetMapping("/search/pantry")
+    public ResponseEntity<List<PantryRecipeDto>> findRecipesByPantry(
+            @RequestParam List<String> ingredientNames,
+            @RequestParam(defaultValue = "2") int maxMissing,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(recipeService.findRecipesByPantry(ingredientNames, maxMissing,
+                page, size));
+    }
+
+    @Operation(
+            summary = "Полнотекстовый поиск",
+            description = "Ищет слова в описании и инструкции рецептов и возвращает лучшие "
+                    + "по релевантности (BM25). Запрос в двойных кавычках ищется как фраза.",
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Рецепты по убыванию релевантности."),
+                    @ApiResponse(responseCode = "404",
+                            description = "Ни одно слово запроса не найдено."),
+                    @ApiResponse(responseCode = "503",
+                            description = "Индекс ещё строится после запуска.")
+            }
+    )
+    @GetMapping("/search/text")
+    public ResponseEntity<List<RecipeDto>> searchRecipesByText(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(recipeService.searchRecipesByText(query, limit));
+    }
+
+    @Operation(
+            summary = "Лучшие рецепты по рейтингу",
+            description = "Возвращает до limit рецептов с наибольшим средним рейтингом "
+                    + "среди рецептов, у которых не меньше minReviews отзывов.",
+            responses = {
+                    @ApiResponse(responseCode = "200",
+                            description = "Рецепты по убыванию среднего рейтинга."),
+                    @ApiResponse(responseCode = "400",
+                            description = "Некорректные limit или minReviews."),
+                    @ApiResponse(responseCode = "404",
+                            description = "Нет рецептов с таким числом отзывов.")
+            }
+    )
+    @GetMapping("/search/top-rated")
+    public ResponseEntity<List<RecipeDto>> findTopRatedRecipes(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "1") int minReviews) {
+        return ResponseEntity.ok(recipeService.findTopRatedRecipes(limit, minReviews));
     }
 
     @Operation(
@@ -174,4 +327,51 @@ public class RecipeController {
         List<RecipeDto> recipes = recipeService.findRecipesByAverageRating(rating);
         return ResponseEntity.ok(recipes);
     }
-}
\ No newline at end of file
+
+    // Имена кодируются как в URL, чтобы кириллица и запятые не ломали заголовок
+    static String formatCorrections(Map<String, String> corrections) {
+        StringBuilder header = new StringBuilder();
+        corrections.forEach((original, corrected) -> {
+            if (header.length() > 0) {
+                header.append(", ");
+            }
+            header.append(URLEncoder.encode(original.trim(), StandardCharsets.UTF_8))
+                    .append('=')
+                    .append(URLEncoder.encode(corrected, StandardCharsets.UTF_8));
+        });
+        return header.toString();
+    }
+
+    // Готовое тело отдаётся как есть; совпавший ETag даёт 304 без тела
+    private static ResponseEntity<byte[]> respond(CachedResponse response, String ifNoneMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        if (response.getNextCursor() != null) {
+            headers.set(PageCursor.NEXT_CURSOR_HEADER, response.getNextCursor());
+        }
+        if (response.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(response.getETag())
+                    .headers(headers)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(response.getETag())
+                .headers(headers)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response.getBody());
+    }
+
+    // Сжатие выгрузки. Поток ответа закрывает контейнер, поэтому close() не вызывается:
+    // при ошибке он дописал бы концовку gzip, и клиент принял бы оборванную выгрузку
+    // за полную. Нативную память Deflater освобождаем сами в любом случае
+    private static final class ExportGzipStream extends GZIPOutputStream {
+
+        ExportGzipStream(OutputStream out) throws IOException {
+            super(out, EXPORT_BUFFER_BYTES);
+        }
+
+        void releaseDeflater() {
+            def.end();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.recipes.dto;
+
+import java.util.List;
+
+/** Страница выдачи и курсор следующей страницы ({@code null} — страница последняя). */
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
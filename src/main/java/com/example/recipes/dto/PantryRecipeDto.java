@@ -0,0 +1,30 @@
+package com.example.recipes.dto;
+
+public class PantryRecipeDto {
+    private RecipeDto recipe;
+    private int missingIngredients;
+
+    public PantryRecipeDto() {
+    }
+
+    public PantryRecipeDto(RecipeDto recipe, int missingIngredients) {
+        this.recipe = recipe;
+        this.missingIngredients = missingIngredients;
+    }
+
+    public RecipeDto getRecipe() {
+        return recipe;
+    }
+
+    public void setRecipe(RecipeDto recipe) {
+        this.recipe = recipe;
+    }
+
+    public int getMissingIngredients() {
+        return missingIngredients;
+    }
+
+    public void setMissingIngredients(int missingIngredients) {
+        this.missingIngredients = missingIngredients;
+    }
+}
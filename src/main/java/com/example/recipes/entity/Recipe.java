@@ -7,6 +7,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
@@ -14,11 +15,15 @@ import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import java.util.HashSet;
 import java.util.Set;
+import org.hibernate.annotations.BatchSize;
 
 @Entity
-@Table(name = "recipes")
+@Table(name = "recipes",
+        indexes = @Index(name = "idx_recipes_average_rating", columnList = "average_rating"))
 public class Recipe {
 
+    public static final int INGREDIENT_FETCH_BATCH = 100;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -32,7 +37,24 @@ public class Recipe {
     @Column(length = 5000, nullable = false)
     private String instruction;
 
+    // Агрегаты отзывов меняются только атомарным UPDATE из RecipeRepository.adjustRating:
+    // сохранение сущности их не перезаписывает, поэтому параллельные отзывы не теряются
+    @Column(name = "rating_sum", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    private long ratingSum;
+
+    @Column(name = "rating_count", insertable = false, updatable = false,
+            columnDefinition = "integer not null default 0")
+    private int ratingCount;
+
+    @Column(name = "average_rating", insertable = false, updatable = false)
+    private Double averageRating;
+
+    // Где ингредиенты не загружены вместе с рецептами (EntityGraph в RecipeRepository),
+    // первое обращение загружает их одним запросом сразу для INGREDIENT_FETCH_BATCH
+    // рецептов из контекста персистентности, а не по запросу на каждый рецепт
     @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY)
+    @BatchSize(size = INGREDIENT_FETCH_BATCH)
     @JoinTable(name = "recipe_ingredient",
             joinColumns = @JoinColumn(name = "recipe_id"),
             inverseJoinColumns = @JoinColumn(name = "ingredient_id"))
@@ -106,4 +128,16 @@ public class Recipe {
     public void setReviews(Set<Review> reviews) {
         this.reviews = reviews;
     }
+
+    public long getRatingSum() {
+        return ratingSum;
+    }
+
+    public int getRatingCount() {
+        return ratingCount;
+    }
+
+    public Double getAverageRating() {
+        return averageRating;
+    }
 }
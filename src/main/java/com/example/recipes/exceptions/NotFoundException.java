@@ -5,4 +5,9 @@ public class NotFoundException extends RuntimeException {
     public NotFoundException(String message) {
         super(message);
     }
+
+    // Для ожидаемых промахов поиска: стек вызовов не нужен и дорого обходится
+    public NotFoundException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
@@ -0,0 +1,267 @@
+package com.example.recipes.index;
+
+import com.example.recipes.repository.RecipeRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Полнотекстовый индекс по описанию и инструкции рецептов: для каждого слова
+ * хранятся рецепты и позиции слова в их тексте. Результаты ранжируются по BM25,
+ * а запрос в двойных кавычках ищется как фраза — слова подряд в этом порядке.
+ *
+ * <p>При старте тексты читаются диапазонами ID и разбиваются на слова в
+ * нескольких потоках; БД не выполняет {@code LIKE} по большим текстовым колонкам.
+ */
+@Component
+public class FullTextIndex extends InMemoryIndex<FullTextIndex.State> {
+
+    // Стандартные параметры BM25: насыщение частоты слова и учёт длины текста
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    private final RecipeRepository recipeRepository;
+    private final int batchSize;
+    private final int buildThreads;
+
+    public FullTextIndex(RecipeRepository recipeRepository,
+                         @Value("${recipes.index.text.enabled:true}") boolean enabled,
+                         @Value("${recipes.index.text.batch-size:2000}") int batchSize,
+                         @Value("${recipes.index.text.build-threads:4}") int buildThreads) {
+        super(enabled, new State());
+        this.recipeRepository = recipeRepository;
+        this.batchSize = batchSize;
+        this.buildThreads = buildThreads;
+    }
+
+    @Override
+    State build() {
+        long maxId = recipeRepository.findMaxRecipeId();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, buildThreads));
+        try {
+            List<Future<List<Document>>> batches = new ArrayList<>();
+            for (long from = 0; from < maxId; from += batchSize) {
+                long fromId = from;
+                batches.add(executor.submit(() -> readDocuments(fromId, fromId + batchSize)));
+            }
+            // Порции читаются и разбираются параллельно, а в индекс попадают по очереди
+            State built = new State();
+            for (Future<List<Document>> batch : batches) {
+                batch.get().forEach(built::put);
+            }
+            return built;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Full-text index build interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Document> readDocuments(long fromId, long toId) {
+        List<Document> documents = new ArrayList<>();
+        for (Object[] row : recipeRepository.findRecipeTexts(fromId, toId)) {
+            documents.add(Document.of(((Number) row[0]).longValue(), (String) row[1],
+                    (String) row[2]));
+        }
+        return documents;
+    }
+
+    /**
+     * До {@code limit} лучших по BM25 рецептов для запроса или {@code null}, если
+     * индекс не готов. Пустой список — ни одно слово запроса не встречается.
+     */
+    public List<Hit> search(String query, int limit) {
+        String trimmed = query.trim();
+        boolean phrase = trimmed.length() > 1 && trimmed.startsWith("\"")
+                && trimmed.endsWith("\"");
+        List<String> terms = tokenize(trimmed);
+        return read(current -> current.search(terms, phrase, limit));
+    }
+
+    public void indexRecipe(long recipeId, String description, String instruction) {
+        Document document = Document.of(recipeId, description, instruction);
+        change(current -> current.put(document));
+    }
+
+    public void removeRecipe(long recipeId) {
+        change(current -> current.remove(recipeId));
+    }
+
+    /** Слова текста в нижнем регистре: последовательности букв и цифр. */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /** Найденный рецепт и его оценка BM25. */
+    public static final class Hit {
+        private final long recipeId;
+        private final double score;
+
+        public Hit(long recipeId, double score) {
+            this.recipeId = recipeId;
+            this.score = score;
+        }
+
+        public long getRecipeId() {
+            return recipeId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::getScore)
+                .thenComparing(Comparator.comparingLong(Hit::getRecipeId).reversed());
+    }
+
+    // Текст рецепта, разобранный вне блокировки индекса
+    static final class Document {
+        private final long recipeId;
+        private final Map<String, int[]> positions;
+        private final int length;
+
+        private Document(long recipeId, Map<String, int[]> positions, int length) {
+            this.recipeId = recipeId;
+            this.positions = positions;
+            this.length = length;
+        }
+
+        static Document of(long recipeId, String description, String instruction) {
+            List<String> tokens = tokenize(description);
+            // Пропуск позиции между полями, чтобы фраза не склеивалась из двух полей
+            tokens.add(null);
+            tokens.addAll(tokenize(instruction));
+            Map<String, List<Integer>> collected = new HashMap<>();
+            for (int position = 0; position < tokens.size(); position++) {
+                String token = tokens.get(position);
+                if (token != null) {
+                    collected.computeIfAbsent(token, key -> new ArrayList<>()).add(position);
+                }
+            }
+            Map<String, int[]> positions = new HashMap<>(collected.size() * 2);
+            collected.forEach((token, list) -> positions.put(token,
+                    list.stream().mapToInt(Integer::intValue).toArray()));
+            return new Document(recipeId, positions, tokens.size() - 1);
+        }
+    }
+
+    static final class State {
+        private final Map<String, Map<Long, int[]>> postings = new HashMap<>();
+        // Слова и длина каждого рецепта: для удаления и нормировки BM25
+        private final Map<Long, String[]> recipeTerms = new HashMap<>();
+        private final Map<Long, Integer> recipeLengths = new HashMap<>();
+        private long totalLength;
+
+        void put(Document document) {
+            remove(document.recipeId);
+            document.positions.forEach((term, positions) -> postings
+                    .computeIfAbsent(term, key -> new HashMap<>())
+                    .put(document.recipeId, positions));
+            recipeTerms.put(document.recipeId, document.positions.keySet().toArray(new String[0]));
+            recipeLengths.put(document.recipeId, document.length);
+            totalLength += document.length;
+        }
+
+        void remove(long recipeId) {
+            String[] terms = recipeTerms.remove(recipeId);
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms) {
+                Map<Long, int[]> recipes = postings.get(term);
+                recipes.remove(recipeId);
+                if (recipes.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            totalLength -= recipeLengths.remove(recipeId);
+        }
+
+        List<Hit> search(List<String> terms, boolean phrase, int limit) {
+            if (terms.isEmpty() || recipeLengths.isEmpty()) {
+                return List.of();
+            }
+            int recipeCount = recipeLengths.size();
+            double averageLength = Math.max(1.0, (double) totalLength / recipeCount);
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : new LinkedHashSet<>(terms)) {
+                Map<Long, int[]> recipes = postings.get(term);
+                if (recipes == null) {
+                    if (phrase) {
+                        return List.of();
+                    }
+                    continue;
+                }
+                double idf = Math.log(1 + (recipeCount - recipes.size() + 0.5)
+                        / (recipes.size() + 0.5));
+                recipes.forEach((recipeId, positions) -> {
+                    double tf = positions.length;
+                    double norm = K1 * (1 - B + B * recipeLengths.get(recipeId) / averageLength);
+                    scores.merge(recipeId, idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                });
+            }
+
+            // Куча на limit элементов: полная сортировка всех совпадений не нужна
+            PriorityQueue<Hit> best = new PriorityQueue<>(Hit.WORST_FIRST);
+            scores.forEach((recipeId, score) -> {
+                if (phrase && !containsPhrase(recipeId, terms)) {
+                    return;
+                }
+                best.add(new Hit(recipeId, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            });
+            Hit[] hits = best.toArray(new Hit[0]);
+            Arrays.sort(hits, Hit.WORST_FIRST.reversed());
+            return List.of(hits);
+        }
+
+        private boolean containsPhrase(long recipeId, List<String> terms) {
+            int[] first = postings.get(terms.get(0)).get(recipeId);
+            if (first == null) {
+                return false;
+            }
+            for (int start : first) {
+                boolean matched = true;
+                for (int i = 1; i < terms.size() && matched; i++) {
+                    int[] positions = postings.get(terms.get(i)).get(recipeId);
+                    matched = positions != null && Arrays.binarySearch(positions, start + i) >= 0;
+                }
+                if (matched) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
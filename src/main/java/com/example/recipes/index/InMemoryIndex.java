@@ -0,0 +1,179 @@
+package com.example.recipes.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Общая часть индексов в памяти процесса: состояние {@code S} строится из БД после
+ * старта приложения, читается под блокировкой чтения, а изменения применяются
+ * после фиксации транзакции, в которой их сделали. Изменения, пришедшие во время
+ * построения, повторяются на новом состоянии, поэтому они не теряются. Поэтому же
+ * изменения должны быть идемпотентны: приращения, уже учтённые построением, при
+ * повторе применились бы дважды. Счётчики вместо приращений перечитываются из БД
+ * через {@link #refresh}.
+ *
+ * <p>Пока индекс не построен (или отключён), {@link #read} возвращает {@code null},
+ * и вызывающий код идёт в БД.
+ */
+abstract class InMemoryIndex<S> {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryIndex.class);
+
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private S state;
+    private boolean ready;
+    // Перечитать изменение из БД не удалось: состояние отстало до следующего построения
+    private boolean outdated;
+    private List<Consumer<S>> backlog;
+    private final Object refreshLock = new Object();
+
+    InMemoryIndex(boolean enabled, S emptyState) {
+        this.enabled = enabled;
+        this.state = emptyState;
+    }
+
+    /** Читает всё, что нужно индексу, из БД в новое состояние. */
+    abstract S build();
+
+    /**
+     * Вызывается под блокировкой записи после каждого изменения готового состояния
+     * и сразу после построения: здесь можно опубликовать неизменяемый снимок.
+     */
+    void afterChange(S current) {
+    }
+
+    /** Можно ли отвечать на запросы по этому состоянию. */
+    boolean isUsable(S current) {
+        return true;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        withWriteLock(() -> {
+            backlog = new ArrayList<>();
+            outdated = false;
+        });
+        S built;
+        try {
+            built = build();
+        } catch (RuntimeException e) {
+            logger.warn("{} is not built, searches use the database: {}",
+                    getClass().getSimpleName(), e.getMessage());
+            withWriteLock(() -> backlog = null);
+            return;
+        }
+        withWriteLock(() -> {
+            backlog.forEach(change -> change.accept(built));
+            backlog = null;
+            state = built;
+            ready = !outdated;
+            afterChange(built);
+        });
+        logger.info("{} built", getClass().getSimpleName());
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready && isUsable(state);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Результат {@code reader} или {@code null}, если индекс не готов. */
+    <R> R read(Function<S, R> reader) {
+        lock.readLock().lock();
+        try {
+            return ready && isUsable(state) ? reader.apply(state) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Внутри транзакции изменение применяется только после её фиксации
+    void change(Consumer<S> change) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> apply(change));
+    }
+
+    /**
+     * Как {@link #change}, но изменение строится по значениям, которые {@code loader}
+     * читает из БД после фиксации: абсолютные значения можно повторить на состоянии,
+     * построенном уже с ними. Чтение и применение идут по одному, поэтому более раннее
+     * чтение не затирает более позднее. Если чтение не удалось, индекс перестаёт
+     * отвечать до следующего построения, и запросы идут в БД.
+     */
+    void refresh(Supplier<Consumer<S>> loader) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            synchronized (refreshLock) {
+                Consumer<S> change;
+                try {
+                    change = loader.get();
+                } catch (RuntimeException e) {
+                    logger.warn("{} is out of date, searches use the database until "
+                            + "it is rebuilt: {}", getClass().getSimpleName(), e.getMessage());
+                    withWriteLock(() -> {
+                        outdated = true;
+                        ready = false;
+                    });
+                    return;
+                }
+                apply(change);
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+
+    private void apply(Consumer<S> change) {
+        withWriteLock(() -> {
+            change.accept(state);
+            if (backlog != null) {
+                backlog.add(change);
+            }
+            if (ready) {
+                afterChange(state);
+            }
+        });
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
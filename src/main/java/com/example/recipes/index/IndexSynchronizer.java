@@ -0,0 +1,164 @@
+package com.example.recipes.index;
+
+import com.example.recipes.config.CacheConfig;
+import com.example.recipes.config.DataChangeListener;
+import com.example.recipes.entity.Ingredient;
+import com.example.recipes.entity.Recipe;
+import com.example.recipes.repository.IngredientRepository;
+import com.example.recipes.repository.RecipeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Согласует индексы этого узла с изменениями, сделанными на других узлах. ID
+ * изменённых рецептов и ингредиентов приходят по шине инвалидаций кэша, а сами
+ * данные перечитываются из БД в отдельном потоке, не задерживая приём шины.
+ * Перечитывание идемпотентно, поэтому повтор и порядок сообщений не важны.
+ *
+ * <p>Шина может терять сообщения (UDP), поэтому при
+ * {@code recipes.index.sync.rebuild-interval-minutes > 0} все индексы ещё и
+ * периодически перестраиваются из БД.
+ */
+@Component
+public class IndexSynchronizer implements DataChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(IndexSynchronizer.class);
+
+    private final CacheConfig cacheConfig;
+    private final RecipeRepository recipeRepository;
+    private final IngredientRepository ingredientRepository;
+    private final IngredientIndex ingredientIndex;
+    private final TitleTrigramIndex titleIndex;
+    private final FullTextIndex textIndex;
+    private final IngredientAutocomplete ingredientAutocomplete;
+    private final RatingIndex ratingIndex;
+    private final long rebuildIntervalMinutes;
+    private ScheduledExecutorService executor;
+
+    public IndexSynchronizer(CacheConfig cacheConfig,
+                             RecipeRepository recipeRepository,
+                             IngredientRepository ingredientRepository,
+                             IngredientIndex ingredientIndex,
+                             TitleTrigramIndex titleIndex,
+                             FullTextIndex textIndex,
+                             IngredientAutocomplete ingredientAutocomplete,
+                             RatingIndex ratingIndex,
+                             @Value("${recipes.index.sync.rebuild-interval-minutes:0}")
+                             long rebuildIntervalMinutes) {
+        this.cacheConfig = cacheConfig;
+        this.recipeRepository = recipeRepository;
+        this.ingredientRepository = ingredientRepository;
+        this.ingredientIndex = ingredientIndex;
+        this.titleIndex = titleIndex;
+        this.textIndex = textIndex;
+        this.ingredientAutocomplete = ingredientAutocomplete;
+        this.ratingIndex = ratingIndex;
+        this.rebuildIntervalMinutes = rebuildIntervalMinutes;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (rebuildIntervalMinutes > 0) {
+            executor.scheduleWithFixedDelay(this::rebuildAll, rebuildIntervalMinutes,
+                    rebuildIntervalMinutes, TimeUnit.MINUTES);
+        }
+        cacheConfig.setDataChangeListener(this);
+    }
+
+    @PreDestroy
+    public void stop() {
+        cacheConfig.setDataChangeListener(null);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void recipeChanged(long recipeId) {
+        submit(() -> reloadRecipe(recipeId));
+    }
+
+    @Override
+    public void ratingChanged(long recipeId) {
+        submit(() -> ratingIndex.refreshRating(recipeId));
+    }
+
+    @Override
+    public void ingredientChanged(long ingredientId) {
+        submit(() -> reloadIngredient(ingredientId));
+    }
+
+    // Ошибка одного перечитывания не должна останавливать поток синхронизации
+    private void submit(Runnable task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to apply a remote change to the indexes: {}",
+                        e.getMessage());
+            }
+        });
+    }
+
+    void reloadRecipe(long recipeId) {
+        // Популярность меняется у прежних и новых ингредиентов рецепта
+        Set<Long> touched = new HashSet<>();
+        long[] previous = ingredientIndex.ingredientsOf(recipeId);
+        if (previous != null) {
+            for (long ingredientId : previous) {
+                touched.add(ingredientId);
+            }
+        }
+        List<Recipe> found = recipeRepository.findByIdInOrderByIdAsc(List.of(recipeId));
+        if (found.isEmpty()) {
+            ingredientIndex.removeRecipe(recipeId);
+            titleIndex.removeRecipe(recipeId);
+            textIndex.removeRecipe(recipeId);
+            ratingIndex.removeRecipe(recipeId);
+        } else {
+            Recipe recipe = found.get(0);
+            ingredientIndex.indexRecipe(recipe);
+            titleIndex.indexRecipe(recipeId, recipe.getTitle());
+            textIndex.indexRecipe(recipeId, recipe.getDescription(), recipe.getInstruction());
+            if (recipe.getIngredients() != null) {
+                for (Ingredient ingredient : recipe.getIngredients()) {
+                    touched.add(ingredient.getId());
+                }
+            }
+        }
+        ingredientAutocomplete.refreshPopularity(touched);
+    }
+
+    void reloadIngredient(long ingredientId) {
+        Optional<Ingredient> ingredient = ingredientRepository.findById(ingredientId);
+        if (ingredient.isPresent()) {
+            String name = ingredient.get().getName();
+            ingredientIndex.putIngredient(ingredientId, name);
+            ingredientAutocomplete.putIngredient(ingredientId, name);
+        } else {
+            ingredientIndex.removeIngredient(ingredientId);
+            ingredientAutocomplete.removeIngredient(ingredientId);
+        }
+    }
+
+    void rebuildAll() {
+        ingredientIndex.rebuild();
+        titleIndex.rebuild();
+        textIndex.rebuild();
+        ingredientAutocomplete.rebuild();
+        ratingIndex.rebuild();
+    }
+}
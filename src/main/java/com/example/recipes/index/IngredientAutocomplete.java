@@ -0,0 +1,310 @@
+package com.example.recipes.index;
+
+import com.example.recipes.entity.Ingredient;
+import com.example.recipes.repository.IngredientRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Автодополнение имён ингредиентов по префиксу, самые популярные (по числу
+ * рецептов) первыми. Запросы читают неизменяемый {@link IngredientTrie} без
+ * обращения к БД. Изменение ингредиентов или их использования в рецептах только
+ * помечает дерево устаревшим, а новое собирает фоновый поток через
+ * {@code rebuild-delay-millis} после первого изменения: серия изменений стоит одной
+ * пересборки, и ни запись, ни запрос её не ждут — до публикации отвечает прежнее дерево.
+ * Популярность затронутых ингредиентов после фиксации перечитывается из БД, а не
+ * меняется на ±1: приращение, пришедшее во время построения, было бы учтено дважды.
+ *
+ * <p>По тому же словарю строится {@link IngredientBkTree} для исправления опечаток
+ * в именах ингредиентов перед поиском; оно пересобирается, только когда меняется
+ * набор имён.
+ */
+@Component
+public class IngredientAutocomplete extends InMemoryIndex<IngredientAutocomplete.State> {
+
+    private static final Comparator<Suggestion> MOST_POPULAR_FIRST = Comparator
+            .comparingLong(Suggestion::getPopularity).reversed()
+            .thenComparing(suggestion -> suggestion.getName().toLowerCase(Locale.ROOT))
+            .thenComparingLong(Suggestion::getId);
+
+    private final IngredientRepository ingredientRepository;
+    private final int maxSuggestions;
+    private final int maxTypoDistance;
+    private final long rebuildDelayMillis;
+    private volatile IngredientTrie trie;
+    private volatile IngredientBkTree spelling;
+    // Выставляются под блокировкой записи индекса, снимаются под блокировкой чтения,
+    // когда состояние копируется для пересборки
+    private boolean trieStale;
+    private boolean spellingStale;
+    // Пересборка уже запланирована: следующие изменения войдут в неё
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+    private ScheduledExecutorService publisher;
+
+    public IngredientAutocomplete(IngredientRepository ingredientRepository,
+                                  @Value("${recipes.index.autocomplete.enabled:true}")
+                                  boolean enabled,
+                                  @Value("${recipes.index.autocomplete.max-suggestions:20}")
+                                  int maxSuggestions,
+                                  @Value("${recipes.search.fuzzy.max-distance:2}")
+                                  int maxTypoDistance,
+                                  @Value("${recipes.index.autocomplete.rebuild-delay-millis:200}")
+                                  long rebuildDelayMillis) {
+        super(enabled, new State());
+        this.ingredientRepository = ingredientRepository;
+        this.maxSuggestions = maxSuggestions;
+        this.maxTypoDistance = maxTypoDistance;
+        this.rebuildDelayMillis = rebuildDelayMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (rebuildDelayMillis > 0) {
+            publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "autocomplete-publish");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (publisher != null) {
+            publisher.shutdownNow();
+        }
+    }
+
+    @Override
+    State build() {
+        State built = new State();
+        for (Object[] row : ingredientRepository.findIngredientPopularity()) {
+            built.set(row);
+        }
+        return built;
+    }
+
+    // Первые деревья строятся на потоке построения индекса, а не ждут фоновой публикации
+    @Override
+    public void rebuild() {
+        super.rebuild();
+        publish();
+    }
+
+    @Override
+    void afterChange(State current) {
+        trieStale = true;
+        if (current.namesChanged) {
+            current.namesChanged = false;
+            spellingStale = true;
+        }
+        if (publisher != null && !publisher.isShutdown()
+                && publishScheduled.compareAndSet(false, true)) {
+            publisher.schedule(this::publish, rebuildDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Собирает и публикует устаревшие деревья. Под блокировкой чтения индекса только
+     * копируются подсказки, а сборка идёт без неё и не задерживает запись. Дерево
+     * публикуется целиком: читатели видят либо старое, либо новое. При
+     * {@code rebuildDelayMillis <= 0} после построения деревья публикуются только
+     * этим вызовом.
+     */
+    synchronized void publish() {
+        publishScheduled.set(false);
+        Snapshot snapshot = read(current -> {
+            Snapshot copy = new Snapshot(trieStale, spellingStale, current);
+            trieStale = false;
+            spellingStale = false;
+            return copy;
+        });
+        if (snapshot == null) {
+            return; // Индекс не готов
+        }
+        if (snapshot.trieStale) {
+            List<Suggestion> ranked = snapshot.suggestions;
+            ranked.sort(MOST_POPULAR_FIRST);
+            trie = IngredientTrie.build(ranked, maxSuggestions);
+        }
+        // Популярность в дереве опечаток решает только равные расстояния, поэтому она
+        // обновляется вместе с набором имён, а не при каждом изменении использования
+        if (snapshot.spellingStale) {
+            Map<String, Long> popularityByName = new HashMap<>();
+            for (Suggestion suggestion : snapshot.suggestions) {
+                popularityByName.merge(IngredientIndex.normalizeName(suggestion.getName()),
+                        suggestion.getPopularity(), Long::sum);
+            }
+            spelling = IngredientBkTree.build(popularityByName);
+        }
+    }
+
+    // Что пересобрать и по каким подсказкам, скопированным под блокировкой чтения
+    private static final class Snapshot {
+        private final boolean trieStale;
+        private final boolean spellingStale;
+        private final List<Suggestion> suggestions;
+
+        Snapshot(boolean trieStale, boolean spellingStale, State current) {
+            this.trieStale = trieStale;
+            this.spellingStale = spellingStale;
+            this.suggestions = trieStale || spellingStale
+                    ? new ArrayList<>(current.entries.values()) : List.of();
+        }
+    }
+
+    public int getMaxSuggestions() {
+        return maxSuggestions;
+    }
+
+    /**
+     * До {@code limit} ингредиентов, имена которых без учёта регистра начинаются с
+     * {@code prefix}, или {@code null}, если дерево ещё не построено или индекс отстал.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        IngredientTrie current = trie;
+        if (current == null || !isReady()) {
+            return null;
+        }
+        return current.complete(prefix.stripLeading().toLowerCase(Locale.ROOT),
+                Math.min(limit, maxSuggestions));
+    }
+
+    /**
+     * Известное имя ингредиента, ближайшее к нормализованному {@code name}: само имя,
+     * если оно есть в словаре, исправленное в пределах допустимого числа правок или
+     * {@code name} без изменений, если похожего нет или словарь ещё не построен.
+     */
+    public String correctName(String name) {
+        IngredientBkTree current = spelling;
+        if (current == null || !isReady()) {
+            return name;
+        }
+        String closest = current.closest(name, typoDistanceFor(name));
+        return closest == null ? name : closest;
+    }
+
+    // В коротком слове одна правка уже даёт другой ингредиент («oat» -> «fat»)
+    int typoDistanceFor(String name) {
+        if (name.length() <= 3) {
+            return 0;
+        }
+        return Math.min(name.length() <= 6 ? 1 : 2, maxTypoDistance);
+    }
+
+    public void putIngredient(long ingredientId, String name) {
+        change(current -> current.put(ingredientId, name));
+    }
+
+    public void removeIngredient(long ingredientId) {
+        change(current -> current.remove(ingredientId));
+    }
+
+    /** Рецепт перестал использовать {@code removed} и стал использовать {@code added}. */
+    public void changeUses(Collection<Ingredient> removed, Collection<Ingredient> added) {
+        Set<Long> removedIds = idsOf(removed);
+        Set<Long> addedIds = idsOf(added);
+        Set<Long> changed = new HashSet<>(removedIds);
+        changed.addAll(addedIds);
+        removedIds.retainAll(addedIds);
+        changed.removeAll(removedIds);
+        refreshPopularity(changed);
+    }
+
+    /** Популярность ингредиентов перечитывается из БД после фиксации. */
+    public void refreshPopularity(Collection<Long> ingredientIds) {
+        if (ingredientIds.isEmpty()) {
+            return;
+        }
+        Set<Long> changed = Set.copyOf(ingredientIds);
+        refresh(() -> {
+            List<Object[]> rows = ingredientRepository.findIngredientPopularity(changed);
+            return current -> {
+                Set<Long> deleted = new HashSet<>(changed);
+                for (Object[] row : rows) {
+                    deleted.remove(((Number) row[0]).longValue());
+                    current.set(row);
+                }
+                deleted.forEach(current::remove);
+            };
+        });
+    }
+
+    private static Set<Long> idsOf(Collection<Ingredient> ingredients) {
+        Set<Long> ids = new HashSet<>();
+        if (ingredients != null) {
+            for (Ingredient ingredient : ingredients) {
+                if (ingredient.getId() != null) {
+                    ids.add(ingredient.getId());
+                }
+            }
+        }
+        return ids;
+    }
+
+    /** Подсказка: ингредиент и число рецептов, в которых он используется. */
+    public static final class Suggestion {
+        private final long id;
+        private final String name;
+        private final long popularity;
+
+        public Suggestion(long id, String name, long popularity) {
+            this.id = id;
+            this.name = name;
+            this.popularity = popularity;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getPopularity() {
+            return popularity;
+        }
+    }
+
+    static final class State {
+        private final Map<Long, Suggestion> entries = new HashMap<>();
+        // Набор имён изменился с последней публикации дерева опечаток
+        private boolean namesChanged = true;
+
+        void put(long ingredientId, String name) {
+            Suggestion previous = entries.get(ingredientId);
+            entries.put(ingredientId, new Suggestion(ingredientId, name,
+                    previous == null ? 0 : previous.getPopularity()));
+            namesChanged |= previous == null || !previous.getName().equals(name);
+        }
+
+        void remove(long ingredientId) {
+            namesChanged |= entries.remove(ingredientId) != null;
+        }
+
+        // Строка запроса: (ID, имя, в скольких рецептах используется)
+        void set(Object[] row) {
+            long ingredientId = ((Number) row[0]).longValue();
+            String name = (String) row[1];
+            Suggestion previous = entries.put(ingredientId,
+                    new Suggestion(ingredientId, name, ((Number) row[2]).longValue()));
+            namesChanged |= previous == null || !previous.getName().equals(name);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.recipes.index;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * BK-дерево имён ингредиентов по расстоянию Левенштейна. Потомки узла разложены
+ * по расстоянию до его слова, и по неравенству треугольника при поиске в пределах
+ * {@code maxDistance} достаточно заходить в потомков с расстоянием
+ * {@code d - maxDistance .. d + maxDistance}: большая часть словаря не сравнивается.
+ * После построения дерево не меняется.
+ */
+final class IngredientBkTree {
+
+    private final Node root;
+
+    private IngredientBkTree(Node root) {
+        this.root = root;
+    }
+
+    /** Строит дерево по нормализованным именам и их популярности. */
+    static IngredientBkTree build(Map<String, Long> popularityByName) {
+        Node root = null;
+        for (Map.Entry<String, Long> entry : popularityByName.entrySet()) {
+            Node node = new Node(entry.getKey(), entry.getValue());
+            if (root == null) {
+                root = node;
+                continue;
+            }
+            Node parent = root;
+            while (true) {
+                int distance = distance(parent.word, node.word);
+                Node child = parent.children.get(distance);
+                if (child == null) {
+                    parent.children.put(distance, node);
+                    break;
+                }
+                parent = child;
+            }
+        }
+        return new IngredientBkTree(root);
+    }
+
+    /**
+     * Ближайшее к {@code word} имя не дальше {@code maxDistance} правок: при равном
+     * расстоянии — более популярное, затем меньшее по алфавиту. {@code null}, если
+     * такого нет.
+     */
+    String closest(String word, int maxDistance) {
+        if (root == null) {
+            return null;
+        }
+        Node best = null;
+        int bestDistance = maxDistance + 1;
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            // Для выбора потомков нужно точное расстояние, поэтому без отсечения
+            int distance = distance(word, node.word);
+            if (distance < bestDistance || distance == bestDistance && best != null
+                    && node.isPreferredTo(best)) {
+                best = node;
+                bestDistance = distance;
+            }
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+        return best == null ? null : best.word;
+    }
+
+    /** Расстояние Левенштейна: минимум вставок, удалений и замен символов. */
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static final class Node {
+        private final String word;
+        private final long popularity;
+        private final Map<Integer, Node> children = new HashMap<>();
+
+        Node(String word, long popularity) {
+            this.word = word;
+            this.popularity = popularity;
+        }
+
+        boolean isPreferredTo(Node other) {
+            if (popularity != other.popularity) {
+                return popularity > other.popularity;
+            }
+            return word.compareTo(other.word) < 0;
+        }
+    }
+}
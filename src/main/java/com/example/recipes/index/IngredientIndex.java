@@ -0,0 +1,353 @@
+package com.example.recipes.index;
+
+import com.example.recipes.entity.Ingredient;
+import com.example.recipes.entity.Recipe;
+import com.example.recipes.repository.IngredientRepository;
+import com.example.recipes.repository.RecipeRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Инвертированный индекс «ингредиент → множество рецептов» в памяти процесса.
+ * Поиск рецептов со всеми ингредиентами сводится к пересечению
+ * {@link RecipeIdBitmap}, без JOIN с GROUP BY/HAVING по таблице recipe_ingredient.
+ *
+ * <p>Пока индекс не построен, {@link #findRecipesWithAll} возвращает {@code null}
+ * и поиск идёт через БД.
+ */
+@Component
+public class IngredientIndex extends InMemoryIndex<IngredientIndex.State> {
+    private static final Logger logger = LoggerFactory.getLogger(IngredientIndex.class);
+
+    private final RecipeRepository recipeRepository;
+    private final IngredientRepository ingredientRepository;
+    private final int batchSize;
+
+    public IngredientIndex(RecipeRepository recipeRepository,
+                           IngredientRepository ingredientRepository,
+                           @Value("${recipes.index.ingredients.enabled:true}")
+                           boolean enabled,
+                           @Value("${recipes.index.ingredients.batch-size:10000}")
+                           int batchSize) {
+        super(enabled, new State());
+        this.recipeRepository = recipeRepository;
+        this.ingredientRepository = ingredientRepository;
+        this.batchSize = batchSize;
+    }
+
+    /** Приводит имя ингредиента к виду, в котором его сравнивает поиск. */
+    public static String normalizeName(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    State build() {
+        State built = new State();
+        for (Ingredient ingredient : ingredientRepository.findAll()) {
+            built.putIngredient(ingredient.getId(), ingredient.getName());
+        }
+        long maxId = recipeRepository.findMaxRecipeId();
+        // Пары (рецепт, ингредиент) читаются диапазонами ID, а не одним огромным списком
+        for (long from = 0; from < maxId; from += batchSize) {
+            for (Object[] pair : recipeRepository.findRecipeIngredientPairs(from,
+                    from + batchSize)) {
+                built.link(((Number) pair[0]).longValue(), ((Number) pair[1]).longValue());
+            }
+        }
+        return built;
+    }
+
+    @Override
+    boolean isUsable(State current) {
+        return !current.overflow;
+    }
+
+    /**
+     * ID рецептов, содержащих все ингредиенты с указанными (нормализованными) именами,
+     * по возрастанию, или {@code null}, если индекс не готов и нужен запрос к БД.
+     */
+    public long[] findRecipesWithAll(Collection<String> normalizedNames) {
+        return read(current -> {
+            List<RecipeIdBitmap> bitmaps = new ArrayList<>(normalizedNames.size());
+            for (String name : normalizedNames) {
+                RecipeIdBitmap recipes = current.recipesWithName(name);
+                if (recipes == null) {
+                    return new long[0];
+                }
+                bitmaps.add(recipes);
+            }
+            return RecipeIdBitmap.and(bitmaps).toArray();
+        });
+    }
+
+    /**
+     * Рецепты, которые можно приготовить из «кладовой» {@code normalizedNames}, если
+     * докупить не больше {@code maxMissing} ингредиентов: сначала те, где не хватает
+     * меньше всего, при равенстве — по возрастанию ID. {@code null}, если индекс не готов.
+     *
+     * <p>Просматриваются только рецепты, где есть хотя бы один ингредиент из кладовой
+     * и всего ингредиентов не больше, чем в кладовой плюс {@code maxMissing}: рецепты
+     * сгруппированы по числу ингредиентов, и лишние группы отсекаются пересечением
+     * битовых карт. Покрытие считается проверкой принадлежности, без промежуточных карт.
+     */
+    public List<PantryMatch> findPantryMatches(Collection<String> normalizedNames,
+                                               int maxMissing) {
+        return read(current -> current.pantryMatches(normalizedNames, maxMissing));
+    }
+
+    /** ID ингредиентов рецепта по индексу или {@code null}, если индекс не готов. */
+    public long[] ingredientsOf(long recipeId) {
+        return read(current -> current.ingredientsByRecipe
+                .getOrDefault(recipeId, new long[0]).clone());
+    }
+
+    /** Заменяет ингредиенты рецепта в индексе его текущим набором. */
+    public void indexRecipe(Recipe recipe) {
+        long recipeId = recipe.getId();
+        Map<Long, String> ingredients = new HashMap<>();
+        if (recipe.getIngredients() != null) {
+            for (Ingredient ingredient : recipe.getIngredients()) {
+                ingredients.put(ingredient.getId(), ingredient.getName());
+            }
+        }
+        change(current -> {
+            current.unlinkRecipe(recipeId);
+            ingredients.forEach((ingredientId, name) -> {
+                current.putIngredient(ingredientId, name);
+                current.link(recipeId, ingredientId);
+            });
+        });
+    }
+
+    public void removeRecipe(long recipeId) {
+        change(current -> current.unlinkRecipe(recipeId));
+    }
+
+    public void putIngredient(long ingredientId, String name) {
+        change(current -> current.putIngredient(ingredientId, name));
+    }
+
+    public void removeIngredient(long ingredientId) {
+        change(current -> current.removeIngredient(ingredientId));
+    }
+
+    /** Рецепт из поиска по кладовой и число ингредиентов, которых в ней нет. */
+    public static final class PantryMatch {
+        private final long recipeId;
+        private final int missingCount;
+
+        public PantryMatch(long recipeId, int missingCount) {
+            this.recipeId = recipeId;
+            this.missingCount = missingCount;
+        }
+
+        public long getRecipeId() {
+            return recipeId;
+        }
+
+        public int getMissingCount() {
+            return missingCount;
+        }
+
+        /** Сначала меньше недостающих, затем меньший ID. */
+        public static final Comparator<PantryMatch> BEST_FIRST = Comparator
+                .comparingInt(PantryMatch::getMissingCount)
+                .thenComparingLong(PantryMatch::getRecipeId);
+    }
+
+    static final class State {
+        private final Map<Long, RecipeIdBitmap> recipesByIngredient = new HashMap<>();
+        // Обратное отображение: удаление рецепта затрагивает только его ингредиенты
+        private final Map<Long, long[]> ingredientsByRecipe = new HashMap<>();
+        // Рецепты по числу ингредиентов: для подсчёта недостающих в кладовой
+        private final Map<Integer, RecipeIdBitmap> recipesByIngredientCount = new HashMap<>();
+        private final Map<Long, String> ingredientNames = new HashMap<>();
+        // Имя сравнивается без учёта регистра, поэтому ему может соответствовать несколько ID
+        private final Map<String, Set<Long>> ingredientsByName = new HashMap<>();
+        // ID рецепта не помещается в битовую карту: индекс больше не используется
+        private boolean overflow;
+
+        void putIngredient(long ingredientId, String name) {
+            String normalized = normalizeName(name);
+            String previous = ingredientNames.put(ingredientId, normalized);
+            if (normalized.equals(previous)) {
+                return;
+            }
+            if (previous != null) {
+                forgetName(previous, ingredientId);
+            }
+            ingredientsByName.computeIfAbsent(normalized, key -> new HashSet<>())
+                    .add(ingredientId);
+        }
+
+        void removeIngredient(long ingredientId) {
+            String name = ingredientNames.remove(ingredientId);
+            if (name != null) {
+                forgetName(name, ingredientId);
+            }
+            RecipeIdBitmap recipes = recipesByIngredient.remove(ingredientId);
+            if (recipes == null) {
+                return;
+            }
+            for (long recipeId : recipes.toArray()) {
+                long[] ingredients = ingredientsByRecipe.get(recipeId);
+                long[] remaining = new long[ingredients.length - 1];
+                int size = 0;
+                for (long id : ingredients) {
+                    if (id != ingredientId) {
+                        remaining[size++] = id;
+                    }
+                }
+                if (remaining.length == 0) {
+                    ingredientsByRecipe.remove(recipeId);
+                } else {
+                    ingredientsByRecipe.put(recipeId, remaining);
+                }
+                moveToCount(recipeId, ingredients.length, remaining.length);
+            }
+        }
+
+        void link(long recipeId, long ingredientId) {
+            if (recipeId < 0 || recipeId > RecipeIdBitmap.MAX_ID) {
+                if (!overflow) {
+                    logger.warn("Recipe id {} does not fit the ingredient index, "
+                            + "searches fall back to the database", recipeId);
+                }
+                overflow = true;
+                return;
+            }
+            if (!recipesByIngredient.computeIfAbsent(ingredientId, key -> new RecipeIdBitmap())
+                    .add(recipeId)) {
+                return;
+            }
+            long[] ingredients = ingredientsByRecipe.get(recipeId);
+            int count = ingredients == null ? 0 : ingredients.length;
+            long[] linked = ingredients == null ? new long[1]
+                    : Arrays.copyOf(ingredients, count + 1);
+            linked[count] = ingredientId;
+            ingredientsByRecipe.put(recipeId, linked);
+            moveToCount(recipeId, count, count + 1);
+        }
+
+        void unlinkRecipe(long recipeId) {
+            long[] ingredients = ingredientsByRecipe.remove(recipeId);
+            if (ingredients == null) {
+                return;
+            }
+            for (long ingredientId : ingredients) {
+                RecipeIdBitmap recipes = recipesByIngredient.get(ingredientId);
+                if (recipes != null && recipes.remove(recipeId) && recipes.isEmpty()) {
+                    recipesByIngredient.remove(ingredientId);
+                }
+            }
+            moveToCount(recipeId, ingredients.length, 0);
+        }
+
+        // Переносит рецепт в группу с новым числом ингредиентов; 0 — ни в какую
+        private void moveToCount(long recipeId, int from, int to) {
+            if (from > 0) {
+                RecipeIdBitmap recipes = recipesByIngredientCount.get(from);
+                if (recipes.remove(recipeId) && recipes.isEmpty()) {
+                    recipesByIngredientCount.remove(from);
+                }
+            }
+            if (to > 0) {
+                recipesByIngredientCount.computeIfAbsent(to, key -> new RecipeIdBitmap())
+                        .add(recipeId);
+            }
+        }
+
+        RecipeIdBitmap recipesWithName(String name) {
+            Set<Long> ingredientIds = ingredientsByName.get(name);
+            if (ingredientIds == null) {
+                return null;
+            }
+            RecipeIdBitmap union = null;
+            boolean copied = false;
+            for (Long ingredientId : ingredientIds) {
+                RecipeIdBitmap recipes = recipesByIngredient.get(ingredientId);
+                if (recipes == null) {
+                    continue;
+                }
+                if (union == null) {
+                    union = recipes;
+                    continue;
+                }
+                if (!copied) {
+                    union = union.copy();
+                    copied = true;
+                }
+                union.orInPlace(recipes);
+            }
+            return union;
+        }
+
+        List<PantryMatch> pantryMatches(Collection<String> names, int maxMissing) {
+            // Считаем по ID ингредиентов: у рецепта могут быть «Salt» и «salt» одновременно
+            List<RecipeIdBitmap> pantry = new ArrayList<>();
+            for (String name : names) {
+                for (Long ingredientId : ingredientsByName.getOrDefault(name, Set.of())) {
+                    RecipeIdBitmap recipes = recipesByIngredient.get(ingredientId);
+                    if (recipes != null) {
+                        pantry.add(recipes);
+                    }
+                }
+            }
+            List<PantryMatch> matches = new ArrayList<>();
+            if (pantry.isEmpty()) {
+                return matches;
+            }
+            RecipeIdBitmap candidates = pantry.get(0);
+            if (pantry.size() > 1) {
+                candidates = candidates.copy();
+                for (int i = 1; i < pantry.size(); i++) {
+                    candidates.orInPlace(pantry.get(i));
+                }
+            }
+            long maxIngredients = (long) pantry.size() + maxMissing;
+            for (Map.Entry<Integer, RecipeIdBitmap> group : recipesByIngredientCount.entrySet()) {
+                int ingredientCount = group.getKey();
+                // Даже если кладовая покрывает рецепт целиком, недостающих слишком много
+                if (ingredientCount > maxIngredients) {
+                    continue;
+                }
+                for (long recipeId : candidates.and(group.getValue()).toArray()) {
+                    int covered = 0;
+                    for (RecipeIdBitmap recipes : pantry) {
+                        if (recipes.contains(recipeId)) {
+                            covered++;
+                        }
+                    }
+                    int missing = ingredientCount - covered;
+                    if (missing <= maxMissing) {
+                        matches.add(new PantryMatch(recipeId, missing));
+                    }
+                }
+            }
+            matches.sort(PantryMatch.BEST_FIRST);
+            return matches;
+        }
+
+        private void forgetName(String name, long ingredientId) {
+            Set<Long> ids = ingredientsByName.get(name);
+            if (ids != null) {
+                ids.remove(ingredientId);
+                if (ids.isEmpty()) {
+                    ingredientsByName.remove(name);
+                }
+            }
+        }
+    }
+}
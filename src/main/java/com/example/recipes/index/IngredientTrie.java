@@ -0,0 +1,126 @@
+package com.example.recipes.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Неизменяемое префиксное дерево имён ингредиентов, уложенное в плоские массивы.
+ * Узлы пронумерованы в ширину, поэтому потомки узла идут подряд и отсортированы по
+ * символу; переход к потомку — двоичный поиск по {@code labels}. В каждом узле
+ * заранее сохранены до {@code topK} самых популярных ингредиентов с этим префиксом,
+ * так что подсказка не обходит поддерево и стоит O(длина префикса).
+ */
+final class IngredientTrie {
+
+    private final long[] ids;
+    private final String[] names;
+    private final long[] popularity;
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] childCount;
+    // Лучшие ингредиенты узла i: top[topStart[i]] .. top[topStart[i + 1] - 1]
+    private final int[] topStart;
+    private final int[] top;
+
+    private IngredientTrie(long[] ids, String[] names, long[] popularity, char[] labels,
+                           int[] firstChild, int[] childCount, int[] topStart, int[] top) {
+        this.ids = ids;
+        this.names = names;
+        this.popularity = popularity;
+        this.labels = labels;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.topStart = topStart;
+        this.top = top;
+    }
+
+    /** Строит дерево; записи должны быть упорядочены от самой популярной. */
+    static IngredientTrie build(List<IngredientAutocomplete.Suggestion> ranked, int topK) {
+        int size = ranked.size();
+        long[] ids = new long[size];
+        String[] names = new String[size];
+        long[] popularity = new long[size];
+        Node root = new Node('\0');
+        int nodeCount = 1;
+        for (int entry = 0; entry < size; entry++) {
+            IngredientAutocomplete.Suggestion suggestion = ranked.get(entry);
+            ids[entry] = suggestion.getId();
+            names[entry] = suggestion.getName();
+            popularity[entry] = suggestion.getPopularity();
+            String key = IngredientIndex.normalizeName(suggestion.getName());
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                char label = key.charAt(i);
+                Node child = node.children.get(label);
+                if (child == null) {
+                    child = new Node(label);
+                    node.children.put(label, child);
+                    nodeCount++;
+                }
+                node = child;
+                // Записи идут по убыванию популярности: первые topK и есть лучшие
+                if (node.top.size() < topK) {
+                    node.top.add(entry);
+                }
+            }
+        }
+
+        char[] labels = new char[nodeCount];
+        int[] firstChild = new int[nodeCount];
+        int[] childCount = new int[nodeCount];
+        int[] topStart = new int[nodeCount + 1];
+        List<Integer> top = new ArrayList<>();
+        List<Node> order = new ArrayList<>(nodeCount);
+        order.add(root);
+        for (int i = 0; i < order.size(); i++) {
+            Node node = order.get(i);
+            labels[i] = node.label;
+            firstChild[i] = order.size();
+            childCount[i] = node.children.size();
+            order.addAll(node.children.values());
+            topStart[i] = top.size();
+            top.addAll(node.top);
+        }
+        topStart[nodeCount] = top.size();
+        return new IngredientTrie(ids, names, popularity, labels, firstChild, childCount,
+                topStart, top.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /** До {@code limit} самых популярных ингредиентов, имена которых начинаются с префикса. */
+    List<IngredientAutocomplete.Suggestion> complete(String normalizedPrefix, int limit) {
+        int node = 0;
+        for (int i = 0; i < normalizedPrefix.length(); i++) {
+            int from = firstChild[node];
+            int found = Arrays.binarySearch(labels, from, from + childCount[node],
+                    normalizedPrefix.charAt(i));
+            if (found < 0) {
+                return List.of();
+            }
+            node = found;
+        }
+        int end = Math.min(topStart[node + 1], topStart[node] + limit);
+        List<IngredientAutocomplete.Suggestion> suggestions = new ArrayList<>(end - topStart[node]);
+        for (int i = topStart[node]; i < end; i++) {
+            int entry = top[i];
+            suggestions.add(new IngredientAutocomplete.Suggestion(ids[entry], names[entry],
+                    popularity[entry]));
+        }
+        return suggestions;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    private static final class Node {
+        private final char label;
+        private final TreeMap<Character, Node> children = new TreeMap<>();
+        private final List<Integer> top = new ArrayList<>();
+
+        Node(char label) {
+            this.label = label;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.recipes.index;
+
+import com.example.recipes.repository.ReviewRepository;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Рецепты с отзывами, упорядоченные по среднему рейтингу, затем по числу отзывов.
+ * Лучшие рецепты — начало упорядоченного множества, поэтому ответ «топ N» читает
+ * не больше N элементов (плюс пропущенные из-за малого числа отзывов) и не
+ * агрегирует отзывы в БД.
+ *
+ * <p>После фиксации изменения отзывов сумма и число оценок рецепта перечитываются
+ * из БД целиком, а не меняются приращениями: приращение, пришедшее во время
+ * построения, было бы учтено дважды.
+ */
+@Component
+public class RatingIndex extends InMemoryIndex<RatingIndex.State> {
+
+    private final ReviewRepository reviewRepository;
+
+    public RatingIndex(ReviewRepository reviewRepository,
+                       @Value("${recipes.index.ratings.enabled:true}") boolean enabled) {
+        super(enabled, new State());
+        this.reviewRepository = reviewRepository;
+    }
+
+    // Один агрегирующий запрос при старте не зависит от того, пересчитаны ли уже
+    // агрегаты в таблице рецептов
+    @Override
+    State build() {
+        State built = new State();
+        for (Object[] row : reviewRepository.findRatingTotals()) {
+            built.set(row);
+        }
+        return built;
+    }
+
+    /**
+     * До {@code limit} рецептов не менее чем с {@code minReviews} отзывами, лучшие
+     * первыми, или {@code null}, если индекс не готов.
+     */
+    public List<Rating> findTopRated(int limit, int minReviews) {
+        return read(current -> current.top(limit, minReviews));
+    }
+
+    /** Отзывы рецепта изменились: его рейтинг перечитывается из БД после фиксации. */
+    public void refreshRating(long recipeId) {
+        refresh(() -> {
+            List<Object[]> totals = reviewRepository.findRatingTotals(recipeId);
+            return totals.isEmpty()
+                    ? current -> current.remove(recipeId)
+                    : current -> current.set(totals.get(0));
+        });
+    }
+
+    public void removeRecipe(long recipeId) {
+        change(current -> current.remove(recipeId));
+    }
+
+    /** Рейтинг рецепта: сумма и число оценок. */
+    public static final class Rating {
+        /** По убыванию среднего, затем числа отзывов; при равенстве — по возрастанию ID. */
+        public static final Comparator<Rating> BEST_FIRST = Comparator
+                .comparingDouble(Rating::getAverage).reversed()
+                .thenComparing(Comparator.comparingInt(Rating::getReviewCount).reversed())
+                .thenComparingLong(Rating::getRecipeId);
+
+        private final long recipeId;
+        private final long ratingSum;
+        private final int reviewCount;
+
+        public Rating(long recipeId, long ratingSum, int reviewCount) {
+            this.recipeId = recipeId;
+            this.ratingSum = ratingSum;
+            this.reviewCount = reviewCount;
+        }
+
+        public long getRecipeId() {
+            return recipeId;
+        }
+
+        public long getRatingSum() {
+            return ratingSum;
+        }
+
+        public int getReviewCount() {
+            return reviewCount;
+        }
+
+        public double getAverage() {
+            return (double) ratingSum / reviewCount;
+        }
+    }
+
+    static final class State {
+        private final Map<Long, Rating> ratings = new HashMap<>();
+        // Элементы неизменяемы: при смене рейтинга старый удаляется и вставляется новый
+        private final NavigableSet<Rating> ranking =
+                new ConcurrentSkipListSet<>(Rating.BEST_FIRST);
+
+        // Строка запроса: (ID рецепта, сумма оценок, число отзывов)
+        void set(Object[] totals) {
+            long recipeId = ((Number) totals[0]).longValue();
+            remove(recipeId);
+            int reviewCount = ((Number) totals[2]).intValue();
+            if (reviewCount > 0) {
+                Rating rating = new Rating(recipeId, totals[1] == null ? 0
+                        : ((Number) totals[1]).longValue(), reviewCount);
+                ratings.put(recipeId, rating);
+                ranking.add(rating);
+            }
+        }
+
+        void remove(long recipeId) {
+            Rating previous = ratings.remove(recipeId);
+            if (previous != null) {
+                ranking.remove(previous);
+            }
+        }
+
+        List<Rating> top(int limit, int minReviews) {
+            List<Rating> top = new ArrayList<>(Math.min(limit, ratings.size()));
+            for (Rating rating : ranking) {
+                if (top.size() == limit) {
+                    break;
+                }
+                if (rating.getReviewCount() >= minReviews) {
+                    top.add(rating);
+                }
+            }
+            return top;
+        }
+    }
+}
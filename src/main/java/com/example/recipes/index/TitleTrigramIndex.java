@@ -0,0 +1,181 @@
+package com.example.recipes.index;
+
+import com.example.recipes.repository.RecipeRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Триграммный индекс названий рецептов для поиска по подстроке. Каждой тройке
+ * подряд идущих символов названия (в нижнем регистре) соответствует
+ * {@link RecipeIdBitmap} рецептов, в названии которых она встречается.
+ *
+ * <p>Подстрока длиной от трёх символов содержит все свои триграммы, поэтому
+ * кандидаты — пересечение их списков; затем кандидаты проверяются по самому
+ * названию, так как триграммы могут стоять в нём не подряд. Это заменяет
+ * {@code LIKE '%...%'}, который в БД всегда читает таблицу целиком.
+ */
+@Component
+public class TitleTrigramIndex extends InMemoryIndex<TitleTrigramIndex.State> {
+    private static final Logger logger = LoggerFactory.getLogger(TitleTrigramIndex.class);
+
+    static final int GRAM = 3;
+
+    private final RecipeRepository recipeRepository;
+    private final int batchSize;
+
+    public TitleTrigramIndex(RecipeRepository recipeRepository,
+                             @Value("${recipes.index.titles.enabled:true}") boolean enabled,
+                             @Value("${recipes.index.titles.batch-size:10000}") int batchSize) {
+        super(enabled, new State());
+        this.recipeRepository = recipeRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    State build() {
+        State built = new State();
+        long maxId = recipeRepository.findMaxRecipeId();
+        for (long from = 0; from < maxId; from += batchSize) {
+            for (Object[] row : recipeRepository.findRecipeTitles(from, from + batchSize)) {
+                built.put(((Number) row[0]).longValue(), (String) row[1]);
+            }
+        }
+        return built;
+    }
+
+    @Override
+    boolean isUsable(State current) {
+        return !current.overflow;
+    }
+
+    /**
+     * ID рецептов, в названии которых (без учёта регистра) есть {@code text},
+     * по возрастанию, или {@code null}, если индекс не готов и нужен запрос к БД.
+     */
+    public long[] findRecipesContaining(String text) {
+        String needle = normalize(text);
+        return read(current -> current.find(needle));
+    }
+
+    public void indexRecipe(long recipeId, String title) {
+        change(current -> current.put(recipeId, title));
+    }
+
+    public void removeRecipe(long recipeId) {
+        change(current -> current.remove(recipeId));
+    }
+
+    static String normalize(String title) {
+        return title.toLowerCase(Locale.ROOT);
+    }
+
+    // Различные триграммы строки; символ Java занимает 16 бит, тройка — 48 бит long
+    static Set<Long> trigramsOf(String normalized) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= normalized.length(); i++) {
+            trigrams.add(((long) normalized.charAt(i) << 32)
+                    | ((long) normalized.charAt(i + 1) << 16)
+                    | normalized.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    static final class State {
+        private final Map<Long, RecipeIdBitmap> recipesByTrigram = new HashMap<>();
+        // Названия нужны для проверки кандидатов и для удаления старых триграмм
+        private final Map<Long, String> titles = new HashMap<>();
+        private boolean overflow;
+
+        void put(long recipeId, String title) {
+            if (recipeId < 0 || recipeId > RecipeIdBitmap.MAX_ID) {
+                if (!overflow) {
+                    logger.warn("Recipe id {} does not fit the title index, "
+                            + "searches fall back to the database", recipeId);
+                }
+                overflow = true;
+                return;
+            }
+            String normalized = title == null ? "" : normalize(title);
+            String previous = titles.put(recipeId, normalized);
+            if (normalized.equals(previous)) {
+                return;
+            }
+            if (previous != null) {
+                unlink(recipeId, previous);
+            }
+            for (Long trigram : trigramsOf(normalized)) {
+                recipesByTrigram.computeIfAbsent(trigram, key -> new RecipeIdBitmap())
+                        .add(recipeId);
+            }
+        }
+
+        void remove(long recipeId) {
+            String previous = titles.remove(recipeId);
+            if (previous != null) {
+                unlink(recipeId, previous);
+            }
+        }
+
+        long[] find(String needle) {
+            if (needle.length() < GRAM) {
+                return scan(needle);
+            }
+            Set<Long> trigrams = trigramsOf(needle);
+            List<RecipeIdBitmap> postings = new ArrayList<>(trigrams.size());
+            for (Long trigram : trigrams) {
+                RecipeIdBitmap recipes = recipesByTrigram.get(trigram);
+                if (recipes == null) {
+                    return new long[0];
+                }
+                postings.add(recipes);
+            }
+            long[] candidates = RecipeIdBitmap.and(postings).toArray();
+            if (needle.length() == GRAM) {
+                return candidates; // Подстрока длины триграммы совпадает с ней самой
+            }
+            int found = 0;
+            for (long candidate : candidates) {
+                if (titles.get(candidate).contains(needle)) {
+                    candidates[found++] = candidate;
+                }
+            }
+            return Arrays.copyOf(candidates, found);
+        }
+
+        // Одна-две буквы не образуют триграмму: проверяем названия напрямую
+        private long[] scan(String needle) {
+            long[] found = new long[titles.size()];
+            int count = 0;
+            for (Map.Entry<Long, String> entry : titles.entrySet()) {
+                if (entry.getValue().contains(needle)) {
+                    found[count++] = entry.getKey();
+                }
+            }
+            found = Arrays.copyOf(found, count);
+            Arrays.sort(found);
+            return found;
+        }
+
+        private void unlink(long recipeId, String title) {
+            for (Long trigram : trigramsOf(title)) {
+                RecipeIdBitmap recipes = recipesByTrigram.get(trigram);
+                if (recipes != null) {
+                    recipes.remove(recipeId);
+                    if (recipes.isEmpty()) {
+                        recipesByTrigram.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+}
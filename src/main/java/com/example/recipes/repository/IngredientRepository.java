@@ -1,8 +1,13 @@
 package com.example.recipes.repository;
 
 import com.example.recipes.entity.Ingredient;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -10,4 +15,17 @@ public interface IngredientRepository extends JpaRepository<Ingredient, Long> {
 
     Optional<Ingredient> findByName(String name);
 
+    // Страница по первичному ключу: следующие size ингредиентов после afterId
+    List<Ingredient> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    // Для автодополнения: (ID, имя, в скольких рецептах используется)
+    @Query("SELECT i.id, i.name, COUNT(r) FROM Ingredient i LEFT JOIN i.recipes r "
+            + "GROUP BY i.id, i.name")
+    List<Object[]> findIngredientPopularity();
+
+    // То же для указанных ингредиентов; удалённых в результате нет
+    @Query("SELECT i.id, i.name, COUNT(r) FROM Ingredient i LEFT JOIN i.recipes r "
+            + "WHERE i.id IN :ids GROUP BY i.id, i.name")
+    List<Object[]> findIngredientPopularity(@Param("ids") Collection<Long> ids);
+
 }
@@ -1,28 +1,123 @@
 package com.example.recipes.repository;
 
 import com.example.recipes.entity.Recipe;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 @Repository
 public interface RecipeRepository extends JpaRepository<Recipe, Long> {
 
+    int EXPORT_FETCH_SIZE = 500;
+
+    // Списки рецептов отдаются с ингредиентами: их загружает тот же запрос (JOIN),
+    // а не отдельный запрос на каждый рецепт при преобразовании в DTO
+    @EntityGraph(attributePaths = "ingredients")
     List<Recipe> findByTitleContainingIgnoreCase(String title);
 
+    // С GROUP BY ингредиенты нельзя загрузить тем же запросом: они догружаются
+    // пакетами (@BatchSize у Recipe.ingredients)
     @Query("SELECT r FROM Recipe r JOIN r.ingredients i WHERE "
             + "LOWER(i.name) IN :ingredientNames GROUP BY r HAVING COUNT(i) = :ingredientCount")
     List<Recipe> findRecipesByIngredientNames(
             @Param("ingredientNames") List<String> ingredientNames,
             @Param("ingredientCount") long ingredientCount);
 
+    // Поиск по кладовой, пока индекс ингредиентов не построен: (ID рецепта, число
+    // недостающих ингредиентов) для рецептов, где из кладовой есть хотя бы один
+    @Query("SELECT r.id, COUNT(i) - SUM(CASE WHEN LOWER(i.name) IN :ingredientNames "
+            + "THEN 1 ELSE 0 END) FROM Recipe r JOIN r.ingredients i GROUP BY r.id "
+            + "HAVING SUM(CASE WHEN LOWER(i.name) IN :ingredientNames THEN 1 ELSE 0 END) > 0 "
+            + "AND COUNT(i) - SUM(CASE WHEN LOWER(i.name) IN :ingredientNames "
+            + "THEN 1 ELSE 0 END) <= :maxMissing")
+    List<Object[]> findPantryMatches(@Param("ingredientNames") Collection<String> ingredientNames,
+                                     @Param("maxMissing") long maxMissing);
+
+    // Для индекса ингредиентов: пары (ID рецепта, ID ингредиента) в диапазоне ID рецептов
+    @Query("SELECT r.id, i.id FROM Recipe r JOIN r.ingredients i "
+            + "WHERE r.id > :fromId AND r.id <= :toId")
+    List<Object[]> findRecipeIngredientPairs(@Param("fromId") long fromId,
+                                             @Param("toId") long toId);
+
+    // Для индекса названий: пары (ID рецепта, название) в диапазоне ID
+    @Query("SELECT r.id, r.title FROM Recipe r WHERE r.id > :fromId AND r.id <= :toId")
+    List<Object[]> findRecipeTitles(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    // Для полнотекстового индекса: (ID рецепта, описание, инструкция) в диапазоне ID
+    @Query("SELECT r.id, r.description, r.instruction FROM Recipe r "
+            + "WHERE r.id > :fromId AND r.id <= :toId")
+    List<Object[]> findRecipeTexts(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("SELECT COALESCE(MAX(r.id), 0) FROM Recipe r")
+    long findMaxRecipeId();
+
+    @EntityGraph(attributePaths = "ingredients")
+    List<Recipe> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    // Рецепт для кэша по ID: ингредиенты и отзывы приходят тем же запросом,
+    // поэтому преобразование в DTO не требует открытой транзакции
+    @EntityGraph(attributePaths = {"ingredients", "reviews"})
+    Optional<Recipe> findWithIngredientsAndReviewsById(Long id);
+
+    // Страница по первичному ключу: ID следующих рецептов после afterId. Сами рецепты
+    // читаются потом по ID вместе с ингредиентами: с JOIN коллекции Hibernate применил
+    // бы LIMIT уже в памяти, прочитав всю таблицу
+    @Query("SELECT r.id FROM Recipe r WHERE r.id > :afterId ORDER BY r.id")
+    List<Long> findRecipeIdsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    // Для выгрузки каталога: однонаправленный курсор БД, драйвер читает по
+    // EXPORT_FETCH_SIZE строк, а сущности не отслеживаются на изменения
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Recipe r ORDER BY r.id")
+    Stream<Recipe> streamAllForExport();
+
+    // Диапазон по индексу idx_recipes_average_rating вместо GROUP BY по всем отзывам
+    @EntityGraph(attributePaths = "ingredients")
+    @Query("SELECT r FROM Recipe r WHERE r.averageRating >= :rating")
+    List<Recipe> findRecipesByAverageRating(@Param("rating") Double rating);
+
+    // Запасной путь для лучших по рейтингу, пока индекс рейтингов не построен
+    @Query("SELECT r.id FROM Recipe r WHERE r.ratingCount >= :minReviews "
+            + "ORDER BY r.averageRating DESC, r.ratingCount DESC, r.id")
+    List<Long> findTopRatedRecipeIds(@Param("minReviews") int minReviews, Pageable pageable);
+
+    // Одна строка UPDATE: правые части считаются по старым значениям строки, а
+    // блокировка строки не даёт параллельным отзывам потерять изменения друг друга
+    @Modifying
+    @Query("UPDATE Recipe r SET r.ratingSum = r.ratingSum + :sumDelta, "
+            + "r.ratingCount = r.ratingCount + :countDelta, "
+            + "r.averageRating = CASE WHEN r.ratingCount + :countDelta > 0 "
+            + "THEN (r.ratingSum + :sumDelta) * 1.0 / (r.ratingCount + :countDelta) "
+            + "ELSE NULL END WHERE r.id = :recipeId")
+    int adjustRating(@Param("recipeId") long recipeId, @Param("sumDelta") long sumDelta,
+                     @Param("countDelta") int countDelta);
 
-    @Query(value = "SELECT r.* FROM recipes r "
-            + "JOIN reviews rev ON r.id = rev.recipe_id "
-            + "GROUP BY r.id "
-            + "HAVING AVG(rev.rating) >= :rating",
-        nativeQuery = true)
-List<Recipe> findRecipesByAverageRating(@Param("rating") Double rating);
+    // Пересчёт агрегатов по таблице отзывов: для данных, появившихся до этих колонок.
+    // Переписываются только строки, где сумма или число оценок разошлись с отзывами
+    @Modifying
+    @Query("UPDATE Recipe r SET "
+            + "r.ratingSum = COALESCE((SELECT SUM(rev.rating) FROM Review rev "
+            + "WHERE rev.recipe = r), 0), "
+            + "r.ratingCount = (SELECT COUNT(rev) FROM Review rev WHERE rev.recipe = r), "
+            + "r.averageRating = (SELECT AVG(rev.rating) FROM Review rev WHERE rev.recipe = r) "
+            + "WHERE r.ratingSum <> COALESCE((SELECT SUM(rev.rating) FROM Review rev "
+            + "WHERE rev.recipe = r), 0) "
+            + "OR r.ratingCount <> (SELECT COUNT(rev) FROM Review rev WHERE rev.recipe = r)")
+    int recalculateRatings();
 }
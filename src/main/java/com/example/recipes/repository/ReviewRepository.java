@@ -1,9 +1,22 @@
 package com.example.recipes.repository;
 
 import com.example.recipes.entity.Review;
+import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
+
+    // Для индекса рейтингов: (ID рецепта, сумма оценок, число отзывов)
+    @Query("SELECT rev.recipe.id, SUM(rev.rating), COUNT(rev) FROM Review rev "
+            + "GROUP BY rev.recipe.id")
+    List<Object[]> findRatingTotals();
+
+    // То же для одного рецепта; пустой список — у рецепта нет отзывов
+    @Query("SELECT rev.recipe.id, COALESCE(SUM(rev.rating), 0), COUNT(rev) FROM Review rev "
+            + "WHERE rev.recipe.id = :recipeId GROUP BY rev.recipe.id")
+    List<Object[]> findRatingTotals(@Param("recipeId") long recipeId);
 }
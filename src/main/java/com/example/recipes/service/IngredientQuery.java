@@ -0,0 +1,137 @@
+package com.example.recipes.service;
+
+import com.example.recipes.config.CacheConfig;
+import com.example.recipes.dto.IngredientDto;
+import com.example.recipes.dto.RecipeDto;
+import com.example.recipes.index.IngredientIndex;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Поиск рецептов, содержащих все перечисленные ингредиенты, в каноническом виде:
+ * имена приведены к нижнему регистру, без пробелов по краям, без повторов и
+ * отсортированы. Поэтому {@code [Salt, egg]} и {@code [egg, salt]} дают один ключ кэша.
+ *
+ * <p>Результат для набора всегда вложен в результат для любого его подмножества,
+ * так что запрос {a, b, c} можно получить фильтрацией закэшированного ответа
+ * для {a, b}, не выполняя GROUP BY/HAVING в БД.
+ */
+final class IngredientQuery {
+
+    static final String NAMESPACE = CacheConfig.RECIPES_BY_INGREDIENTS_NAMESPACE;
+    private static final char SEPARATOR = ',';
+
+    private final List<String> names;
+
+    private IngredientQuery(Collection<String> names) {
+        this.names = List.copyOf(names);
+    }
+
+    static IngredientQuery of(Collection<String> ingredientNames) {
+        Set<String> canonical = new TreeSet<>();
+        for (String name : ingredientNames) {
+            if (name != null && !name.isBlank()) {
+                canonical.add(normalize(name));
+            }
+        }
+        return new IngredientQuery(canonical);
+    }
+
+    /** Набор из ключа кэша или {@code null}, если ключ построен не этим классом. */
+    static IngredientQuery fromCacheKey(String key) {
+        if (!key.startsWith(NAMESPACE)) {
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        for (String part : key.substring(NAMESPACE.length()).split(",", -1)) {
+            names.add(unescape(part));
+        }
+        return new IngredientQuery(names);
+    }
+
+    List<String> getNames() {
+        return names;
+    }
+
+    boolean isEmpty() {
+        return names.isEmpty();
+    }
+
+    String cacheKey() {
+        StringBuilder key = new StringBuilder(NAMESPACE);
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                key.append(SEPARATOR);
+            }
+            key.append(escape(names.get(i)));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Ключи непустых собственных подмножеств набора: сначала самые большие, так как
+     * их результаты меньше и фильтруются быстрее. Перебор ограничен {@code limit}
+     * ключами, чтобы длинный список ингредиентов не давал экспоненту.
+     */
+    List<String> subsetCacheKeys(int limit) {
+        List<String> keys = new ArrayList<>();
+        for (int size = names.size() - 1; size > 0 && keys.size() < limit; size--) {
+            collectSubsets(new ArrayList<>(size), 0, size, keys, limit);
+        }
+        return keys;
+    }
+
+    private void collectSubsets(List<String> chosen, int from, int size, List<String> keys,
+                                int limit) {
+        if (keys.size() >= limit) {
+            return;
+        }
+        if (chosen.size() == size) {
+            keys.add(new IngredientQuery(chosen).cacheKey());
+            return;
+        }
+        for (int i = from; i <= names.size() - (size - chosen.size()); i++) {
+            chosen.add(names.get(i));
+            collectSubsets(chosen, i + 1, size, keys, limit);
+            chosen.remove(chosen.size() - 1);
+        }
+    }
+
+    /** Содержит ли рецепт все ингредиенты набора (сравнение как в LOWER(i.name) IN ...). */
+    boolean matches(RecipeDto recipeDto) {
+        return matches(ingredientNamesOf(recipeDto));
+    }
+
+    boolean matches(Set<String> recipeIngredientNames) {
+        return recipeIngredientNames.containsAll(names);
+    }
+
+    static Set<String> ingredientNamesOf(RecipeDto recipeDto) {
+        Set<String> recipeNames = new HashSet<>();
+        if (recipeDto.getIngredients() != null) {
+            for (IngredientDto ingredientDto : recipeDto.getIngredients()) {
+                if (ingredientDto.getName() != null) {
+                    recipeNames.add(normalize(ingredientDto.getName()));
+                }
+            }
+        }
+        return recipeNames;
+    }
+
+    static String normalize(String name) {
+        return IngredientIndex.normalizeName(name);
+    }
+
+    // Запятая разделяет имена в ключе, поэтому в самих именах её экранируем
+    private static String escape(String name) {
+        return name.replace("%", "%25").replace(",", "%2C");
+    }
+
+    private static String unescape(String part) {
+        return part.replace("%2C", ",").replace("%25", "%");
+    }
+}
@@ -1,12 +1,18 @@
 package com.example.recipes.service;
 
+import com.example.recipes.config.CacheConfig;
+import com.example.recipes.dto.CursorPage;
 import com.example.recipes.dto.IngredientDto;
 import com.example.recipes.entity.Ingredient;
 import com.example.recipes.entity.Recipe;
 import com.example.recipes.exceptions.NotFoundException;
+import com.example.recipes.index.IngredientAutocomplete;
+import com.example.recipes.index.IngredientIndex;
+import com.example.recipes.exceptions.ServiceUnavailableException;
 import com.example.recipes.exceptions.ValidationException;
 import com.example.recipes.mapper.IngredientMapper;
 import com.example.recipes.repository.IngredientRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,18 +25,55 @@ public class IngredientService {
 
     private final IngredientRepository ingredientRepository;
     private final IngredientMapper ingredientMapper;
-
-    public IngredientService(IngredientRepository ingredientRepository) {
+    private final CacheConfig cacheService;
+    private final IngredientIndex ingredientIndex;
+    private final IngredientAutocomplete ingredientAutocomplete;
+
+    public IngredientService(IngredientRepository ingredientRepository,
+                             CacheConfig cacheService,
+                             IngredientIndex ingredientIndex,
+                             IngredientAutocomplete ingredientAutocomplete) {
         this.ingredientRepository = ingredientRepository;
         this.ingredientMapper = new IngredientMapper();
+        this.cacheService = cacheService;
+        this.ingredientIndex = ingredientIndex;
+        this.ingredientAutocomplete = ingredientAutocomplete;
     }
 
-    public List<IngredientDto> getAllIngredients() {
-        return ingredientRepository.findAll().stream()
+    /** Страница ингредиентов по возрастанию ID после позиции {@code cursor}. */
+    public CursorPage<IngredientDto> getAllIngredients(String cursor, int size) {
+        PageCursor.validatePageSize(size);
+        List<Ingredient> ingredients = ingredientRepository.findByIdGreaterThanOrderByIdAsc(
+                PageCursor.decode(cursor), PageRequest.of(0, size + 1));
+        return PageCursor.of(ingredients.stream()
                 .map(ingredientMapper::convertToDto)
-                .collect(Collectors.toList());
+                .toList(), size, IngredientDto::getId);
+    }
 
+    /** Подсказки по началу имени, самые используемые ингредиенты первыми. */
+    public List<IngredientDto> suggestIngredients(String prefix, int limit) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            throw new ValidationException("Prefix cannot be null or empty.");
+        }
+        int maxSuggestions = ingredientAutocomplete.getMaxSuggestions();
+        if (limit <= 0 || limit > maxSuggestions) {
+            throw new ValidationException("Limit must be between 1 and " + maxSuggestions + ".");
+        }
+        List<IngredientAutocomplete.Suggestion> suggestions =
+                ingredientAutocomplete.suggest(prefix, limit);
+        if (suggestions == null) {
+            throw new ServiceUnavailableException("Ingredient autocomplete is not ready yet.");
+        }
+        return suggestions.stream()
+                .map(suggestion -> {
+                    IngredientDto ingredientDto = new IngredientDto();
+                    ingredientDto.setId(suggestion.getId());
+                    ingredientDto.setName(suggestion.getName());
+                    return ingredientDto;
+                })
+                .collect(Collectors.toList());
     }
+
         //было tr
     public void deleteIngredient(Long ingredientId) {
         if (ingredientId == null || ingredientId <= 0) {
@@ -42,6 +85,12 @@ public class IngredientService {
             recipe.getIngredients().remove(ingredient);
         }
         ingredientRepository.delete(ingredient);
+        ingredientIndex.removeIngredient(ingredientId);
+        ingredientAutocomplete.removeIngredient(ingredientId);
+
+        // Сбрасываем только закэшированные рецепты, в которых был этот ингредиент
+        cacheService.evictDependents(CacheConfig.ingredientDependency(ingredientId));
+        RecipeService.afterCommit(() -> cacheService.publishIngredientChange(ingredientId));
     }
 
     @Transactional
@@ -64,6 +113,14 @@ public class IngredientService {
         Ingredient ingredient = new Ingredient();
         ingredient.setName(trimmedName); // Использование очищенного имени
         ingredient = ingredientRepository.save(ingredient);
+        ingredientIndex.putIngredient(ingredient.getId(), trimmedName);
+        ingredientAutocomplete.putIngredient(ingredient.getId(), trimmedName);
+        Set<String> names = Set.of(IngredientQuery.normalize(trimmedName));
+        long ingredientId = ingredient.getId();
+        RecipeService.afterCommit(() -> {
+            evictQueriesNaming(names);
+            cacheService.publishIngredientChange(ingredientId);
+        });
 
         // Установка ID и возврат DTO
         ingredientDto.setId(ingredient.getId());
@@ -95,9 +152,28 @@ public class IngredientService {
                     + trimmedName + "' already exists.");
         }
 
+        // Переименование может изменить только регистр, тогда имена совпадут
+        Set<String> names = Set.copyOf(List.of(IngredientQuery.normalize(ingredient.getName()),
+                IngredientQuery.normalize(trimmedName)));
         ingredient.setName(trimmedName); // Использование очищенного имени
         ingredientRepository.save(ingredient);
-
+        ingredientIndex.putIngredient(id, trimmedName);
+        ingredientAutocomplete.putIngredient(id, trimmedName);
+
+        RecipeService.afterCommit(() -> {
+            cacheService.evictDependents(CacheConfig.ingredientDependency(id));
+            evictQueriesNaming(names);
+            cacheService.publishIngredientChange(id);
+        });
         return ingredientMapper.convertToDto(ingredient);
     }
+
+    // Поиски по ингредиентам с этими именами: зависимость от ID не покрывает закэшированные
+    // пустые результаты, в которые ингредиент с новым именем теперь может попасть
+    private void evictQueriesNaming(Set<String> names) {
+        cacheService.evictIf(IngredientQuery.NAMESPACE, key -> {
+            IngredientQuery query = IngredientQuery.fromCacheKey(key);
+            return query == null || query.getNames().stream().anyMatch(names::contains);
+        });
+    }
 }
\ No newline at end of file
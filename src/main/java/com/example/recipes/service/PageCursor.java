@@ -0,0 +1,71 @@
+package com.example.recipes.service;
+
+import com.example.recipes.dto.CursorPage;
+import com.example.recipes.exceptions.ValidationException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Курсор постраничной выдачи по ID (keyset pagination): следующая страница — это
+ * {@code WHERE id > :lastId ORDER BY id LIMIT :size}, поэтому БД идёт по первичному
+ * ключу с нужного места и не пропускает {@code OFFSET} строк. Клиенту курсор
+ * отдаётся непрозрачной строкой, чтобы формат можно было менять.
+ */
+public final class PageCursor {
+
+    /** Заголовок ответа с курсором следующей страницы. */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String PREFIX = "id:";
+
+    private PageCursor() {
+    }
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** ID, после которого начинается страница; пустой курсор — первая страница. */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor.trim()),
+                    StandardCharsets.UTF_8);
+            if (decoded.startsWith(PREFIX)) {
+                long lastId = Long.parseLong(decoded.substring(PREFIX.length()));
+                if (lastId >= 0) {
+                    return lastId;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Ниже: курсор подделан или обрезан
+        }
+        throw new ValidationException("Invalid page cursor.");
+    }
+
+    public static void validatePageSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new ValidationException("Page size must be between 1 and "
+                    + MAX_PAGE_SIZE + ".");
+        }
+    }
+
+    /**
+     * Страница из строк, прочитанных с запасом в одну: лишняя строка лишь показывает,
+     * что дальше есть данные, и в страницу не попадает.
+     */
+    public static <T> CursorPage<T> of(List<T> rowsPlusOne, int size, ToLongFunction<T> idOf) {
+        if (rowsPlusOne.size() <= size) {
+            return new CursorPage<>(rowsPlusOne, null);
+        }
+        List<T> items = rowsPlusOne.subList(0, size);
+        return new CursorPage<>(items, encode(idOf.applyAsLong(items.get(size - 1))));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.recipes.service;
+
+import com.example.recipes.entity.Recipe;
+import com.example.recipes.mapper.RecipeMapper;
+import com.example.recipes.repository.RecipeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Выгрузка всего каталога в NDJSON: по одному JSON-объекту рецепта на строку.
+ * Рецепты читаются однонаправленным курсором БД и пишутся в поток порциями, а
+ * записанные сущности отпускаются из контекста персистентности, поэтому память не
+ * зависит от размера каталога.
+ */
+@Service
+public class RecipeExportService {
+    private static final Logger logger = LoggerFactory.getLogger(RecipeExportService.class);
+
+    private static final byte NEWLINE = '\n';
+
+    private final RecipeRepository recipeRepository;
+    private final RecipeMapper recipeMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    public RecipeExportService(RecipeRepository recipeRepository,
+                               RecipeMapper recipeMapper,
+                               ObjectMapper objectMapper,
+                               EntityManager entityManager) {
+        this.recipeRepository = recipeRepository;
+        this.recipeMapper = recipeMapper;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Пишет все рецепты по возрастанию ID в {@code out} и возвращает их число. Поток
+     * не закрывается. Курсор открыт только внутри транзакции, поэтому метод нужно
+     * вызывать через прокси Spring.
+     */
+    @Transactional(readOnly = true)
+    public long exportRecipes(OutputStream out) throws IOException {
+        long exported = 0;
+        List<Recipe> chunk = new ArrayList<>(RecipeRepository.EXPORT_FETCH_SIZE);
+        try (Stream<Recipe> recipes = recipeRepository.streamAllForExport()) {
+            Iterator<Recipe> iterator = recipes.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == RecipeRepository.EXPORT_FETCH_SIZE) {
+                    exported += writeChunk(chunk, out);
+                }
+            }
+            exported += writeChunk(chunk, out);
+        }
+        out.flush();
+        logger.info("Exported {} recipes", exported);
+        return exported;
+    }
+
+    // Рецепты пишутся порцией: к первому обращению к ингредиентам в контексте уже
+    // лежит вся порция, и ингредиенты загружаются пакетами (@BatchSize), а не по
+    // запросу на рецепт. После записи порция отпускается из контекста персистентности
+    private int writeChunk(List<Recipe> chunk, OutputStream out) throws IOException {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        for (Recipe recipe : chunk) {
+            out.write(objectMapper.writeValueAsBytes(recipeMapper.convertToDto(recipe)));
+            out.write(NEWLINE);
+        }
+        int written = chunk.size();
+        chunk.clear();
+        entityManager.clear();
+        return written;
+    }
+}
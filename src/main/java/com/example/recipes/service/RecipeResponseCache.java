@@ -0,0 +1,72 @@
+package com.example.recipes.service;
+
+import com.example.recipes.config.CacheConfig;
+import com.example.recipes.config.CachedResponse;
+import com.example.recipes.dto.CursorPage;
+import com.example.recipes.dto.RecipeDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.stereotype.Service;
+
+/**
+ * Кэш готовых JSON-ответов для чтения рецептов: неизменившиеся DTO не
+ * сериализуются Jackson заново на каждый запрос, а ETag позволяет отвечать 304.
+ * Страницы списка лежат в том же кэше, что и DTO, и сбрасываются по тем же
+ * зависимостям.
+ *
+ * <p>Рецепт по ID читается из региона с ключами {@code long}, а готовый ответ
+ * хранится в том же слоте региона, что и DTO: он вытесняется и сбрасывается вместе
+ * с рецептом, а записанный заново или перезагруженный рецепт сериализуется один раз.
+ */
+@Service
+public class RecipeResponseCache {
+
+    // Префикс ключей страниц полного списка и общая зависимость всех этих страниц
+    public static final String ALL_RECIPES_KEY = CacheConfig.RESPONSE_NAMESPACE + "all_recipes";
+
+    private final RecipeService recipeService;
+    private final CacheConfig cacheService;
+    private final ObjectMapper objectMapper;
+
+    public RecipeResponseCache(RecipeService recipeService,
+                               CacheConfig cacheService,
+                               ObjectMapper objectMapper) {
+        this.recipeService = recipeService;
+        this.cacheService = cacheService;
+        this.objectMapper = objectMapper;
+    }
+
+    public CachedResponse getRecipeById(Long id) {
+        RecipeDto recipeDto = recipeService.getRecipeById(id);
+        return cacheService.getRecipeResponse(id, recipeDto, recipe ->
+                render(recipe, RecipeService.dependenciesOf(List.of(recipe))));
+    }
+
+    /** Страница полного списка рецептов; курсор следующей страницы — в самом ответе. */
+    public CachedResponse getAllRecipes(String cursor, int size) {
+        // Ключ строится по разобранному курсору: мусор в курсоре не засоряет кэш
+        String key = ALL_RECIPES_KEY + "_" + PageCursor.decode(cursor) + "_" + size;
+        return cacheService.getOrLoad(key, () -> {
+            CursorPage<RecipeDto> page = recipeService.getAllRecipes(cursor, size);
+            Set<String> dependencies = new HashSet<>(RecipeService.dependenciesOf(page.getItems()));
+            dependencies.add(ALL_RECIPES_KEY);
+            return render(page.getItems(), dependencies, page.getNextCursor());
+        }, CachedResponse::getDependencies);
+    }
+
+    private CachedResponse render(Object body, Set<String> dependencies) {
+        return render(body, dependencies, null);
+    }
+
+    private CachedResponse render(Object body, Set<String> dependencies, String nextCursor) {
+        try {
+            return new CachedResponse(objectMapper.writeValueAsBytes(body), dependencies,
+                    nextCursor);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response", e);
+        }
+    }
+}
@@ -1,24 +1,41 @@
 package com.example.recipes.service;
 
 import com.example.recipes.config.CacheConfig;
+import com.example.recipes.dto.CursorPage;
 import com.example.recipes.dto.IngredientDto;
+import com.example.recipes.dto.PantryRecipeDto;
 import com.example.recipes.dto.RecipeDto;
 import com.example.recipes.dto.RecipeFullDto;
 import com.example.recipes.entity.Ingredient;
 import com.example.recipes.entity.Recipe;
 import com.example.recipes.exceptions.NotFoundException;
+import com.example.recipes.index.FullTextIndex;
+import com.example.recipes.index.IngredientAutocomplete;
+import com.example.recipes.index.IngredientIndex;
+import com.example.recipes.index.RatingIndex;
+import com.example.recipes.index.TitleTrigramIndex;
+import com.example.recipes.exceptions.ServiceUnavailableException;
 import com.example.recipes.exceptions.ValidationException;
 import com.example.recipes.mapper.RecipeMapper;
 import com.example.recipes.repository.IngredientRepository;
 import com.example.recipes.repository.RecipeRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.LongFunction;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class RecipeService {
@@ -27,42 +44,67 @@ public class RecipeService {
     private final IngredientRepository ingredientRepository;
     private final RecipeMapper recipeMapper;
     private final CacheConfig cacheService;
+    private final IngredientIndex ingredientIndex;
+    private final TitleTrigramIndex titleIndex;
+    private final FullTextIndex textIndex;
+    private final IngredientAutocomplete ingredientAutocomplete;
+    private final RatingIndex ratingIndex;
+    // Загрузчик создаётся один раз, чтобы чтение рецепта по ID не выделяло лямбду
+    private final LongFunction<RecipeDto> recipeLoader = this::loadRecipe;
     private static final Logger logger = LoggerFactory.getLogger(RecipeService.class);
+    // Сколько подмножеств ингредиентов проверять в кэше перед запросом к БД
+    private static final int MAX_SUBSET_PROBES = 32;
+    private static final int ID_FETCH_BATCH = 1000;
+    private static final int MAX_PANTRY_MISSING = 20;
+    private static final int MAX_PAGE_SIZE = 100;
 
     public RecipeService(RecipeRepository recipeRepository,
                          IngredientRepository ingredientRepository,
                          RecipeMapper recipeMapper,
-                         CacheConfig cacheService) {
+                         CacheConfig cacheService,
+                         IngredientIndex ingredientIndex,
+                         TitleTrigramIndex titleIndex,
+                         FullTextIndex textIndex,
+                         IngredientAutocomplete ingredientAutocomplete,
+                         RatingIndex ratingIndex) {
         this.recipeRepository = recipeRepository;
         this.ingredientRepository = ingredientRepository;
         this.recipeMapper = recipeMapper;
         this.cacheService = cacheService;
+        this.ingredientIndex = ingredientIndex;
+        this.titleIndex = titleIndex;
+        this.textIndex = textIndex;
+        this.ingredientAutocomplete = ingredientAutocomplete;
+        this.ratingIndex = ratingIndex;
     }
 
-    public List<RecipeDto> getAllRecipes() {
-        List<Recipe> recipes = recipeRepository.findAll();
-        return recipes.stream()
-                .map(recipeMapper::convertToDto)
-                .toList();
+    /** Страница рецептов по возрастанию ID после позиции {@code cursor}. */
+    public CursorPage<RecipeDto> getAllRecipes(String cursor, int size) {
+        PageCursor.validatePageSize(size);
+        // Два запроса на страницу: ID по первичному ключу, затем рецепты с ингредиентами
+        CursorPage<Long> ids = PageCursor.of(recipeRepository.findRecipeIdsAfter(
+                PageCursor.decode(cursor), PageRequest.of(0, size + 1)), size, Long::longValue);
+        List<RecipeDto> recipes = ids.getItems().isEmpty() ? List.of()
+                : recipeRepository.findByIdInOrderByIdAsc(ids.getItems()).stream()
+                        .map(recipeMapper::convertToDto)
+                        .toList();
+        return new CursorPage<>(recipes, ids.getNextCursor());
     }
 
-    @Transactional
+    // Без транзакции: попадание в кэш не открывает соединение с БД, а загрузчик
+    // читает рецепт одним запросом вместе со всем, что нужно для DTO
     public RecipeDto getRecipeById(Long id) {
         if (id <= 0) {
             throw new ValidationException("Recipe ID must be greater than 0.");
         }
 
-        String cacheKey = "recipe_" + id;
-        if (cacheService.containsKey(cacheKey)) {
-            return (RecipeDto) cacheService.get(cacheKey);
-        }
+        return cacheService.getRecipe(id, recipeLoader);
+    }
 
-        Recipe recipe = recipeRepository.findById(id)
+    private RecipeDto loadRecipe(long id) {
+        Recipe recipe = recipeRepository.findWithIngredientsAndReviewsById(id)
                 .orElseThrow(() -> new NotFoundException("Recipe not found with ID " + id));
-
-        RecipeDto recipeDto = recipeMapper.convertToDto(recipe);
-        cacheService.put(cacheKey, recipeDto);
-        return recipeDto;
+        return recipeMapper.convertToDto(recipe);
     }
 
     public List<RecipeDto> findRecipesByTitle(String title) {
@@ -70,22 +112,27 @@ public class RecipeService {
             throw new ValidationException("Recipe title cannot be null or empty.");
         }
         String cacheKey = "recipes_by_title_" + title.toLowerCase();
-        if (cacheService.containsKey(cacheKey)) {
-            return (List<RecipeDto>) cacheService.get(cacheKey);
-        }
-
-        List<RecipeDto> recipeDtos = recipeRepository.findByTitleContainingIgnoreCase(title)
-                .stream()
-                .map(recipeMapper::convertToDto)
-                .toList();
+        // Пустой результат тоже кэшируется, чтобы повторный поиск не шёл в БД
+        List<RecipeDto> recipeDtos = cacheService.getOrLoad(cacheKey,
+                () -> loadRecipesByTitle(title), RecipeService::dependenciesOf);
 
         if (recipeDtos.isEmpty()) {
-            throw new NotFoundException("No recipes found with title containing: " + title);
+            throw new NotFoundException("No recipes found with title containing: " + title,
+                    false);
         }
-
-        cacheService.put(cacheKey, recipeDtos);
         return recipeDtos;
     }
+    private List<RecipeDto> loadRecipesByTitle(String title) {
+        long[] recipeIds = titleIndex.findRecipesContaining(title);
+        if (recipeIds != null) {
+            return findRecipesByIds(recipeIds);
+        }
+        return recipeRepository.findByTitleContainingIgnoreCase(title)
+                .stream()
+                .map(recipeMapper::convertToDto)
+                .toList();
+    }
+
     //убрать фул
     /*
     @Transactional
@@ -169,10 +216,17 @@ public class RecipeService {
                 .collect(Collectors.toSet());
 
         recipe.setIngredients(ingredients);
-        recipeRepository.save(recipe);
-
-        clearRecipeCache();
-        return recipeMapper.convertToDto(recipe);
+        // Индексируем сохранённую сущность: ID назначает репозиторий
+        Recipe savedRecipe = recipeRepository.save(recipe);
+        ingredientIndex.indexRecipe(savedRecipe);
+        titleIndex.indexRecipe(savedRecipe.getId(), savedRecipe.getTitle());
+        textIndex.indexRecipe(savedRecipe.getId(), savedRecipe.getDescription(),
+                savedRecipe.getInstruction());
+        ingredientAutocomplete.changeUses(Set.of(), ingredients);
+
+        RecipeDto createdRecipe = recipeMapper.convertToDto(savedRecipe);
+        writeThrough(savedRecipe, createdRecipe);
+        return createdRecipe;
     }
     /*
     public RecipeDto updateRecipe(Long recipeId, RecipeDto recipeDto) {
@@ -239,6 +293,10 @@ public class RecipeService {
         recipe.setDescription(recipeDto.getDescription());
         recipe.setInstruction(recipeDto.getInstruction());
 
+        // Прежний набор нужен, чтобы пересчитать популярность ингредиентов
+        Set<Ingredient> previousIngredients = recipe.getIngredients() == null
+                ? Set.of() : new HashSet<>(recipe.getIngredients());
+
         // Обрабатываем ингредиенты
         if (recipeDto.getIngredients() != null) {
             // Получаем текущие ингредиенты рецепта
@@ -266,12 +324,19 @@ public class RecipeService {
 
         // Сохраняем изменения
         Recipe updatedRecipe = recipeRepository.save(recipe);
-
-        // Очищаем кэш
-        cacheService.evict("recipe_" + recipeId);
-        clearRecipeCache();
-
-        return recipeMapper.convertToDto(updatedRecipe);
+        ingredientIndex.indexRecipe(updatedRecipe);
+        titleIndex.indexRecipe(recipeId, updatedRecipe.getTitle());
+        textIndex.indexRecipe(recipeId, updatedRecipe.getDescription(),
+                updatedRecipe.getInstruction());
+        ingredientAutocomplete.changeUses(previousIngredients, updatedRecipe.getIngredients());
+
+        // Списки с этим рецептом и поиски, в которые он теперь попадает, сбрасываем,
+        // а сам рецепт сразу кладём в кэш в новом виде
+        RecipeDto updatedRecipeDto = recipeMapper.convertToDto(updatedRecipe);
+        afterCommit(() -> cacheService.evictDependents(CacheConfig.recipeDependency(recipeId)));
+        writeThrough(updatedRecipe, updatedRecipeDto);
+
+        return updatedRecipeDto;
     }
 
     @Transactional
@@ -282,44 +347,236 @@ public class RecipeService {
         Recipe recipe = recipeRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Recipe not found with ID " + id));
 
+        ingredientAutocomplete.changeUses(new HashSet<>(recipe.getIngredients()), Set.of());
         recipe.getIngredients().clear();
         recipeRepository.save(recipe);
 
         recipeRepository.delete(recipe);
-
-        cacheService.evict("recipe_" + id);
-        clearRecipeCache();
+        ingredientIndex.removeRecipe(id);
+        titleIndex.removeRecipe(id);
+        textIndex.removeRecipe(id);
+        ratingIndex.removeRecipe(id);
+
+        afterCommit(() -> {
+            cacheService.evict("recipe_" + id);
+            cacheService.evictDependents(CacheConfig.recipeDependency(id));
+            cacheService.evictDependents(RecipeResponseCache.ALL_RECIPES_KEY);
+            cacheService.publishRecipeChange(id);
+        });
     }
 
     public List<RecipeDto> findRecipesByIngredientNames(List<String> ingredientNames) {
         if (ingredientNames == null || ingredientNames.isEmpty()) {
             throw new ValidationException("Ingredient list cannot be null or empty.");
         }
-
-        String cacheKey = "recipes_by_ingredients_" + ingredientNames.toString();
-        if (cacheService.containsKey(cacheKey)) {
-            return (List<RecipeDto>) cacheService.get(cacheKey);
+        IngredientQuery query = IngredientQuery.of(ingredientNames);
+        if (query.isEmpty()) {
+            throw new ValidationException("Ingredient names cannot be empty.");
         }
 
-        List<String> normalizedIngredientNames = ingredientNames.stream()
-                .map(String::toLowerCase)
-                .collect(Collectors.toList());
+        List<RecipeDto> recipeDtos = cacheService.getOrLoad(query.cacheKey(),
+                () -> loadRecipesByIngredients(query), RecipeService::dependenciesOf);
 
-        long ingredientCount = normalizedIngredientNames.size();
-        List<Recipe> recipes = recipeRepository
-                .findRecipesByIngredientNames(normalizedIngredientNames, ingredientCount);
+        if (recipeDtos.isEmpty()) {
+            throw new NotFoundException("No recipes found "
+                    + "with ingredients: " + ingredientNames, false);
+        }
+        return recipeDtos;
+    }
 
-        List<RecipeDto> recipeDtos = recipes.stream()
+    /**
+     * Исправляет опечатки в именах ингредиентов по словарю в памяти. Возвращает
+     * только исправленные имена: исходное имя -> известное имя ингредиента.
+     */
+    public Map<String, String> correctIngredientNames(List<String> ingredientNames) {
+        Map<String, String> corrections = new LinkedHashMap<>();
+        if (ingredientNames == null) {
+            return corrections;
+        }
+        for (String name : ingredientNames) {
+            if (name == null || name.isBlank()) {
+                continue;
+            }
+            String normalized = IngredientQuery.normalize(name);
+            String corrected = ingredientAutocomplete.correctName(normalized);
+            if (!corrected.equals(normalized)) {
+                corrections.put(name, corrected);
+            }
+        }
+        return corrections;
+    }
+
+    // Уточнение фильтра — самый частый сценарий: если в кэше есть результат для
+    // подмножества ингредиентов, отбираем из него рецепты в памяти вместо запроса к БД
+    private List<RecipeDto> loadRecipesByIngredients(IngredientQuery query) {
+        for (String subsetKey : query.subsetCacheKeys(MAX_SUBSET_PROBES)) {
+            if (cacheService.getIfPresent(subsetKey) instanceof List<?> cached) {
+                logger.info("Answering {} from cached subset {}", query.cacheKey(), subsetKey);
+                List<RecipeDto> recipeDtos = new ArrayList<>();
+                for (Object element : cached) {
+                    RecipeDto recipeDto = (RecipeDto) element;
+                    if (query.matches(recipeDto)) {
+                        recipeDtos.add(recipeDto);
+                    }
+                }
+                return List.copyOf(recipeDtos);
+            }
+        }
+        List<String> names = query.getNames();
+        long[] recipeIds = ingredientIndex.findRecipesWithAll(names);
+        if (recipeIds != null) {
+            return findRecipesByIds(recipeIds);
+        }
+        return recipeRepository.findRecipesByIngredientNames(names, names.size())
+                .stream()
                 .map(recipeMapper::convertToDto)
                 .toList();
+    }
 
-        if (recipeDtos.isEmpty()) {
-            throw new NotFoundException("No recipes found "
-                    + "with ingredients: " + ingredientNames);
+    // Найденные индексом рецепты читаются запросом WHERE id IN (...) порциями,
+    // чтобы не упереться в ограничение драйвера на число параметров
+    private List<RecipeDto> findRecipesByIds(long[] recipeIds) {
+        List<RecipeDto> recipeDtos = new ArrayList<>(recipeIds.length);
+        for (int from = 0; from < recipeIds.length; from += ID_FETCH_BATCH) {
+            List<Long> batch = new ArrayList<>(Math.min(ID_FETCH_BATCH, recipeIds.length - from));
+            for (int i = from; i < Math.min(from + ID_FETCH_BATCH, recipeIds.length); i++) {
+                batch.add(recipeIds[i]);
+            }
+            recipeRepository.findByIdInOrderByIdAsc(batch)
+                    .forEach(recipe -> recipeDtos.add(recipeMapper.convertToDto(recipe)));
+        }
+        return List.copyOf(recipeDtos);
+    }
+
+    /**
+     * «Что приготовить»: рецепты, для которых в кладовой не хватает не больше
+     * {@code maxMissing} ингредиентов, по возрастанию числа недостающих.
+     */
+    public List<PantryRecipeDto> findRecipesByPantry(List<String> ingredientNames,
+                                                     int maxMissing, int page, int size) {
+        if (ingredientNames == null || ingredientNames.isEmpty()) {
+            throw new ValidationException("Ingredient list cannot be null or empty.");
+        }
+        if (maxMissing < 0 || maxMissing > MAX_PANTRY_MISSING) {
+            throw new ValidationException("Missing ingredient count must be between 0 and "
+                    + MAX_PANTRY_MISSING + ".");
+        }
+        if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new ValidationException("Page must be at least 0 and size between 1 and "
+                    + MAX_PAGE_SIZE + ".");
+        }
+        IngredientQuery pantry = IngredientQuery.of(ingredientNames);
+        if (pantry.isEmpty()) {
+            throw new ValidationException("Ingredient names cannot be empty.");
         }
 
-        cacheService.put(cacheKey, recipeDtos);
-        return recipeDtos;
+        List<IngredientIndex.PantryMatch> matches =
+                ingredientIndex.findPantryMatches(pantry.getNames(), maxMissing);
+        if (matches == null) {
+            matches = new ArrayList<>();
+            for (Object[] row : recipeRepository.findPantryMatches(pantry.getNames(),
+                    maxMissing)) {
+                matches.add(new IngredientIndex.PantryMatch(((Number) row[0]).longValue(),
+                        ((Number) row[1]).intValue()));
+            }
+            matches.sort(IngredientIndex.PantryMatch.BEST_FIRST);
+        }
+
+        long from = (long) page * size;
+        if (from >= matches.size()) {
+            return List.of();
+        }
+        List<IngredientIndex.PantryMatch> pageMatches =
+                matches.subList((int) from, (int) Math.min(from + size, matches.size()));
+        long[] recipeIds = new long[pageMatches.size()];
+        for (int i = 0; i < recipeIds.length; i++) {
+            recipeIds[i] = pageMatches.get(i).getRecipeId();
+        }
+        Map<Long, RecipeDto> recipesById = findRecipesByIdsAsMap(recipeIds);
+        List<PantryRecipeDto> result = new ArrayList<>(pageMatches.size());
+        for (IngredientIndex.PantryMatch match : pageMatches) {
+            RecipeDto recipeDto = recipesById.get(match.getRecipeId());
+            if (recipeDto != null) {
+                result.add(new PantryRecipeDto(recipeDto, match.getMissingCount()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Полнотекстовый поиск по описанию и инструкции: до {@code limit} рецептов,
+     * лучшие по BM25 первыми. Запрос в двойных кавычках ищется как фраза.
+     */
+    public List<RecipeDto> searchRecipesByText(String query, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new ValidationException("Search query cannot be null or empty.");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        List<FullTextIndex.Hit> hits = textIndex.search(query, limit);
+        if (hits == null) {
+            // Без индекса пришлось бы выполнять LIKE по большим текстовым колонкам
+            throw new ServiceUnavailableException("Full-text index is not ready yet.");
+        }
+        if (hits.isEmpty()) {
+            throw new NotFoundException("No recipes found for text: " + query, false);
+        }
+        long[] recipeIds = new long[hits.size()];
+        for (int i = 0; i < recipeIds.length; i++) {
+            recipeIds[i] = hits.get(i).getRecipeId();
+        }
+        return findRecipesInOrder(recipeIds);
+    }
+
+    /**
+     * До {@code limit} рецептов с наибольшим средним рейтингом среди тех, у кого не
+     * меньше {@code minReviews} отзывов; при равном рейтинге выше рецепт с большим
+     * числом отзывов.
+     */
+    public List<RecipeDto> findTopRatedRecipes(int limit, int minReviews) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        if (minReviews < 1) {
+            throw new ValidationException("Minimum review count must be at least 1.");
+        }
+        long[] recipeIds;
+        List<RatingIndex.Rating> top = ratingIndex.findTopRated(limit, minReviews);
+        if (top != null) {
+            recipeIds = top.stream().mapToLong(RatingIndex.Rating::getRecipeId).toArray();
+        } else {
+            recipeIds = recipeRepository.findTopRatedRecipeIds(minReviews,
+                    PageRequest.of(0, limit)).stream().mapToLong(Long::longValue).toArray();
+        }
+        if (recipeIds.length == 0) {
+            throw new NotFoundException("No recipes found with at least "
+                    + minReviews + " reviews.", false);
+        }
+        return findRecipesInOrder(recipeIds);
+    }
+
+    private List<RecipeDto> findRecipesInOrder(long[] recipeIds) {
+        Map<Long, RecipeDto> recipesById = findRecipesByIdsAsMap(recipeIds);
+        List<RecipeDto> result = new ArrayList<>(recipeIds.length);
+        for (long recipeId : recipeIds) {
+            RecipeDto recipeDto = recipesById.get(recipeId);
+            if (recipeDto != null) {
+                result.add(recipeDto);
+            }
+        }
+        return result;
+    }
+
+    // Рецепты читаются по возрастанию ID, а отдаются в порядке ранжирования
+    private Map<Long, RecipeDto> findRecipesByIdsAsMap(long[] recipeIds) {
+        long[] sorted = recipeIds.clone();
+        Arrays.sort(sorted);
+        Map<Long, RecipeDto> recipesById = new HashMap<>();
+        for (RecipeDto recipeDto : findRecipesByIds(sorted)) {
+            recipesById.put(recipeDto.getId(), recipeDto);
+        }
+        return recipesById;
     }
 
     public List<RecipeDto> findRecipesByAverageRating(String rating) {
@@ -339,31 +596,80 @@ public class RecipeService {
         }
 
         String cacheKey = "recipes_by_rating_" + normalizedRating;
-        if (cacheService.containsKey(cacheKey)) {
-            return (List<RecipeDto>) cacheService.get(cacheKey);
-        }
+        List<RecipeDto> recipeDtos = cacheService.getOrLoad(cacheKey,
+                () -> recipeRepository.findRecipesByAverageRating(normalizedRating)
+                        .stream()
+                        .map(recipeMapper::convertToDto)
+                        .toList(),
+                RecipeService::dependenciesOf);
 
-        List<Recipe> recipes = recipeRepository.findRecipesByAverageRating(normalizedRating);
-
-        if (recipes.isEmpty()) {
+        if (recipeDtos.isEmpty()) {
             throw new NotFoundException("No recipes found with "
-                    + "average rating: " + normalizedRating);
+                    + "average rating: " + normalizedRating, false);
         }
+        return recipeDtos;
+    }
 
-        List<RecipeDto> recipeDtos = recipes.stream()
-                .map(recipeMapper::convertToDto)
-                .toList();
+    // После фиксации сбрасывает поиски, в которые теперь попадает рецепт, кладёт его в кэш
+    // и сообщает другим узлам, чтобы те перечитали его в индексы. Название и ингредиенты
+    // читаются сразу, пока сущность в контексте персистентности
+    private void writeThrough(Recipe recipe, RecipeDto recipeDto) {
+        long recipeId = recipe.getId();
+        String title = recipe.getTitle().toLowerCase();
+        Set<String> ingredientNames = new HashSet<>();
+        if (recipe.getIngredients() != null) {
+            recipe.getIngredients().forEach(ingredient -> {
+                if (ingredient.getName() != null) {
+                    ingredientNames.add(IngredientQuery.normalize(ingredient.getName()));
+                }
+            });
+        }
+        afterCommit(() -> {
+            evictQueriesMatching(title, ingredientNames);
+            cacheService.putRecipe(recipeDto);
+            cacheService.publishRecipeChange(recipeId);
+        });
+    }
 
-        cacheService.put(cacheKey, recipeDtos);
-        return recipeDtos;
+    // Кэш меняется только после фиксации: сброшенный до неё результат параллельный
+    // запрос успел бы снова загрузить из БД в прежнем виде
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Новый или изменённый рецепт может попасть в уже закэшированные результаты поиска
+    private void evictQueriesMatching(String title, Set<String> ingredientNames) {
+        // Все страницы полного списка: новый рецепт меняет последнюю из них
+        cacheService.evictDependents(RecipeResponseCache.ALL_RECIPES_KEY);
+        int prefixLength = CacheConfig.RECIPES_BY_TITLE_NAMESPACE.length();
+        cacheService.evictIf(CacheConfig.RECIPES_BY_TITLE_NAMESPACE,
+                key -> title.contains(key.substring(prefixLength)));
+        // Поиски по ингредиентам, в которые рецепт теперь подходит
+        cacheService.evictIf(IngredientQuery.NAMESPACE, key -> {
+            IngredientQuery query = IngredientQuery.fromCacheKey(key);
+            return query == null || query.matches(ingredientNames);
+        });
     }
 
-    private void clearRecipeCache() {
-        //logger.info("Clearing all recipe-related cache entries...");
-        logger.info("Current cache keys before clearing: {}", cacheService.getCachedKeys());
-        cacheService.evict("all_recipes"); // Явное удаление ключа для всех рецептов
-        cacheService.evictByPattern("recipes_*");
-        cacheService.evictByPattern("recipe_*");
-        logger.info("Cache cleared for patterns: recipes_* and recipe_*");
+    // Строки БД, из которых собран результат: сами рецепты и их ингредиенты
+    static Set<String> dependenciesOf(List<RecipeDto> recipeDtos) {
+        Set<String> dependencies = new HashSet<>();
+        for (RecipeDto recipeDto : recipeDtos) {
+            dependencies.add(CacheConfig.recipeDependency(recipeDto.getId()));
+            if (recipeDto.getIngredients() != null) {
+                recipeDto.getIngredients().forEach(ingredientDto -> dependencies.add(
+                        CacheConfig.ingredientDependency(ingredientDto.getId())));
+            }
+        }
+        return dependencies;
     }
-}
+}
\ No newline at end of file
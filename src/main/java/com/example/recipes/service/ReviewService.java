@@ -1,15 +1,21 @@
 package com.example.recipes.service;
 
+import com.example.recipes.config.CacheConfig;
 import com.example.recipes.dto.ReviewDto;
 import com.example.recipes.entity.Recipe;
 import com.example.recipes.entity.Review;
 import com.example.recipes.exceptions.NotFoundException;
 import com.example.recipes.exceptions.ValidationException;
+import com.example.recipes.index.RatingIndex;
 import com.example.recipes.repository.RecipeRepository;
 import com.example.recipes.repository.ReviewRepository;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,14 +24,35 @@ import static com.example.recipes.exceptions.ValidationUtils.validateReviewInput
 
 @Service
 public class ReviewService {
+    private static final Logger logger = LoggerFactory.getLogger(ReviewService.class);
 
     private final RecipeRepository recipeRepository;
     private final ReviewRepository reviewRepository;
+    private final CacheConfig cacheService;
+    private final RatingIndex ratingIndex;
 
 
-    public ReviewService(ReviewRepository reviewRepository, RecipeRepository recipeRepository) {
+    public ReviewService(ReviewRepository reviewRepository, RecipeRepository recipeRepository,
+                         CacheConfig cacheService, RatingIndex ratingIndex) {
         this.reviewRepository = reviewRepository;
         this.recipeRepository = recipeRepository;
+        this.cacheService = cacheService;
+        this.ratingIndex = ratingIndex;
+    }
+
+    /**
+     * Сверяет агрегаты рейтинга каждого рецепта с таблицей отзывов и пересчитывает
+     * разошедшиеся, если отзывы появились до колонок агрегатов или менялись в обход
+     * сервиса. Сравнение по рецептам, а не по общему числу отзывов: правка оценки в
+     * обход сервиса или расхождения, взаимно гасящие друг друга, итог не меняют.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillRatings() {
+        int updated = recipeRepository.recalculateRatings();
+        if (updated > 0) {
+            logger.info("Recalculated rating aggregates for {} recipes", updated);
+        }
     }
 
     @Transactional
@@ -46,10 +73,14 @@ public class ReviewService {
         review.setRecipe(recipe);
 
         Review savedReview = reviewRepository.save(review);
+        // Отзыв меняет средний рейтинг рецепта
+        recipeRepository.adjustRating(recipeId, ratingOf(savedReview), 1);
+        ratingChanged(recipeId);
         return new ReviewDto(savedReview.getId(),
                 savedReview.getMessage(), savedReview.getRating());
     }
 
+    @Transactional
     public void deleteReviewFromRecipe(Long recipeId, Long reviewId) {
         if (recipeId == null || recipeId <= 0) {
             throw new ValidationException("Recipe ID must be greater than 0.");
@@ -67,8 +98,11 @@ public class ReviewService {
 
 
         reviewRepository.delete(review);
+        recipeRepository.adjustRating(recipeId, -ratingOf(review), -1);
+        ratingChanged(recipeId);
     }
 
+    @Transactional
     public ReviewDto updateReviewForRecipe(Long recipeId, Long reviewId, ReviewDto reviewDto) {
 
         List<String> errors = validateReviewInput(recipeId, reviewDto);
@@ -83,14 +117,29 @@ public class ReviewService {
             throw new IllegalArgumentException("Review does not belong to the specified recipe");
         }
 
+        int previousRating = ratingOf(review);
         review.setMessage(reviewDto.getMessage());
         review.setRating(reviewDto.getRating());
         Review updatedReview = reviewRepository.save(review);
+        int ratingDelta = ratingOf(updatedReview) - previousRating;
+        recipeRepository.adjustRating(recipeId, ratingDelta, 0);
+        ratingChanged(recipeId);
 
         return new ReviewDto(updatedReview.getId(),
                 updatedReview.getMessage(), updatedReview.getRating());
     }
 
+    // Индекс рейтингов сам откладывает перечитывание до фиксации; кэш сбрасывается после
+    // неё же, иначе параллельный запрос успел бы закэшировать прежний рейтинг из БД.
+    // Другие узлы перечитывают рейтинг в свои индексы по сообщению шины
+    private void ratingChanged(long recipeId) {
+        ratingIndex.refreshRating(recipeId);
+        RecipeService.afterCommit(() -> {
+            cacheService.invalidateNamespace(CacheConfig.RECIPES_BY_RATING_NAMESPACE);
+            cacheService.publishRatingChange(recipeId);
+        });
+    }
+
     public Set<ReviewDto> getAllReviewsForRecipe(Long recipeId) {
         if (recipeId == null || recipeId <= 0) {
             throw new ValidationException("Recipe ID must be greater than 0.");
@@ -108,5 +157,8 @@ public class ReviewService {
                 new ReviewDto(review.getId(), review.getMessage(), review.getRating())
         ).collect(Collectors.toSet());
     }
-}
 
+    private static int ratingOf(Review review) {
+        return review.getRating() == null ? 0 : review.getRating();
+    }
+}
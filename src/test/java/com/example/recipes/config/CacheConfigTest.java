@@ -0,0 +1,554 @@
+package com.example.recipes.config;
+
+import com.example.recipes.dto.IngredientDto;
+import com.example.recipes.dto.RecipeDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheConfigTest {
+
+    private CacheConfig cacheConfig;
+
+    @BeforeEach
+    void setUp() {
+        cacheConfig = new CacheConfig(1 << 20);
+    }
+
+    @Test
+    void invalidateNamespace_removesOnlyEntriesOfNamespace() {
+        // Arrange
+        cacheConfig.put("recipe_1", "Pasta");
+        cacheConfig.put("recipes_by_title_pasta", "Pasta list");
+
+        // Act
+        cacheConfig.invalidateNamespace(CacheConfig.RECIPE_NAMESPACE);
+
+        // Assert
+        assertFalse(cacheConfig.containsKey("recipe_1"));
+        assertNull(cacheConfig.get("recipe_1"));
+        assertEquals("Pasta list", cacheConfig.get("recipes_by_title_pasta"));
+    }
+
+    @Test
+    void invalidateNamespace_parentNamespace_invalidatesNestedNamespaces() {
+        // Arrange
+        cacheConfig.put("recipes_by_title_pasta", "by title");
+        cacheConfig.put("recipes_by_rating_5.0", "by rating");
+        cacheConfig.put("recipe_1", "Pasta");
+
+        // Act
+        cacheConfig.evictByPattern("recipes_*");
+
+        // Assert
+        assertFalse(cacheConfig.containsKey("recipes_by_title_pasta"));
+        assertFalse(cacheConfig.containsKey("recipes_by_rating_5.0"));
+        assertTrue(cacheConfig.containsKey("recipe_1"));
+    }
+
+    @Test
+    void put_afterInvalidation_isVisibleAgain() {
+        // Arrange
+        cacheConfig.put("recipe_1", "Old");
+        cacheConfig.invalidateNamespace(CacheConfig.RECIPE_NAMESPACE);
+
+        // Act
+        cacheConfig.put("recipe_1", "New");
+
+        // Assert
+        assertEquals("New", cacheConfig.get("recipe_1"));
+        assertTrue(cacheConfig.getCachedKeys().contains("recipe_1"));
+    }
+
+    @Test
+    void invalidateNamespace_unknownNamespace_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> cacheConfig.invalidateNamespace("unknown_"));
+    }
+
+    @Test
+    void evictDependents_removesOnlyEntriesBuiltFromRow() {
+        // Arrange
+        cacheConfig.put("recipe_1", "Pasta", Set.of(CacheConfig.recipeDependency(1L),
+                CacheConfig.ingredientDependency(10L)));
+        cacheConfig.put("recipes_by_title_pa", "Pasta, Paella", Set.of(
+                CacheConfig.recipeDependency(1L), CacheConfig.recipeDependency(2L)));
+        cacheConfig.put("recipe_2", "Paella", Set.of(CacheConfig.recipeDependency(2L)));
+
+        // Act
+        int evicted = cacheConfig.evictDependents(CacheConfig.ingredientDependency(10L));
+
+        // Assert
+        assertEquals(1, evicted);
+        assertFalse(cacheConfig.containsKey("recipe_1"));
+        assertTrue(cacheConfig.containsKey("recipes_by_title_pa"));
+        assertTrue(cacheConfig.containsKey("recipe_2"));
+        assertEquals(0, cacheConfig.evictDependents(CacheConfig.ingredientDependency(10L)));
+    }
+
+    @Test
+    void evictIf_checksOnlyKeysOfNamespace() {
+        // Arrange
+        cacheConfig.put("recipes_by_title_pasta", "Pasta");
+        cacheConfig.put("recipes_by_title_soup", "Soup");
+        cacheConfig.put("recipe_1", "Pasta");
+
+        // Act
+        int evicted = cacheConfig.evictIf(CacheConfig.RECIPES_BY_TITLE_NAMESPACE,
+                key -> key.endsWith("pasta"));
+
+        // Assert
+        assertEquals(1, evicted);
+        assertFalse(cacheConfig.containsKey("recipes_by_title_pasta"));
+        assertTrue(cacheConfig.containsKey("recipes_by_title_soup"));
+        assertTrue(cacheConfig.containsKey("recipe_1"));
+    }
+
+    @Test
+    void put_replacingEntry_keepsDependencyOfNewEntry() {
+        // Arrange
+        cacheConfig.put("recipe_1", "Old", Set.of(CacheConfig.ingredientDependency(10L)));
+        cacheConfig.put("recipe_1", "New", Set.of(CacheConfig.ingredientDependency(10L),
+                CacheConfig.ingredientDependency(11L)));
+
+        // Act
+        int evicted = cacheConfig.evictDependents(CacheConfig.ingredientDependency(10L));
+
+        // Assert
+        assertEquals(1, evicted);
+        assertFalse(cacheConfig.containsKey("recipe_1"));
+    }
+
+    @Test
+    void getOrLoad_concurrentMisses_loadOnce() throws Exception {
+        // Arrange
+        int threads = 8;
+        AtomicInteger loaderCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<String>> results = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> cacheConfig.getOrLoad("recipe_1", () -> {
+                loaderCalls.incrementAndGet();
+                awaitQuietly(release);
+                return "Pasta";
+            }, value -> Set.of())));
+        }
+        while (cacheConfig.getStatistics().get("coalescedLoads") < threads - 1) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        // Assert
+        for (Future<String> result : results) {
+            assertEquals("Pasta", result.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, loaderCalls.get());
+        assertEquals(threads - 1, cacheConfig.getStatistics().get("coalescedLoads"));
+        assertEquals("Pasta", cacheConfig.get("recipe_1"));
+    }
+
+    @Test
+    void getOrLoad_loaderThrows_nothingCached() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> cacheConfig.getOrLoad("recipe_1",
+                () -> {
+                    throw new IllegalStateException("Not found");
+                }, value -> Set.of()));
+        assertFalse(cacheConfig.containsKey("recipe_1"));
+    }
+
+    @Test
+    void getOrLoad_invalidatedDuringLoad_resultNotCached() {
+        // Act
+        String value = cacheConfig.getOrLoad("recipe_1", () -> {
+            cacheConfig.invalidateNamespace(CacheConfig.RECIPE_NAMESPACE);
+            return "Pasta";
+        }, result -> Set.of());
+
+        // Assert
+        assertEquals("Pasta", value);
+        assertFalse(cacheConfig.containsKey("recipe_1"));
+    }
+
+    @Test
+    void getOrLoad_expiredEntry_reloadsSynchronously() {
+        // Arrange
+        AtomicLong clock = new AtomicLong();
+        CacheConfig expiring = new CacheConfig(1 << 20, 0, 1024, Map.of(
+                CacheConfig.RECIPES_BY_RATING_NAMESPACE, CacheRegionPolicy.of(100, 0)),
+                CacheRegionPolicy.ETERNAL, Integer.MAX_VALUE, Runnable::run, clock::get);
+        expiring.put("recipes_by_rating_4.5", "Old");
+
+        // Act
+        clock.set(TimeUnit.SECONDS.toNanos(100));
+
+        // Assert
+        assertFalse(expiring.containsKey("recipes_by_rating_4.5"));
+        assertEquals("New", expiring.getOrLoad("recipes_by_rating_4.5", () -> "New",
+                value -> Set.of()));
+        assertEquals(1, expiring.getStatistics().get("expirations"));
+    }
+
+    @Test
+    void getOrLoad_entryNearExpiry_returnsCurrentValueAndRefreshesInBackground() {
+        // Arrange
+        AtomicLong clock = new AtomicLong();
+        List<Runnable> scheduled = new ArrayList<>();
+        CacheConfig refreshing = new CacheConfig(1 << 20, 0, 1024, Map.of(
+                CacheConfig.RECIPES_BY_RATING_NAMESPACE, CacheRegionPolicy.of(100, 0.8)),
+                CacheRegionPolicy.ETERNAL, Integer.MAX_VALUE, scheduled::add, clock::get);
+        refreshing.put("recipes_by_rating_4.5", "Old");
+        clock.set(TimeUnit.SECONDS.toNanos(90));
+
+        // Act
+        String first = refreshing.getOrLoad("recipes_by_rating_4.5", () -> "New",
+                value -> Set.of());
+        String second = refreshing.getOrLoad("recipes_by_rating_4.5", () -> "New",
+                value -> Set.of());
+        scheduled.forEach(Runnable::run);
+
+        // Assert
+        assertEquals("Old", first);
+        assertEquals("Old", second);
+        assertEquals(1, scheduled.size());
+        assertEquals("New", refreshing.get("recipes_by_rating_4.5"));
+        assertEquals(1, refreshing.getStatistics().get("refreshes"));
+        clock.set(TimeUnit.SECONDS.toNanos(150));
+        assertTrue(refreshing.containsKey("recipes_by_rating_4.5"));
+    }
+
+    @Test
+    void getOrLoad_invalidatedDuringRefresh_refreshedValueDiscarded() {
+        // Arrange
+        AtomicLong clock = new AtomicLong();
+        List<Runnable> scheduled = new ArrayList<>();
+        CacheConfig refreshing = new CacheConfig(1 << 20, 0, 1024, Map.of(
+                CacheConfig.RECIPES_BY_RATING_NAMESPACE, CacheRegionPolicy.of(100, 0.5)),
+                CacheRegionPolicy.ETERNAL, Integer.MAX_VALUE, scheduled::add, clock::get);
+        refreshing.put("recipes_by_rating_4.5", "Old");
+        clock.set(TimeUnit.SECONDS.toNanos(60));
+        refreshing.getOrLoad("recipes_by_rating_4.5", () -> "Refreshed", value -> Set.of());
+
+        // Act
+        refreshing.invalidateNamespace(CacheConfig.RECIPES_BY_RATING_NAMESPACE);
+        scheduled.forEach(Runnable::run);
+
+        // Assert
+        assertFalse(refreshing.containsKey("recipes_by_rating_4.5"));
+        assertEquals(0, refreshing.getStatistics().get("refreshes"));
+    }
+
+    @Test
+    void getOrLoad_emptyResult_cachedUntilNegativeTtl() {
+        // Arrange
+        AtomicLong clock = new AtomicLong();
+        AtomicInteger loaderCalls = new AtomicInteger();
+        CacheConfig negative = new CacheConfig(1 << 20, 0, 1024, Map.of(), CacheRegionPolicy.of(30, 0),
+                100, Runnable::run, clock::get);
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            negative.getOrLoad("recipes_by_title_unknown", () -> {
+                loaderCalls.incrementAndGet();
+                return List.of();
+            }, value -> Set.of());
+        }
+        clock.set(TimeUnit.SECONDS.toNanos(30));
+        negative.getOrLoad("recipes_by_title_unknown", () -> {
+            loaderCalls.incrementAndGet();
+            return List.of();
+        }, value -> Set.of());
+
+        // Assert
+        assertEquals(2, loaderCalls.get());
+        assertEquals(2, negative.getStatistics().get("negativeHits"));
+    }
+
+    @Test
+    void put_emptyResultsOverLimit_evictsOldestNegativeEntry() {
+        // Arrange
+        CacheConfig negative = new CacheConfig(1 << 20, 0, 1024, Map.of(), CacheRegionPolicy.of(30, 0),
+                2, Runnable::run, System::nanoTime);
+        negative.put("recipes_by_title_pasta", List.of("Pasta"));
+
+        // Act
+        negative.put("recipes_by_title_a", List.of());
+        negative.put("recipes_by_title_b", List.of());
+        negative.put("recipes_by_title_c", List.of());
+
+        // Assert
+        assertFalse(negative.containsKey("recipes_by_title_a"));
+        assertTrue(negative.containsKey("recipes_by_title_b"));
+        assertTrue(negative.containsKey("recipes_by_title_c"));
+        assertTrue(negative.containsKey("recipes_by_title_pasta"));
+    }
+
+    @Test
+    void evictIf_removesNegativeEntry() {
+        // Arrange
+        cacheConfig.put("recipes_by_title_soup", List.of());
+
+        // Act
+        cacheConfig.evictIf(CacheConfig.RECIPES_BY_TITLE_NAMESPACE, key -> key.endsWith("soup"));
+
+        // Assert
+        assertFalse(cacheConfig.containsKey("recipes_by_title_soup"));
+    }
+
+    @Test
+    void get_entryEvictedFromHeap_promotedFromOffHeapTier() {
+        // Arrange
+        CacheConfig tiered = new CacheConfig(2_000, 1 << 20, 1024, Map.of(),
+                CacheRegionPolicy.ETERNAL, Integer.MAX_VALUE, Runnable::run, System::nanoTime);
+        for (long id = 1; id <= 50; id++) {
+            tiered.put("recipe_" + id, recipe(id, "Recipe " + id),
+                    Set.of(CacheConfig.recipeDependency(id), CacheConfig.ingredientDependency(10L)));
+        }
+
+        // Act
+        RecipeDto first = (RecipeDto) tiered.get("recipe_1");
+
+        // Assert
+        assertTrue(tiered.getStatistics().get("demotions") > 0);
+        assertEquals("Recipe 1", first.getTitle());
+        assertEquals("Описание рецепта", first.getDescription());
+        assertEquals("Tomato", first.getIngredients().iterator().next().getName());
+        assertEquals(50, tiered.getCachedKeys().size());
+    }
+
+    @Test
+    void put_entryHeavierThanHeapStripe_keptInOffHeapTierAndCountedAsRejection() {
+        // Arrange
+        CacheConfig tiered = new CacheConfig(16, 1 << 20, 1024, Map.of(),
+                CacheRegionPolicy.ETERNAL, Integer.MAX_VALUE, Runnable::run, System::nanoTime);
+
+        // Act
+        tiered.put("recipe_1", recipe(1L, "Recipe 1"), Set.of(CacheConfig.recipeDependency(1L)));
+
+        // Assert
+        assertEquals(1, tiered.getStatistics().get("rejections"));
+        assertEquals(1, tiered.getStatistics().get("offHeapEntries"));
+        assertEquals("Recipe 1", ((RecipeDto) tiered.get("recipe_1")).getTitle());
+    }
+
+    @Test
+    void evictDependents_removesEntriesFromOffHeapTier() {
+        // Arrange
+        CacheConfig tiered = new CacheConfig(2_000, 1 << 20, 1024, Map.of(),
+                CacheRegionPolicy.ETERNAL, Integer.MAX_VALUE, Runnable::run, System::nanoTime);
+        for (long id = 1; id <= 50; id++) {
+            tiered.put("recipe_" + id, recipe(id, "Recipe " + id),
+                    Set.of(CacheConfig.recipeDependency(id), CacheConfig.ingredientDependency(10L)));
+        }
+
+        // Act
+        int evicted = tiered.evictDependents(CacheConfig.ingredientDependency(10L));
+
+        // Assert
+        assertEquals(50, evicted);
+        assertNull(tiered.get("recipe_1"));
+        assertEquals(0, tiered.getStatistics().get("offHeapEntries"));
+    }
+
+    @Test
+    void getRecipe_hit_doesNotCallLoader() {
+        // Arrange
+        AtomicInteger loaderCalls = new AtomicInteger();
+
+        // Act
+        RecipeDto first = cacheConfig.getRecipe(1L, id -> {
+            loaderCalls.incrementAndGet();
+            return recipe(id, "Pasta");
+        });
+        RecipeDto second = cacheConfig.getRecipe(1L, id -> {
+            loaderCalls.incrementAndGet();
+            return recipe(id, "Other");
+        });
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, loaderCalls.get());
+        assertEquals(1, cacheConfig.getStatistics().get("hits"));
+    }
+
+    @Test
+    void getRecipeResponse_sameRecipe_rendersOnceUntilRecipeIsRewritten() {
+        // Arrange
+        AtomicInteger renders = new AtomicInteger();
+        Function<RecipeDto, CachedResponse> renderer = recipe -> {
+            renders.incrementAndGet();
+            return new CachedResponse(recipe.getTitle().getBytes(StandardCharsets.UTF_8),
+                    Set.of());
+        };
+        RecipeDto cached = cacheConfig.getRecipe(1L, id -> recipe(id, "Pasta"));
+
+        // Act
+        CachedResponse first = cacheConfig.getRecipeResponse(1L, cached, renderer);
+        CachedResponse second = cacheConfig.getRecipeResponse(1L, cached, renderer);
+        cacheConfig.putRecipe(recipe(1L, "Pasta al forno"));
+        RecipeDto rewritten = cacheConfig.getRecipe(1L, id -> recipe(id, "Other"));
+        CachedResponse third = cacheConfig.getRecipeResponse(1L, rewritten, renderer);
+
+        // Assert
+        assertSame(first, second);
+        assertNotEquals(first.getETag(), third.getETag());
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    void evictDependents_ingredientChange_evictsRecipeFromIdRegion() {
+        // Arrange
+        cacheConfig.getRecipe(1L, id -> recipe(id, "Pasta"));
+        cacheConfig.getRecipe(2L, id -> {
+            RecipeDto recipeDto = recipe(id, "Soup");
+            recipeDto.setIngredients(Set.of());
+            return recipeDto;
+        });
+
+        // Act
+        int evicted = cacheConfig.evictDependents(CacheConfig.ingredientDependency(10L));
+        cacheConfig.evict("recipe_2");
+
+        // Assert
+        assertEquals(1, evicted);
+        assertEquals("Reloaded", cacheConfig.getRecipe(1L, id -> recipe(id, "Reloaded")).getTitle());
+        assertEquals("Reloaded", cacheConfig.getRecipe(2L, id -> recipe(id, "Reloaded")).getTitle());
+    }
+
+    @Test
+    void putRecipe_replacesCachedVersionWithoutLoading() {
+        // Arrange
+        cacheConfig.getRecipe(1L, id -> recipe(id, "Pasta"));
+
+        // Act
+        cacheConfig.putRecipe(recipe(1L, "Updated pasta"));
+        RecipeDto cached = cacheConfig.getRecipe(1L, id -> {
+            throw new AssertionError("Recipe must be served from the cache");
+        });
+
+        // Assert
+        assertEquals("Updated pasta", cached.getTitle());
+        assertEquals(1, cacheConfig.getStatistics().get("loads"));
+    }
+
+    @Test
+    void putRecipe_duringLoad_loadedVersionIsNotStored() {
+        // Arrange
+        AtomicReference<RecipeDto> written = new AtomicReference<>();
+
+        // Act
+        RecipeDto loaded = cacheConfig.getRecipe(1L, id -> {
+            written.set(recipe(id, "Updated pasta"));
+            cacheConfig.putRecipe(written.get());
+            return recipe(id, "Pasta");
+        });
+
+        // Assert
+        assertEquals("Pasta", loaded.getTitle());
+        assertSame(written.get(), cacheConfig.getRecipe(1L, id -> recipe(id, "Reloaded")));
+    }
+
+    @Test
+    void getRecipe_entryNearExpiry_returnsCurrentRecipeAndRefreshesInBackground() {
+        // Arrange
+        AtomicLong clock = new AtomicLong();
+        List<Runnable> scheduled = new ArrayList<>();
+        CacheConfig refreshing = new CacheConfig(1 << 20, 0, 1024, Map.of(
+                CacheConfig.RECIPE_NAMESPACE, CacheRegionPolicy.of(100, 0.8)),
+                CacheRegionPolicy.ETERNAL, Integer.MAX_VALUE, scheduled::add, clock::get);
+        refreshing.getRecipe(1L, id -> recipe(id, "Old"));
+        clock.set(TimeUnit.SECONDS.toNanos(90));
+
+        // Act
+        RecipeDto first = refreshing.getRecipe(1L, id -> recipe(id, "New"));
+        RecipeDto second = refreshing.getRecipe(1L, id -> recipe(id, "New"));
+        scheduled.forEach(Runnable::run);
+
+        // Assert
+        assertEquals("Old", first.getTitle());
+        assertEquals("Old", second.getTitle());
+        assertEquals(1, scheduled.size());
+        assertEquals(1, refreshing.getStatistics().get("refreshes"));
+        clock.set(TimeUnit.SECONDS.toNanos(150));
+        assertEquals("New", refreshing.getRecipe(1L, id -> recipe(id, "Reloaded")).getTitle());
+    }
+
+    @Test
+    void getRecipe_writtenThroughDuringRefresh_refreshedRecipeDiscarded() {
+        // Arrange
+        AtomicLong clock = new AtomicLong();
+        List<Runnable> scheduled = new ArrayList<>();
+        CacheConfig refreshing = new CacheConfig(1 << 20, 0, 1024, Map.of(
+                CacheConfig.RECIPE_NAMESPACE, CacheRegionPolicy.of(100, 0.5)),
+                CacheRegionPolicy.ETERNAL, Integer.MAX_VALUE, scheduled::add, clock::get);
+        refreshing.getRecipe(1L, id -> recipe(id, "Old"));
+        clock.set(TimeUnit.SECONDS.toNanos(60));
+        refreshing.getRecipe(1L, id -> recipe(id, "Refreshed"));
+
+        // Act
+        refreshing.putRecipe(recipe(1L, "Written"));
+        scheduled.forEach(Runnable::run);
+
+        // Assert
+        assertEquals(0, refreshing.getStatistics().get("refreshes"));
+        assertEquals("Written", refreshing.getRecipe(1L, id -> recipe(id, "Reloaded")).getTitle());
+    }
+
+    @Test
+    void getRecipe_evictedFromIdRegion_promotedFromOffHeapTier() {
+        // Arrange
+        CacheConfig tiered = new CacheConfig(1 << 20, 1 << 20, 4, Map.of(),
+                CacheRegionPolicy.ETERNAL, Integer.MAX_VALUE, Runnable::run, System::nanoTime);
+        for (long id = 1; id <= 20; id++) {
+            tiered.getRecipe(id, recipeId -> recipe(recipeId, "Recipe " + recipeId));
+        }
+
+        // Act
+        RecipeDto first = tiered.getRecipe(1L, id -> recipe(id, "Reloaded"));
+
+        // Assert
+        assertEquals("Recipe 1", first.getTitle());
+        assertEquals(20, tiered.getStatistics().get("loads"));
+    }
+
+    private static RecipeDto recipe(long id, String title) {
+        IngredientDto ingredientDto = new IngredientDto();
+        ingredientDto.setId(10L);
+        ingredientDto.setName("Tomato");
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setId(id);
+        recipeDto.setTitle(title);
+        recipeDto.setDescription("Описание рецепта");
+        recipeDto.setInstruction("x".repeat(200));
+        recipeDto.setIngredients(Set.of(ingredientDto));
+        return recipeDto;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.example.recipes.config;
+
+import com.example.recipes.dto.RecipeDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheInvalidationBusTest {
+
+    private CacheConfig nodeA;
+    private CacheConfig nodeB;
+    private CacheInvalidationBus busA;
+    private CacheInvalidationBus busB;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        InJvmInvalidationTransport.Channel channel = new InJvmInvalidationTransport.Channel();
+        nodeA = new CacheConfig(1 << 20);
+        nodeB = new CacheConfig(1 << 20);
+        busA = new CacheInvalidationBus(nodeA, new InJvmInvalidationTransport(channel), 0);
+        busB = new CacheInvalidationBus(nodeB, new InJvmInvalidationTransport(channel), 0);
+        busA.start();
+        busB.start();
+    }
+
+    @Test
+    void evictDependents_onOneNode_evictsDependentEntriesOnOtherNode() {
+        // Arrange
+        nodeB.put("recipes_by_title_pasta", List.of("Pasta"),
+                Set.of(CacheConfig.recipeDependency(1L)));
+        nodeB.put("recipes_by_title_soup", List.of("Soup"),
+                Set.of(CacheConfig.recipeDependency(2L)));
+
+        // Act
+        nodeA.evictDependents(CacheConfig.recipeDependency(1L));
+        busA.flush();
+
+        // Assert
+        assertFalse(nodeB.containsKey("recipes_by_title_pasta"));
+        assertTrue(nodeB.containsKey("recipes_by_title_soup"));
+    }
+
+    @Test
+    void putRecipe_onOneNode_evictsStaleRecipeOnOtherNode() {
+        // Arrange
+        nodeA.getRecipe(1L, id -> recipe(id, "Pasta"));
+        nodeB.getRecipe(1L, id -> recipe(id, "Pasta"));
+
+        // Act
+        nodeA.putRecipe(recipe(1L, "Updated pasta"));
+        busA.flush();
+
+        // Assert
+        assertEquals("Updated pasta", nodeB.getRecipe(1L, id -> recipe(id, "Updated pasta"))
+                .getTitle());
+        assertEquals("Updated pasta", nodeA.getRecipe(1L, id -> recipe(id, "Reloaded"))
+                .getTitle());
+    }
+
+    @Test
+    void remoteInvalidation_isNotBroadcastBack() {
+        // Arrange
+        nodeA.put("recipe_1", "Pasta");
+
+        // Act
+        nodeB.evict("recipe_1");
+        busB.flush();
+        nodeB.put("recipe_1", "Pasta");
+        busA.flush();
+
+        // Assert
+        assertFalse(nodeA.containsKey("recipe_1"));
+        assertTrue(nodeB.containsKey("recipe_1"));
+    }
+
+    @Test
+    void flush_coalescesInvalidationsCoveredByNamespace() throws IOException {
+        // Arrange
+        List<byte[]> sent = new ArrayList<>();
+        CacheInvalidationBus bus = new CacheInvalidationBus(new CacheConfig(1 << 20),
+                new RecordingTransport(sent, 1400), 0);
+
+        // Act
+        bus.publish(CacheInvalidation.key("recipes_by_title_pasta"));
+        bus.publish(CacheInvalidation.key("recipes_by_title_pasta"));
+        bus.publish(CacheInvalidation.key("recipes_by_title_soup"));
+        bus.publish(CacheInvalidation.namespace(CacheConfig.RECIPES_BY_TITLE_NAMESPACE));
+        bus.publish(CacheInvalidation.key("recipes_by_title_salad"));
+        bus.flush();
+        bus.flush();
+
+        // Assert
+        assertEquals(1, sent.size());
+        CacheConfig receiver = new CacheConfig(1 << 20);
+        receiver.put("recipes_by_title_salad", "Salad");
+        receiver.put("recipe_1", "Pasta");
+        new CacheInvalidationBus(receiver, new ReplayTransport(sent), 0).start();
+        assertFalse(receiver.containsKey("recipes_by_title_salad"));
+        assertTrue(receiver.containsKey("recipe_1"));
+    }
+
+    @Test
+    void publishRecipeChange_reachesOtherNodeListenerEvenAfterClear() {
+        // Arrange
+        List<String> changes = new ArrayList<>();
+        nodeB.setDataChangeListener(new DataChangeListener() {
+            @Override
+            public void recipeChanged(long recipeId) {
+                changes.add("recipe " + recipeId);
+            }
+
+            @Override
+            public void ratingChanged(long recipeId) {
+                changes.add("rating " + recipeId);
+            }
+
+            @Override
+            public void ingredientChanged(long ingredientId) {
+                changes.add("ingredient " + ingredientId);
+            }
+        });
+
+        // Act
+        nodeA.publishRecipeChange(1L);
+        nodeA.publishIngredientChange(2L);
+        nodeA.clear();
+        nodeA.publishRatingChange(1L);
+        busA.flush();
+
+        // Assert
+        assertEquals(List.of("recipe 1", "ingredient 2", "rating 1"), changes);
+    }
+
+    @Test
+    void flush_manyInvalidations_splitIntoBatchesWithinLimit() {
+        // Arrange
+        List<byte[]> sent = new ArrayList<>();
+        CacheInvalidationBus bus = new CacheInvalidationBus(new CacheConfig(1 << 20),
+                new RecordingTransport(sent, 200), 0);
+
+        // Act
+        for (long id = 0; id < 100; id++) {
+            bus.publish(CacheInvalidation.dependency(CacheConfig.recipeDependency(id)));
+        }
+        bus.publish(CacheInvalidation.key("recipes_by_title_" + "x".repeat(500)));
+        bus.flush();
+
+        // Assert
+        assertTrue(sent.size() > 1);
+        for (byte[] batch : sent) {
+            assertTrue(batch.length <= 200);
+        }
+    }
+
+    @Test
+    void udpTransport_deliversInvalidationsToPeer() throws Exception {
+        // Arrange
+        UdpInvalidationTransport receiverTransport = udpTransport(List.of(), "secret");
+        CacheInvalidationBus receiverBus = new CacheInvalidationBus(nodeB, receiverTransport, 0);
+        receiverBus.start();
+        CacheInvalidationBus senderBus = new CacheInvalidationBus(nodeA,
+                udpTransport(List.of(loopback(receiverTransport.localPort())), "secret"), 0);
+        senderBus.start();
+        nodeB.put("recipe_1", "Pasta");
+
+        try {
+            // Act
+            nodeA.evict("recipe_1");
+            senderBus.flush();
+
+            // Assert
+            awaitEvicted(nodeB, "recipe_1");
+            assertFalse(nodeB.containsKey("recipe_1"));
+        } finally {
+            senderBus.stop();
+            receiverBus.stop();
+        }
+    }
+
+    @Test
+    void udpTransport_wrongSecret_datagramDropped() throws Exception {
+        // Arrange
+        UdpInvalidationTransport receiverTransport = udpTransport(List.of(), "secret");
+        CacheInvalidationBus receiverBus = new CacheInvalidationBus(nodeB, receiverTransport, 0);
+        receiverBus.start();
+        InetSocketAddress receiver = loopback(receiverTransport.localPort());
+        CacheInvalidationBus forgedBus = new CacheInvalidationBus(nodeA,
+                udpTransport(List.of(receiver), "guess"), 0);
+        forgedBus.start();
+        CacheConfig trustedNode = new CacheConfig(1 << 20);
+        CacheInvalidationBus trustedBus = new CacheInvalidationBus(trustedNode,
+                udpTransport(List.of(receiver), "secret"), 0);
+        trustedBus.start();
+        nodeB.put("recipe_1", "Pasta");
+        nodeB.put("recipe_2", "Soup");
+
+        try {
+            // Act
+            nodeA.evict("recipe_1");
+            forgedBus.flush();
+            // Датаграммы обрабатываются по порядку: когда дошла вторая, первая уже разобрана
+            trustedNode.evict("recipe_2");
+            trustedBus.flush();
+
+            // Assert
+            awaitEvicted(nodeB, "recipe_2");
+            assertFalse(nodeB.containsKey("recipe_2"));
+            assertTrue(nodeB.containsKey("recipe_1"));
+        } finally {
+            forgedBus.stop();
+            trustedBus.stop();
+            receiverBus.stop();
+        }
+    }
+
+    @Test
+    void udpTransport_noSecret_acceptsOnlyListedPeers() throws Exception {
+        // Arrange
+        UdpInvalidationTransport receiverTransport = udpTransport(
+                List.of(new InetSocketAddress("192.0.2.1", 47100)), "");
+        CacheInvalidationBus receiverBus = new CacheInvalidationBus(nodeB, receiverTransport, 0);
+        receiverBus.start();
+        CacheInvalidationBus senderBus = new CacheInvalidationBus(nodeA,
+                udpTransport(List.of(loopback(receiverTransport.localPort())), ""), 0);
+        senderBus.start();
+        nodeB.put("recipe_1", "Pasta");
+
+        try {
+            // Act
+            nodeA.evict("recipe_1");
+            senderBus.flush();
+            Thread.sleep(200);
+
+            // Assert
+            assertTrue(nodeB.containsKey("recipe_1"));
+        } finally {
+            senderBus.stop();
+            receiverBus.stop();
+        }
+    }
+
+    @Test
+    void parsePeers_invalidAddress_throwsException() {
+        // Act & Assert
+        assertEquals(2, UdpInvalidationTransport.parsePeers("10.0.0.1:47100, node-b:47100")
+                .size());
+        assertThrows(IllegalArgumentException.class,
+                () -> UdpInvalidationTransport.parsePeers("node-b"));
+    }
+
+    private static UdpInvalidationTransport udpTransport(List<InetSocketAddress> peers,
+                                                         String secret) {
+        return new UdpInvalidationTransport(InetAddress.getLoopbackAddress(), 0, peers,
+                secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InetSocketAddress loopback(int port) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+
+    private static void awaitEvicted(CacheConfig node, String key) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (node.containsKey(key) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static RecipeDto recipe(long id, String title) {
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setId(id);
+        recipeDto.setTitle(title);
+        return recipeDto;
+    }
+
+    private static final class RecordingTransport implements InvalidationTransport {
+        private final List<byte[]> sent;
+        private final int maxBatchBytes;
+
+        RecordingTransport(List<byte[]> sent, int maxBatchBytes) {
+            this.sent = sent;
+            this.maxBatchBytes = maxBatchBytes;
+        }
+
+        @Override
+        public void start(Consumer<byte[]> receiver) {
+        }
+
+        @Override
+        public void send(byte[] batch) {
+            sent.add(batch);
+        }
+
+        @Override
+        public int maxBatchBytes() {
+            return maxBatchBytes;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Отдаёт записанные пачки получателю сразу при старте
+    private static final class ReplayTransport implements InvalidationTransport {
+        private final List<byte[]> batches;
+
+        ReplayTransport(List<byte[]> batches) {
+            this.batches = batches;
+        }
+
+        @Override
+        public void start(Consumer<byte[]> receiver) {
+            batches.forEach(receiver);
+        }
+
+        @Override
+        public void send(byte[] batch) {
+        }
+
+        @Override
+        public int maxBatchBytes() {
+            return 1400;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.recipes.config;
+
+import com.example.recipes.dto.RecipeDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheSnapshotTest {
+
+    private Path snapshotPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        snapshotPath = Files.createTempDirectory("cache-snapshot").resolve("recipes.snapshot");
+    }
+
+    @Test
+    void saveAndLoad_restoresHottestEntries() {
+        // Arrange
+        CacheConfig before = new CacheConfig(1 << 20);
+        before.put("recipes_by_title_pasta", List.of(recipe(1L, "Pasta")),
+                Set.of(CacheConfig.recipeDependency(1L)));
+        before.put("recipes_by_title_soup", List.of(recipe(2L, "Soup")),
+                Set.of(CacheConfig.recipeDependency(2L)));
+        before.get("recipes_by_title_pasta");
+        before.get("recipes_by_title_pasta");
+        before.get("recipes_by_title_soup");
+        new CacheSnapshot(before, snapshotPath.toString(), 1, 600).save();
+
+        // Act
+        CacheConfig after = refreshingCache();
+        new CacheSnapshot(after, snapshotPath.toString(), 1, 600).load();
+
+        // Assert
+        List<?> restored = (List<?>) after.get("recipes_by_title_pasta");
+        assertEquals("Pasta", ((RecipeDto) restored.get(0)).getTitle());
+        assertFalse(after.containsKey("recipes_by_title_soup"));
+        assertEquals(1, after.evictDependents(CacheConfig.recipeDependency(1L)));
+        assertFalse(Files.exists(snapshotPath));
+    }
+
+    @Test
+    void saveAndLoad_restoredRecipeRefreshedOnFirstRead() {
+        // Arrange
+        CacheConfig before = new CacheConfig(1 << 20);
+        before.getRecipe(1L, id -> recipe(id, "Pasta"));
+        new CacheSnapshot(before, snapshotPath.toString(), 10, 600).save();
+
+        // Act
+        CacheConfig after = refreshingCache();
+        new CacheSnapshot(after, snapshotPath.toString(), 10, 600).load();
+        RecipeDto first = after.getRecipe(1L, id -> recipe(id, "Reloaded"));
+        RecipeDto second = after.getRecipe(1L, id -> recipe(id, "Other"));
+
+        // Assert
+        assertEquals("Pasta", first.getTitle());
+        assertEquals("Reloaded", second.getTitle());
+    }
+
+    @Test
+    void load_regionWithoutRefreshAhead_entriesNotRestored() {
+        // Arrange
+        CacheConfig before = new CacheConfig(1 << 20);
+        before.getRecipe(1L, id -> recipe(id, "Pasta"));
+        new CacheSnapshot(before, snapshotPath.toString(), 10, 600).save();
+
+        // Act
+        CacheConfig after = new CacheConfig(1 << 20);
+        new CacheSnapshot(after, snapshotPath.toString(), 10, 600).load();
+
+        // Assert
+        assertEquals("Reloaded", after.getRecipe(1L, id -> recipe(id, "Reloaded")).getTitle());
+    }
+
+    @Test
+    void load_corruptedSnapshot_ignored() throws IOException {
+        // Arrange
+        CacheConfig before = new CacheConfig(1 << 20);
+        before.put("recipe_1", recipe(1L, "Pasta"));
+        new CacheSnapshot(before, snapshotPath.toString(), 10, 600).save();
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(snapshotPath, bytes);
+
+        // Act
+        CacheConfig after = refreshingCache();
+        new CacheSnapshot(after, snapshotPath.toString(), 10, 600).load();
+
+        // Assert
+        assertFalse(after.containsKey("recipe_1"));
+        assertFalse(Files.exists(snapshotPath));
+    }
+
+    // Запись восстанавливается, только если её регион обновляется в фоне
+    private static CacheConfig refreshingCache() {
+        CacheRegionPolicy policy = CacheRegionPolicy.of(600, 0.8);
+        return new CacheConfig(1 << 20, 0, 1024,
+                Map.of(CacheConfig.RECIPE_NAMESPACE, policy,
+                        CacheConfig.RECIPES_BY_TITLE_NAMESPACE, policy),
+                CacheRegionPolicy.ETERNAL, Integer.MAX_VALUE, Runnable::run, System::nanoTime);
+    }
+
+    private static RecipeDto recipe(long id, String title) {
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setId(id);
+        recipeDto.setTitle(title);
+        return recipeDto;
+    }
+}
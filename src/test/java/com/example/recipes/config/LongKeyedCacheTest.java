@@ -0,0 +1,118 @@
+package com.example.recipes.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongKeyedCacheTest {
+
+    @Test
+    void put_overCapacity_evictsUnreferencedEntryFirst() {
+        // Arrange
+        List<Long> evicted = new ArrayList<>();
+        LongKeyedCache<String> cache = new LongKeyedCache<>(3, 0,
+                (key, value, writtenAt) -> evicted.add(key));
+        cache.put(1, "one", 0, cache.generation());
+        cache.put(2, "two", 0, cache.generation());
+        cache.put(3, "three", 0, cache.generation());
+        cache.get(1, 0);
+
+        // Act
+        cache.put(4, "four", 0, cache.generation());
+
+        // Assert
+        assertEquals(List.of(2L), evicted);
+        assertEquals("one", cache.get(1, 0));
+        assertNull(cache.get(2, 0));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void get_expiredEntry_returnsNull() {
+        // Arrange
+        LongKeyedCache<String> cache = new LongKeyedCache<>(8, 100, null);
+        cache.put(1, "one", 0, cache.generation());
+
+        // Act & Assert
+        assertEquals("one", cache.get(1, 99));
+        assertNull(cache.get(1, 100));
+    }
+
+    @Test
+    void invalidateAll_entriesWrittenBeforeAreStale() {
+        // Arrange
+        LongKeyedCache<String> cache = new LongKeyedCache<>(8, 0, null);
+        long loadGeneration = cache.generation();
+        cache.put(1, "one", 0, loadGeneration);
+
+        // Act
+        cache.invalidateAll();
+        cache.put(2, "two", 0, loadGeneration);
+
+        // Assert
+        assertNull(cache.get(1, 0));
+        assertNull(cache.get(2, 0));
+    }
+
+    @Test
+    void removeAndReinsert_manyTimes_keepsEntriesReachable() {
+        // Arrange
+        LongKeyedCache<Long> cache = new LongKeyedCache<>(16, 0, null);
+
+        // Act
+        for (long i = 0; i < 10_000; i++) {
+            cache.put(i, i, 0, cache.generation());
+            if (i % 3 != 0) {
+                cache.remove(i);
+            }
+        }
+
+        // Assert
+        assertTrue(cache.size() <= 16);
+        assertEquals(9999L, cache.get(9999, 0));
+    }
+
+    @Test
+    void concurrentAccess_readersSeeConsistentValues() throws InterruptedException {
+        // Arrange
+        LongKeyedCache<Long> cache = new LongKeyedCache<>(64, 0, null);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+
+        // Act
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 20_000; i++) {
+                        long key = (i * 31L + seed) % 200;
+                        cache.put(key, key * 10, 0, cache.generation());
+                        Long value = cache.get(key, 0);
+                        if (value != null && value != key * 10) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+
+        // Assert
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(0, failures.get());
+        assertTrue(cache.size() <= 64);
+    }
+}
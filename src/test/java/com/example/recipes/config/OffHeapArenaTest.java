@@ -0,0 +1,55 @@
+package com.example.recipes.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapArenaTest {
+
+    @Test
+    void take_returnsWrittenBytesAndRemovesEntry() {
+        // Arrange
+        OffHeapArena<String> arena = new OffHeapArena<>(64, null);
+        arena.put("recipe_1", new byte[]{1, 2, 3}, "meta");
+
+        // Act
+        OffHeapArena.Entry<String> entry = arena.take("recipe_1");
+
+        // Assert
+        assertArrayEquals(new byte[]{1, 2, 3}, entry.getBytes());
+        assertEquals("meta", entry.getMetadata());
+        assertNull(arena.take("recipe_1"));
+        assertEquals(0, arena.liveBytes());
+    }
+
+    @Test
+    void put_wrapsAround_overwritesOldestEntries() {
+        // Arrange
+        List<String> overwritten = new ArrayList<>();
+        OffHeapArena<String> arena = new OffHeapArena<>(30, (key, meta) -> overwritten.add(key));
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            arena.put("recipe_" + i, new byte[10], "meta");
+        }
+
+        // Assert
+        assertEquals(List.of("recipe_0", "recipe_1"), overwritten);
+        assertEquals(3, arena.size());
+        assertNull(arena.peek("recipe_1"));
+        assertNotNull(arena.take("recipe_4"));
+    }
+
+    @Test
+    void put_tooLargeValue_rejected() {
+        // Arrange
+        OffHeapArena<String> arena = new OffHeapArena<>(8, null);
+
+        // Act & Assert
+        assertFalse(arena.put("recipe_1", new byte[9], "meta"));
+        assertEquals(0, arena.size());
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.recipes.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedLruCacheTest {
+
+    @Test
+    void put_overCapacity_evictsAndNotifiesListener() {
+        // Arrange
+        List<String> evicted = new ArrayList<>();
+        SegmentedLruCache<String, Integer> cache =
+                new SegmentedLruCache<>(4, value -> 1, (key, value) -> evicted.add(key));
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            cache.put("key_" + i, i);
+        }
+
+        // Assert
+        assertEquals(4, cache.size());
+        assertEquals(6, evicted.size());
+        assertEquals(9, cache.get("key_9"));
+    }
+
+    @Test
+    void get_frequentlyReadEntry_survivesOneTimeScan() {
+        // Arrange
+        SegmentedLruCache<String, Integer> cache = new SegmentedLruCache<>(8, value -> 1, null);
+        cache.put("hot", 1);
+        cache.get("hot"); // второе обращение переводит запись в защищённый сегмент
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            cache.put("scan_" + i, i);
+        }
+
+        // Assert
+        assertEquals(1, cache.get("hot"));
+    }
+
+    @Test
+    void remove_existingKey_returnsValue() {
+        // Arrange
+        SegmentedLruCache<String, Integer> cache = new SegmentedLruCache<>(8, value -> 1, null);
+        cache.put("recipe_1", 1);
+
+        // Act & Assert
+        assertEquals(1, cache.remove("recipe_1"));
+        assertNull(cache.remove("recipe_1"));
+        assertFalse(cache.containsKey("recipe_1"));
+    }
+
+    @Test
+    void concurrentAccess_keepsSizeWithinCapacity() throws InterruptedException {
+        // Arrange
+        int capacity = 64;
+        SegmentedLruCache<String, Integer> cache = new SegmentedLruCache<>(capacity, value -> 1, null);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+
+        // Act
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 10_000; i++) {
+                        String key = "recipe_" + ((i * 31 + seed) % 200);
+                        cache.put(key, i);
+                        cache.get(key);
+                        if (i % 7 == 0) {
+                            cache.remove(key);
+                        }
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+
+        // Assert
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(0, failures.get());
+        assertTrue(cache.size() <= capacity);
+    }
+
+    @Test
+    void put_heavyEntries_boundsTotalWeight() {
+        // Arrange
+        SegmentedLruCache<String, String> cache =
+                new SegmentedLruCache<>(10_000, value -> value.length(), null);
+
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("key_" + i, "x".repeat(30));
+        }
+        cache.put("too_heavy", "x".repeat(10_001));
+
+        // Assert
+        assertTrue(cache.weight() <= 10_000);
+        assertTrue(cache.size() <= 10_000 / 30);
+        assertFalse(cache.containsKey("too_heavy"));
+        assertEquals(1, cache.rejections());
+    }
+
+    @Test
+    void put_entryHeavierThanStripe_reportedAsRejectionNotEviction() {
+        // Arrange
+        List<String> evicted = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        SegmentedLruCache<String, String> cache = new SegmentedLruCache<>(64, String::length,
+                new SegmentedLruCache.EvictionListener<>() {
+                    @Override
+                    public void onEviction(String key, String value) {
+                        evicted.add(key);
+                    }
+
+                    @Override
+                    public void onRejection(String key, String value) {
+                        rejected.add(key);
+                    }
+                });
+
+        // Act
+        cache.put("too_heavy", "x".repeat(65));
+
+        // Assert
+        assertEquals(List.of("too_heavy"), rejected);
+        assertTrue(evicted.isEmpty());
+        assertEquals(1, cache.rejections());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.recipes.index;
+
+import com.example.recipes.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FullTextIndexTest {
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    private FullTextIndex textIndex;
+
+    @BeforeEach
+    void setUp() {
+        textIndex = new FullTextIndex(recipeRepository, true, 2, 2);
+    }
+
+    @Test
+    void search_beforeRebuild_returnsNull() {
+        // Act & Assert
+        assertNull(textIndex.search("garlic", 10));
+    }
+
+    @Test
+    void rebuild_readsBatchesInParallel_andRanksByBm25() {
+        // Arrange
+        when(recipeRepository.findMaxRecipeId()).thenReturn(3L);
+        when(recipeRepository.findRecipeTexts(0, 2)).thenReturn(List.of(
+                new Object[] {1L, "Garlic bread", "Toast the bread, rub with garlic. Garlic!"},
+                new Object[] {2L, "Tomato soup", "Simmer tomatoes and add a little garlic"}));
+        when(recipeRepository.findRecipeTexts(2, 4)).thenReturn(List.<Object[]>of(
+                new Object[] {3L, null, "Boil pasta"}));
+
+        // Act
+        textIndex.rebuild();
+
+        // Assert
+        List<FullTextIndex.Hit> hits = textIndex.search("Garlic", 10);
+        assertEquals(2, hits.size());
+        assertEquals(1L, hits.get(0).getRecipeId());
+        assertEquals(2L, hits.get(1).getRecipeId());
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+        assertEquals(1, textIndex.search("garlic", 1).size());
+        assertTrue(textIndex.search("caviar", 10).isEmpty());
+    }
+
+    @Test
+    void search_quotedQuery_matchesOnlyConsecutiveWords() {
+        // Arrange
+        when(recipeRepository.findMaxRecipeId()).thenReturn(0L);
+        textIndex.rebuild();
+        textIndex.indexRecipe(1L, "Add olive oil", "Stir");
+        textIndex.indexRecipe(2L, "Oil the olive wood board", "Serve");
+        textIndex.indexRecipe(3L, "Chop an olive", "Oil the pan");
+
+        // Act
+        List<FullTextIndex.Hit> hits = textIndex.search("\"Olive oil\"", 10);
+
+        // Assert
+        assertEquals(1, hits.size());
+        assertEquals(1L, hits.get(0).getRecipeId());
+        assertEquals(3, textIndex.search("olive oil", 10).size());
+    }
+
+    @Test
+    void indexRecipe_updatedAndRemoved_replacesPostings() {
+        // Arrange
+        when(recipeRepository.findMaxRecipeId()).thenReturn(0L);
+        textIndex.rebuild();
+        textIndex.indexRecipe(1L, "Spicy curry", "Cook rice");
+        textIndex.indexRecipe(2L, "Mild curry", "Cook noodles");
+
+        // Act
+        textIndex.indexRecipe(1L, "Lentil stew", "Cook lentils");
+        textIndex.removeRecipe(2L);
+
+        // Assert
+        assertTrue(textIndex.search("curry", 10).isEmpty());
+        assertEquals(1L, textIndex.search("lentils", 10).get(0).getRecipeId());
+    }
+
+    @Test
+    void tokenize_splitsOnNonLetters_andLowercases() {
+        // Act & Assert
+        assertEquals(List.of("борщ", "за", "30", "минут"),
+                FullTextIndex.tokenize("Борщ — за 30 минут!"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.recipes.index;
+
+import com.example.recipes.config.CacheConfig;
+import com.example.recipes.entity.Ingredient;
+import com.example.recipes.entity.Recipe;
+import com.example.recipes.repository.IngredientRepository;
+import com.example.recipes.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndexSynchronizerTest {
+
+    @Mock
+    private CacheConfig cacheConfig;
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    @Mock
+    private IngredientRepository ingredientRepository;
+
+    @Mock
+    private IngredientIndex ingredientIndex;
+
+    @Mock
+    private TitleTrigramIndex titleIndex;
+
+    @Mock
+    private FullTextIndex textIndex;
+
+    @Mock
+    private IngredientAutocomplete ingredientAutocomplete;
+
+    @Mock
+    private RatingIndex ratingIndex;
+
+    private IndexSynchronizer synchronizer;
+
+    @BeforeEach
+    void setUp() {
+        synchronizer = new IndexSynchronizer(cacheConfig, recipeRepository, ingredientRepository,
+                ingredientIndex, titleIndex, textIndex, ingredientAutocomplete, ratingIndex, 0);
+    }
+
+    @Test
+    void reloadRecipe_changedOnOtherNode_reindexesItAndRefreshesOldAndNewIngredients() {
+        // Arrange
+        Recipe recipe = new Recipe(5L, "Soup", "Description", "Instruction");
+        recipe.setIngredients(Set.of(ingredient(10L, "Salt"), ingredient(20L, "Water")));
+        when(ingredientIndex.ingredientsOf(5L)).thenReturn(new long[] {10L, 30L});
+        when(recipeRepository.findByIdInOrderByIdAsc(List.of(5L))).thenReturn(List.of(recipe));
+
+        // Act
+        synchronizer.reloadRecipe(5L);
+
+        // Assert
+        verify(ingredientIndex).indexRecipe(recipe);
+        verify(titleIndex).indexRecipe(5L, "Soup");
+        verify(textIndex).indexRecipe(5L, "Description", "Instruction");
+        verify(ingredientAutocomplete).refreshPopularity(Set.of(10L, 20L, 30L));
+    }
+
+    @Test
+    void reloadRecipe_deletedOnOtherNode_removesItFromIndexes() {
+        // Arrange
+        when(ingredientIndex.ingredientsOf(5L)).thenReturn(new long[] {10L});
+        when(recipeRepository.findByIdInOrderByIdAsc(List.of(5L))).thenReturn(List.of());
+
+        // Act
+        synchronizer.reloadRecipe(5L);
+
+        // Assert
+        verify(ingredientIndex).removeRecipe(5L);
+        verify(titleIndex).removeRecipe(5L);
+        verify(textIndex).removeRecipe(5L);
+        verify(ratingIndex).removeRecipe(5L);
+        verify(ingredientAutocomplete).refreshPopularity(Set.of(10L));
+    }
+
+    @Test
+    void reloadIngredient_renamedOrDeleted_updatesNameIndexes() {
+        // Arrange
+        when(ingredientRepository.findById(10L))
+                .thenReturn(Optional.of(ingredient(10L, "Sea salt")));
+        when(ingredientRepository.findById(20L)).thenReturn(Optional.empty());
+
+        // Act
+        synchronizer.reloadIngredient(10L);
+        synchronizer.reloadIngredient(20L);
+
+        // Assert
+        verify(ingredientIndex).putIngredient(10L, "Sea salt");
+        verify(ingredientAutocomplete).putIngredient(10L, "Sea salt");
+        verify(ingredientIndex).removeIngredient(20L);
+        verify(ingredientAutocomplete).removeIngredient(20L);
+    }
+
+    private static Ingredient ingredient(long id, String name) {
+        Ingredient ingredient = new Ingredient(name);
+        ingredient.setId(id);
+        return ingredient;
+    }
+}
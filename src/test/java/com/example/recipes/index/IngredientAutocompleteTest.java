@@ -0,0 +1,155 @@
+package com.example.recipes.index;
+
+import com.example.recipes.entity.Ingredient;
+import com.example.recipes.repository.IngredientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngredientAutocompleteTest {
+
+    @Mock
+    private IngredientRepository ingredientRepository;
+
+    private IngredientAutocomplete autocomplete;
+
+    @BeforeEach
+    void setUp() {
+        autocomplete = new IngredientAutocomplete(ingredientRepository, true, 10, 2, 0);
+    }
+
+    @Test
+    void suggest_beforeRebuild_returnsNull() {
+        // Act & Assert
+        assertNull(autocomplete.suggest("to", 5));
+    }
+
+    @Test
+    void rebuild_ordersSuggestionsByPopularity() {
+        // Arrange
+        when(ingredientRepository.findIngredientPopularity()).thenReturn(List.of(
+                new Object[] {1L, "Tofu", 3L}, new Object[] {2L, "Tomato", 12L},
+                new Object[] {3L, "Salt", 40L}));
+
+        // Act
+        autocomplete.rebuild();
+
+        // Assert
+        List<IngredientAutocomplete.Suggestion> result = autocomplete.suggest("  TO", 5);
+        assertEquals(2, result.size());
+        assertEquals("Tomato", result.get(0).getName());
+        assertEquals("Tofu", result.get(1).getName());
+    }
+
+    @Test
+    void changes_publishNewTrie() {
+        // Arrange
+        when(ingredientRepository.findIngredientPopularity()).thenReturn(List.<Object[]>of(
+                new Object[] {1L, "Tofu", 1L}));
+        autocomplete.rebuild();
+        when(ingredientRepository.findIngredientPopularity(anyCollection())).thenReturn(
+                List.of(new Object[] {2L, "Tomato", 1L}, new Object[] {5L, "Thyme", 1L}),
+                List.<Object[]>of(new Object[] {2L, "Tomato", 2L}));
+
+        // Act
+        autocomplete.putIngredient(2L, "Tomato");
+        autocomplete.changeUses(Set.of(), Set.of(ingredient(2L, "Tomato"),
+                ingredient(5L, "Thyme")));
+        autocomplete.changeUses(Set.of(), Set.of(ingredient(2L, "Tomato")));
+        autocomplete.putIngredient(1L, "Smoked tofu");
+        autocomplete.publish();
+
+        // Assert
+        assertEquals(List.of("Tomato"),
+                autocomplete.suggest("to", 5).stream()
+                        .map(IngredientAutocomplete.Suggestion::getName).toList());
+        assertEquals(2, autocomplete.suggest("tom", 5).get(0).getPopularity());
+        assertEquals(1, autocomplete.suggest("smoked", 5).get(0).getPopularity());
+        assertEquals(1, autocomplete.suggest("th", 5).size());
+
+        autocomplete.removeIngredient(2L);
+        autocomplete.publish();
+        assertTrue(autocomplete.suggest("to", 5).isEmpty());
+    }
+
+    @Test
+    void changes_beforePublish_servePreviousTrie() {
+        // Arrange
+        when(ingredientRepository.findIngredientPopularity()).thenReturn(List.<Object[]>of(
+                new Object[] {1L, "Tofu", 1L}));
+        autocomplete.rebuild();
+
+        // Act
+        autocomplete.putIngredient(2L, "Tomato");
+        autocomplete.removeIngredient(1L);
+
+        // Assert
+        assertEquals(List.of("Tofu"), autocomplete.suggest("to", 5).stream()
+                .map(IngredientAutocomplete.Suggestion::getName).toList());
+        autocomplete.publish();
+        assertEquals(List.of("Tomato"), autocomplete.suggest("to", 5).stream()
+                .map(IngredientAutocomplete.Suggestion::getName).toList());
+    }
+
+    @Test
+    void correctName_fixesTyposWithinLengthBasedDistance() {
+        // Arrange
+        when(ingredientRepository.findIngredientPopularity()).thenReturn(List.of(
+                new Object[] {1L, "Tomato", 12L}, new Object[] {2L, "Parmesan cheese", 4L},
+                new Object[] {3L, "Fat", 1L}));
+
+        // Act
+        autocomplete.rebuild();
+
+        // Assert
+        assertEquals("tomato", autocomplete.correctName("tomatoe"));
+        assertEquals("parmesan cheese", autocomplete.correctName("parmesan chese"));
+        assertEquals("tomato", autocomplete.correctName("tomato"));
+        assertEquals("oat", autocomplete.correctName("oat"));
+        assertEquals("caviar", autocomplete.correctName("caviar"));
+    }
+
+    @Test
+    void correctName_afterIngredientChanges_usesCurrentNames() {
+        // Arrange
+        when(ingredientRepository.findIngredientPopularity()).thenReturn(List.<Object[]>of(
+                new Object[] {1L, "Tomato", 12L}));
+        autocomplete.rebuild();
+        assertEquals("tomato", autocomplete.correctName("tomatoe"));
+        when(ingredientRepository.findIngredientPopularity(Set.of(1L))).thenReturn(
+                List.<Object[]>of(new Object[] {1L, "Tomato", 13L}));
+
+        // Act
+        autocomplete.changeUses(Set.of(), Set.of(ingredient(1L, "Tomato")));
+        autocomplete.putIngredient(2L, "Cinnamon");
+        autocomplete.putIngredient(1L, "Potato");
+        autocomplete.publish();
+
+        // Assert
+        assertEquals("cinnamon", autocomplete.correctName("cinamon"));
+        assertEquals("potato", autocomplete.correctName("potatoe"));
+        assertEquals("tomatoe", autocomplete.correctName("tomatoe"));
+        assertEquals(13, autocomplete.suggest("pot", 5).get(0).getPopularity());
+    }
+
+    @Test
+    void correctName_beforeRebuild_returnsNameUnchanged() {
+        // Act & Assert
+        assertEquals("tomatoe", autocomplete.correctName("tomatoe"));
+    }
+
+    private static Ingredient ingredient(long id, String name) {
+        Ingredient ingredient = new Ingredient(name);
+        ingredient.setId(id);
+        return ingredient;
+    }
+}
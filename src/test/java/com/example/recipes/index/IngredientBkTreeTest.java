@@ -0,0 +1,79 @@
+package com.example.recipes.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngredientBkTreeTest {
+
+    @Test
+    void closest_findsNameWithinDistance() {
+        // Arrange
+        IngredientBkTree tree = IngredientBkTree.build(Map.of(
+                "tomato", 10L, "potato", 8L, "parmesan cheese", 3L, "salt", 40L));
+
+        // Act & Assert
+        assertEquals("tomato", tree.closest("tomatoe", 1));
+        assertEquals("parmesan cheese", tree.closest("parmesan chese", 2));
+        assertEquals("salt", tree.closest("salt", 0));
+        assertNull(tree.closest("pepper", 2));
+    }
+
+    @Test
+    void closest_equalDistance_prefersMorePopularName() {
+        // Arrange
+        IngredientBkTree tree = IngredientBkTree.build(Map.of("rice", 5L, "ride", 50L));
+
+        // Act & Assert
+        assertEquals("rice", tree.closest("rice", 1));
+        assertEquals("ride", tree.closest("rime", 1));
+    }
+
+    @Test
+    void closest_largeDictionary_matchesLinearScan() {
+        // Arrange
+        Map<String, Long> names = new HashMap<>();
+        String[] words = {"basil", "bacon", "banana", "barley", "beans", "beef", "beet",
+            "butter", "buttermilk", "cabbage", "carrot", "celery", "cheddar", "chicken",
+            "chili", "chives", "cinnamon", "cloves", "cocoa", "coconut", "cod", "corn"};
+        for (int i = 0; i < words.length; i++) {
+            names.put(words[i], (long) i);
+        }
+        IngredientBkTree tree = IngredientBkTree.build(names);
+
+        // Act & Assert
+        for (String query : new String[] {"bacn", "buter", "carot", "cinamon", "chedar", "xyz"}) {
+            String expected = null;
+            int bestDistance = 2;
+            long bestPopularity = -1;
+            for (String word : words) {
+                int distance = IngredientBkTree.distance(query, word);
+                if (distance < bestDistance || distance == bestDistance
+                        && names.get(word) > bestPopularity) {
+                    expected = word;
+                    bestDistance = distance;
+                    bestPopularity = names.get(word);
+                }
+            }
+            assertEquals(expected, tree.closest(query, 2), query);
+        }
+    }
+
+    @Test
+    void distance_countsInsertionsDeletionsAndSubstitutions() {
+        // Act & Assert
+        assertEquals(0, IngredientBkTree.distance("egg", "egg"));
+        assertEquals(1, IngredientBkTree.distance("tomatoe", "tomato"));
+        assertEquals(3, IngredientBkTree.distance("kitten", "sitting"));
+        assertEquals(4, IngredientBkTree.distance("", "salt"));
+    }
+
+    @Test
+    void build_emptyDictionary_findsNothing() {
+        // Act & Assert
+        assertNull(IngredientBkTree.build(Map.of()).closest("salt", 2));
+    }
+}
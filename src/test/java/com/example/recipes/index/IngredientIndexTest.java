@@ -0,0 +1,182 @@
+package com.example.recipes.index;
+
+import com.example.recipes.entity.Ingredient;
+import com.example.recipes.entity.Recipe;
+import com.example.recipes.repository.IngredientRepository;
+import com.example.recipes.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngredientIndexTest {
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    @Mock
+    private IngredientRepository ingredientRepository;
+
+    private IngredientIndex ingredientIndex;
+
+    @BeforeEach
+    void setUp() {
+        ingredientIndex = new IngredientIndex(recipeRepository, ingredientRepository, true, 2);
+    }
+
+    @Test
+    void findRecipesWithAll_beforeRebuild_returnsNull() {
+        // Act & Assert
+        assertNull(ingredientIndex.findRecipesWithAll(List.of("salt")));
+        assertFalse(ingredientIndex.isReady());
+    }
+
+    @Test
+    void rebuild_loadsPairsInIdRanges_andIntersectsIngredients() {
+        // Arrange
+        when(ingredientRepository.findAll()).thenReturn(List.of(
+                ingredient(10L, "Salt"), ingredient(20L, "Sugar"), ingredient(30L, "Flour")));
+        when(recipeRepository.findMaxRecipeId()).thenReturn(3L);
+        when(recipeRepository.findRecipeIngredientPairs(0, 2)).thenReturn(List.of(
+                new Object[] {1L, 10L}, new Object[] {1L, 20L}, new Object[] {2L, 10L}));
+        when(recipeRepository.findRecipeIngredientPairs(2, 4)).thenReturn(List.<Object[]>of(
+                new Object[] {3L, 10L}, new Object[] {3L, 20L}, new Object[] {3L, 30L}));
+
+        // Act
+        ingredientIndex.rebuild();
+
+        // Assert
+        assertArrayEquals(new long[] {1L, 3L},
+                ingredientIndex.findRecipesWithAll(List.of("salt", "sugar")));
+        assertArrayEquals(new long[] {3L},
+                ingredientIndex.findRecipesWithAll(List.of("flour", "salt")));
+        assertArrayEquals(new long[0], ingredientIndex.findRecipesWithAll(List.of("unknown")));
+    }
+
+    @Test
+    void indexRecipe_replacesPreviousIngredients() {
+        // Arrange
+        when(ingredientRepository.findAll()).thenReturn(List.of(ingredient(10L, "Salt")));
+        when(recipeRepository.findMaxRecipeId()).thenReturn(0L);
+        ingredientIndex.rebuild();
+        Recipe recipe = new Recipe(5L, "Soup", "Description", "Instruction");
+        recipe.setIngredients(Set.of(ingredient(10L, "Salt")));
+        ingredientIndex.indexRecipe(recipe);
+
+        // Act
+        recipe.setIngredients(Set.of(ingredient(40L, "Pepper")));
+        ingredientIndex.indexRecipe(recipe);
+
+        // Assert
+        assertArrayEquals(new long[0], ingredientIndex.findRecipesWithAll(List.of("salt")));
+        assertArrayEquals(new long[] {5L}, ingredientIndex.findRecipesWithAll(List.of("pepper")));
+    }
+
+    @Test
+    void putIngredient_renamed_searchUsesNewName() {
+        // Arrange
+        when(ingredientRepository.findAll()).thenReturn(List.of(ingredient(10L, "Salt")));
+        when(recipeRepository.findMaxRecipeId()).thenReturn(1L);
+        when(recipeRepository.findRecipeIngredientPairs(0, 2))
+                .thenReturn(List.<Object[]>of(new Object[] {1L, 10L}));
+        ingredientIndex.rebuild();
+
+        // Act
+        ingredientIndex.putIngredient(10L, "Sea salt");
+        ingredientIndex.removeRecipe(2L);
+
+        // Assert
+        assertArrayEquals(new long[0], ingredientIndex.findRecipesWithAll(List.of("salt")));
+        assertArrayEquals(new long[] {1L},
+                ingredientIndex.findRecipesWithAll(List.of("sea salt")));
+    }
+
+    @Test
+    void findPantryMatches_ranksByMissingCount_andSkipsRecipesMissingTooMuch() {
+        // Arrange
+        when(ingredientRepository.findAll()).thenReturn(List.of(
+                ingredient(10L, "Salt"), ingredient(20L, "Sugar"), ingredient(30L, "Flour"),
+                ingredient(40L, "Egg")));
+        when(recipeRepository.findMaxRecipeId()).thenReturn(3L);
+        when(recipeRepository.findRecipeIngredientPairs(0, 2)).thenReturn(List.of(
+                new Object[] {1L, 10L}, new Object[] {1L, 20L}, new Object[] {1L, 30L},
+                new Object[] {2L, 10L}, new Object[] {2L, 40L}));
+        when(recipeRepository.findRecipeIngredientPairs(2, 4)).thenReturn(List.<Object[]>of(
+                new Object[] {3L, 30L}, new Object[] {3L, 40L}));
+        ingredientIndex.rebuild();
+
+        // Act
+        List<IngredientIndex.PantryMatch> matches =
+                ingredientIndex.findPantryMatches(List.of("salt", "egg"), 1);
+
+        // Assert
+        assertEquals(2, matches.size());
+        assertEquals(2L, matches.get(0).getRecipeId());
+        assertEquals(0, matches.get(0).getMissingCount());
+        assertEquals(3L, matches.get(1).getRecipeId());
+        assertEquals(1, matches.get(1).getMissingCount());
+    }
+
+    @Test
+    void findPantryMatches_afterRecipeChanged_usesNewIngredientCount() {
+        // Arrange
+        when(ingredientRepository.findAll()).thenReturn(List.of(ingredient(10L, "Salt")));
+        when(recipeRepository.findMaxRecipeId()).thenReturn(0L);
+        ingredientIndex.rebuild();
+        Recipe recipe = new Recipe(5L, "Soup", "Description", "Instruction");
+        recipe.setIngredients(Set.of(ingredient(10L, "Salt"), ingredient(20L, "Water"),
+                ingredient(30L, "Onion")));
+        ingredientIndex.indexRecipe(recipe);
+
+        // Act
+        recipe.setIngredients(Set.of(ingredient(10L, "Salt"), ingredient(20L, "Water")));
+        ingredientIndex.indexRecipe(recipe);
+        ingredientIndex.removeIngredient(20L);
+
+        // Assert
+        List<IngredientIndex.PantryMatch> matches =
+                ingredientIndex.findPantryMatches(List.of("salt"), 0);
+        assertEquals(1, matches.size());
+        assertEquals(5L, matches.get(0).getRecipeId());
+    }
+
+    @Test
+    void findPantryMatches_afterRecipeRemoved_keepsOtherRecipesCounts() {
+        // Arrange
+        when(ingredientRepository.findAll()).thenReturn(List.of(ingredient(10L, "Salt")));
+        when(recipeRepository.findMaxRecipeId()).thenReturn(0L);
+        ingredientIndex.rebuild();
+        Recipe soup = new Recipe(5L, "Soup", "Description", "Instruction");
+        soup.setIngredients(Set.of(ingredient(10L, "Salt"), ingredient(20L, "Water")));
+        Recipe stew = new Recipe(6L, "Stew", "Description", "Instruction");
+        stew.setIngredients(Set.of(ingredient(10L, "Salt"), ingredient(20L, "Water"),
+                ingredient(30L, "Onion")));
+        ingredientIndex.indexRecipe(soup);
+        ingredientIndex.indexRecipe(stew);
+
+        // Act
+        ingredientIndex.removeRecipe(5L);
+
+        // Assert
+        List<IngredientIndex.PantryMatch> matches =
+                ingredientIndex.findPantryMatches(List.of("salt", "water"), 1);
+        assertEquals(1, matches.size());
+        assertEquals(6L, matches.get(0).getRecipeId());
+        assertEquals(1, matches.get(0).getMissingCount());
+        assertTrue(ingredientIndex.findPantryMatches(List.of("salt", "water"), 0).isEmpty());
+    }
+
+    private static Ingredient ingredient(long id, String name) {
+        Ingredient ingredient = new Ingredient(name);
+        ingredient.setId(id);
+        return ingredient;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.recipes.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngredientTrieTest {
+
+    @Test
+    void complete_returnsPrefixMatchesInRankOrder() {
+        // Arrange
+        IngredientTrie trie = IngredientTrie.build(List.of(
+                suggestion(1L, "Tomato", 50), suggestion(2L, "Salt", 40),
+                suggestion(3L, "Tofu", 10), suggestion(4L, "Tomatillo", 5)), 10);
+
+        // Act
+        List<IngredientAutocomplete.Suggestion> result = trie.complete("to", 10);
+
+        // Assert
+        assertEquals(List.of(1L, 3L, 4L), ids(result));
+        assertEquals(List.of(1L, 4L), ids(trie.complete("tomat", 10)));
+        assertEquals(List.of(4L), ids(trie.complete("tomati", 10)));
+        assertTrue(trie.complete("tz", 10).isEmpty());
+        assertTrue(trie.complete("tomatoes", 10).isEmpty());
+    }
+
+    @Test
+    void complete_ignoresCaseOfStoredNames_andKeepsOriginalSpelling() {
+        // Arrange
+        IngredientTrie trie = IngredientTrie.build(List.of(suggestion(1L, "Sea Salt", 3)), 10);
+
+        // Act
+        List<IngredientAutocomplete.Suggestion> result = trie.complete("sea s", 10);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals("Sea Salt", result.get(0).getName());
+        assertEquals(3, result.get(0).getPopularity());
+    }
+
+    @Test
+    void complete_keepsOnlyTopKPerNode_andRespectsLimit() {
+        // Arrange
+        IngredientTrie trie = IngredientTrie.build(List.of(
+                suggestion(1L, "Basil", 9), suggestion(2L, "Bay leaf", 8),
+                suggestion(3L, "Bacon", 7), suggestion(4L, "Banana", 6)), 2);
+
+        // Act & Assert
+        assertEquals(List.of(1L, 2L), ids(trie.complete("ba", 10)));
+        assertEquals(List.of(1L), ids(trie.complete("b", 1)));
+        assertEquals(List.of(3L), ids(trie.complete("bac", 10)));
+        assertEquals(4, trie.size());
+    }
+
+    @Test
+    void build_emptyList_completesNothing() {
+        // Act & Assert
+        assertTrue(IngredientTrie.build(List.of(), 10).complete("a", 10).isEmpty());
+    }
+
+    private static IngredientAutocomplete.Suggestion suggestion(long id, String name,
+                                                               long popularity) {
+        return new IngredientAutocomplete.Suggestion(id, name, popularity);
+    }
+
+    private static List<Long> ids(List<IngredientAutocomplete.Suggestion> suggestions) {
+        return suggestions.stream().map(IngredientAutocomplete.Suggestion::getId).toList();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.recipes.index;
+
+import com.example.recipes.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatingIndexTest {
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    private RatingIndex ratingIndex;
+
+    @BeforeEach
+    void setUp() {
+        ratingIndex = new RatingIndex(reviewRepository, true);
+    }
+
+    @Test
+    void findTopRated_beforeRebuild_returnsNull() {
+        // Act & Assert
+        assertNull(ratingIndex.findTopRated(10, 1));
+    }
+
+    @Test
+    void rebuild_ordersByAverageThenReviewCount() {
+        // Arrange
+        when(reviewRepository.findRatingTotals()).thenReturn(List.of(
+                new Object[] {1L, 8L, 2L},    // 4.0
+                new Object[] {2L, 15L, 3L},   // 5.0
+                new Object[] {3L, 20L, 5L})); // 4.0, но отзывов больше
+
+        // Act
+        ratingIndex.rebuild();
+
+        // Assert
+        assertEquals(List.of(2L, 3L, 1L), recipeIds(ratingIndex.findTopRated(10, 1)));
+        assertEquals(List.of(2L, 3L), recipeIds(ratingIndex.findTopRated(2, 1)));
+        assertEquals(List.of(3L), recipeIds(ratingIndex.findTopRated(10, 4)));
+    }
+
+    @Test
+    void refreshRating_movesRecipeAndDropsItWithoutReviews() {
+        // Arrange
+        when(reviewRepository.findRatingTotals()).thenReturn(List.of(
+                new Object[] {1L, 5L, 1L}, new Object[] {2L, 4L, 1L}));
+        ratingIndex.rebuild();
+        when(reviewRepository.findRatingTotals(1L)).thenReturn(List.<Object[]>of(
+                new Object[] {1L, 6L, 2L}));  // (5 + 1) / 2 = 3.0
+        when(reviewRepository.findRatingTotals(3L)).thenReturn(List.<Object[]>of(
+                new Object[] {3L, 10L, 2L}), List.of()); // новый рецепт: 5.0
+
+        // Act
+        ratingIndex.refreshRating(1L);
+        ratingIndex.refreshRating(3L);
+
+        // Assert
+        assertEquals(List.of(3L, 2L, 1L), recipeIds(ratingIndex.findTopRated(10, 1)));
+        assertEquals(3.0, ratingIndex.findTopRated(10, 1).get(2).getAverage());
+
+        // Act
+        ratingIndex.refreshRating(3L);
+        ratingIndex.removeRecipe(2L);
+
+        // Assert
+        assertEquals(List.of(1L), recipeIds(ratingIndex.findTopRated(10, 1)));
+    }
+
+    @Test
+    void refreshRating_duringRebuild_notCountedTwice() {
+        // Arrange
+        when(reviewRepository.findRatingTotals(1L)).thenReturn(List.<Object[]>of(
+                new Object[] {1L, 9L, 2L}));
+        when(reviewRepository.findRatingTotals()).thenAnswer(invocation -> {
+            // Отзыв зафиксирован во время построения, и построение уже его видит
+            ratingIndex.refreshRating(1L);
+            return List.<Object[]>of(new Object[] {1L, 9L, 2L});
+        });
+
+        // Act
+        ratingIndex.rebuild();
+
+        // Assert
+        RatingIndex.Rating rating = ratingIndex.findTopRated(10, 1).get(0);
+        assertEquals(9L, rating.getRatingSum());
+        assertEquals(2, rating.getReviewCount());
+    }
+
+    @Test
+    void refreshRating_loadFails_indexStopsAnsweringUntilRebuilt() {
+        // Arrange
+        when(reviewRepository.findRatingTotals()).thenReturn(List.<Object[]>of(
+                new Object[] {1L, 5L, 1L}));
+        ratingIndex.rebuild();
+        when(reviewRepository.findRatingTotals(1L)).thenThrow(new IllegalStateException("down"));
+
+        // Act
+        ratingIndex.refreshRating(1L);
+
+        // Assert
+        assertNull(ratingIndex.findTopRated(10, 1));
+        ratingIndex.rebuild();
+        assertEquals(List.of(1L), recipeIds(ratingIndex.findTopRated(10, 1)));
+    }
+
+    private static List<Long> recipeIds(List<RatingIndex.Rating> ratings) {
+        return ratings.stream().map(RatingIndex.Rating::getRecipeId).toList();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.recipes.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeIdBitmapTest {
+
+    @Test
+    void add_sparseAndDenseIds_keepsSortedUniqueIds() {
+        // Arrange
+        RecipeIdBitmap bitmap = new RecipeIdBitmap();
+
+        // Act
+        for (long id = 0; id < 10_000; id++) {
+            bitmap.add(id * 2); // плотный блок превращается в битовую карту
+        }
+        bitmap.add(5_000_000_000L - 1_000_000_000L);
+        bitmap.add(70_000);
+        boolean addedTwice = bitmap.add(70_000);
+
+        // Assert
+        assertFalse(addedTwice);
+        assertEquals(10_002, bitmap.cardinality());
+        long[] ids = bitmap.toArray();
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i - 1] < ids[i]);
+        }
+        assertTrue(bitmap.contains(19_998));
+        assertFalse(bitmap.contains(19_999));
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(RecipeIdBitmap.MAX_ID + 1));
+    }
+
+    @Test
+    void and_randomSets_matchesReferenceIntersection() {
+        // Arrange
+        Random random = new Random(42);
+        TreeSet<Long> first = new TreeSet<>();
+        TreeSet<Long> second = new TreeSet<>();
+        TreeSet<Long> third = new TreeSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            first.add((long) random.nextInt(300_000));
+            second.add((long) random.nextInt(300_000));
+            if (i % 10 == 0) {
+                third.add((long) random.nextInt(300_000));
+            }
+        }
+        TreeSet<Long> expected = new TreeSet<>(first);
+        expected.retainAll(second);
+        expected.retainAll(third);
+
+        // Act
+        RecipeIdBitmap result = RecipeIdBitmap.and(List.of(bitmapOf(first), bitmapOf(second),
+                bitmapOf(third)));
+
+        // Assert
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(),
+                result.toArray());
+    }
+
+    @Test
+    void remove_belowThreshold_convertsBackAndDropsEmptyBlocks() {
+        // Arrange
+        RecipeIdBitmap bitmap = new RecipeIdBitmap();
+        for (long id = 0; id < 5_000; id++) {
+            bitmap.add(id);
+        }
+
+        // Act
+        for (long id = 0; id < 4_999; id++) {
+            assertTrue(bitmap.remove(id));
+        }
+        boolean removedMissing = bitmap.remove(1);
+        bitmap.remove(4_999);
+
+        // Assert
+        assertFalse(removedMissing);
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.toArray().length);
+    }
+
+    @Test
+    void orInPlace_doesNotModifyArgument() {
+        // Arrange
+        RecipeIdBitmap dense = new RecipeIdBitmap();
+        for (long id = 0; id < 5_000; id++) {
+            dense.add(id * 3);
+        }
+        RecipeIdBitmap sparse = RecipeIdBitmap.of(1, 2, 100_000);
+
+        // Act
+        sparse.orInPlace(dense);
+
+        // Assert
+        assertEquals(5_003, sparse.cardinality());
+        assertEquals(5_000, dense.cardinality());
+        assertFalse(dense.contains(1));
+    }
+
+    private static RecipeIdBitmap bitmapOf(TreeSet<Long> ids) {
+        RecipeIdBitmap bitmap = new RecipeIdBitmap();
+        ids.forEach(bitmap::add);
+        return bitmap;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.recipes.index;
+
+import com.example.recipes.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TitleTrigramIndexTest {
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    private TitleTrigramIndex titleIndex;
+
+    @BeforeEach
+    void setUp() {
+        titleIndex = new TitleTrigramIndex(recipeRepository, true, 2);
+    }
+
+    @Test
+    void findRecipesContaining_beforeRebuild_returnsNull() {
+        // Act & Assert
+        assertNull(titleIndex.findRecipesContaining("pasta"));
+        assertFalse(titleIndex.isReady());
+    }
+
+    @Test
+    void rebuild_loadsTitlesInIdRanges_andFindsSubstringIgnoringCase() {
+        // Arrange
+        when(recipeRepository.findMaxRecipeId()).thenReturn(3L);
+        when(recipeRepository.findRecipeTitles(0, 2)).thenReturn(List.of(
+                new Object[] {1L, "Pasta Carbonara"}, new Object[] {2L, "Tomato Soup"}));
+        when(recipeRepository.findRecipeTitles(2, 4)).thenReturn(List.<Object[]>of(
+                new Object[] {3L, "Pea soup with pasta"}));
+
+        // Act
+        titleIndex.rebuild();
+
+        // Assert
+        assertArrayEquals(new long[] {1L, 3L}, titleIndex.findRecipesContaining("PASTA"));
+        assertArrayEquals(new long[] {2L, 3L}, titleIndex.findRecipesContaining("soup"));
+        assertArrayEquals(new long[] {1L}, titleIndex.findRecipesContaining("a carb"));
+        assertArrayEquals(new long[0], titleIndex.findRecipesContaining("pizza"));
+    }
+
+    @Test
+    void findRecipesContaining_trigramsNotAdjacent_excludesCandidate() {
+        // Arrange
+        when(recipeRepository.findMaxRecipeId()).thenReturn(0L);
+        titleIndex.rebuild();
+        titleIndex.indexRecipe(1L, "abcd xbcde");
+
+        // Act & Assert
+        assertArrayEquals(new long[0], titleIndex.findRecipesContaining("abcde"));
+        assertArrayEquals(new long[] {1L}, titleIndex.findRecipesContaining("bcde"));
+    }
+
+    @Test
+    void findRecipesContaining_repeatedTrigram_verifiesTitle() {
+        // Arrange
+        when(recipeRepository.findMaxRecipeId()).thenReturn(0L);
+        titleIndex.rebuild();
+        titleIndex.indexRecipe(1L, "aaa");
+        titleIndex.indexRecipe(2L, "aaaa");
+
+        // Act & Assert
+        assertArrayEquals(new long[] {2L}, titleIndex.findRecipesContaining("aaaa"));
+        assertArrayEquals(new long[] {1L, 2L}, titleIndex.findRecipesContaining("aaa"));
+    }
+
+    @Test
+    void findRecipesContaining_shortText_scansTitles() {
+        // Arrange
+        when(recipeRepository.findMaxRecipeId()).thenReturn(0L);
+        titleIndex.rebuild();
+        titleIndex.indexRecipe(7L, "Egg");
+        titleIndex.indexRecipe(2L, "Beef stew");
+
+        // Act & Assert
+        assertArrayEquals(new long[] {2L, 7L}, titleIndex.findRecipesContaining("e"));
+        assertArrayEquals(new long[] {7L}, titleIndex.findRecipesContaining("gg"));
+    }
+
+    @Test
+    void indexRecipe_renamed_andRemoved_updatesPostings() {
+        // Arrange
+        when(recipeRepository.findMaxRecipeId()).thenReturn(0L);
+        titleIndex.rebuild();
+        titleIndex.indexRecipe(1L, "Pasta");
+        titleIndex.indexRecipe(2L, "Pasta salad");
+
+        // Act
+        titleIndex.indexRecipe(1L, "Risotto");
+        titleIndex.removeRecipe(2L);
+
+        // Assert
+        assertArrayEquals(new long[0], titleIndex.findRecipesContaining("pasta"));
+        assertArrayEquals(new long[] {1L}, titleIndex.findRecipesContaining("sotto"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.recipes.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngredientQueryTest {
+
+    @Test
+    void cacheKey_sameSetInAnyOrderAndCase_isEqual() {
+        // Act
+        String first = IngredientQuery.of(List.of("Salt", "egg")).cacheKey();
+        String second = IngredientQuery.of(List.of("egg ", "SALT", "salt")).cacheKey();
+
+        // Assert
+        assertEquals("recipes_by_ingredients_egg,salt", first);
+        assertEquals(first, second);
+    }
+
+    @Test
+    void fromCacheKey_namesWithSeparator_roundTrip() {
+        // Arrange
+        IngredientQuery query = IngredientQuery.of(List.of("salt, coarse", "100% cocoa"));
+
+        // Act
+        IngredientQuery parsed = IngredientQuery.fromCacheKey(query.cacheKey());
+
+        // Assert
+        assertEquals(query.getNames(), parsed.getNames());
+        assertNull(IngredientQuery.fromCacheKey("recipes_by_title_salt"));
+    }
+
+    @Test
+    void subsetCacheKeys_largestSubsetsFirstAndLimited() {
+        // Arrange
+        IngredientQuery query = IngredientQuery.of(List.of("a", "b", "c"));
+
+        // Act
+        List<String> keys = query.subsetCacheKeys(32);
+        List<String> limited = IngredientQuery.of(List.of("a", "b", "c", "d", "e", "f", "g",
+                "h", "i", "j")).subsetCacheKeys(5);
+
+        // Assert
+        assertEquals(List.of(
+                "recipes_by_ingredients_a,b",
+                "recipes_by_ingredients_a,c",
+                "recipes_by_ingredients_b,c",
+                "recipes_by_ingredients_a",
+                "recipes_by_ingredients_b",
+                "recipes_by_ingredients_c"), keys);
+        assertEquals(5, limited.size());
+    }
+
+    @Test
+    void matches_recipeWithAllIngredients_returnsTrue() {
+        // Arrange
+        IngredientQuery query = IngredientQuery.of(List.of("Salt", "Egg"));
+
+        // Act & Assert
+        assertTrue(query.matches(Set.of("salt", "egg", "flour")));
+        assertFalse(query.matches(Set.of("salt", "flour")));
+    }
+}
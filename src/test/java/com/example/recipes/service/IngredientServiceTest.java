@@ -1,23 +1,31 @@
 package com.example.recipes.service;
 
+import com.example.recipes.config.CacheConfig;
 import com.example.recipes.dto.IngredientDto;
 import com.example.recipes.entity.Ingredient;
 import com.example.recipes.entity.Recipe;
 import com.example.recipes.exceptions.NotFoundException;
+import com.example.recipes.index.IngredientAutocomplete;
+import com.example.recipes.index.IngredientIndex;
+import com.example.recipes.exceptions.ServiceUnavailableException;
 import com.example.recipes.exceptions.ValidationException;
 import com.example.recipes.mapper.IngredientMapper;
 import com.example.recipes.repository.IngredientRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +34,15 @@ class IngredientServiceTest {
     @InjectMocks
     private IngredientService ingredientService;
 
+    @Mock
+    private CacheConfig cacheService;
+
+    @Mock
+    private IngredientIndex ingredientIndex;
+
+    @Mock
+    private IngredientAutocomplete ingredientAutocomplete;
+
     @Mock
     private IngredientRepository ingredientRepository;
 
@@ -188,6 +205,33 @@ class IngredientServiceTest {
         verify(ingredientRepository, times(1)).save(any(Ingredient.class));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateIngredient_rename_evictsQueriesNamingOldOrNewName() {
+        // Arrange
+        Long ingredientId = 1L;
+        IngredientDto ingredientDto = new IngredientDto();
+        ingredientDto.setName("Flour");
+
+        Ingredient ingredient = new Ingredient();
+        ingredient.setId(ingredientId);
+        ingredient.setName("Sugar");
+
+        when(ingredientRepository.findById(ingredientId)).thenReturn(Optional.of(ingredient));
+        ArgumentCaptor<Predicate<String>> evicted = ArgumentCaptor.forClass(Predicate.class);
+
+        // Act
+        ingredientService.updateIngredient(ingredientId, ingredientDto);
+
+        // Assert
+        verify(cacheService).evictDependents(CacheConfig.ingredientDependency(ingredientId));
+        verify(cacheService).evictIf(eq(IngredientQuery.NAMESPACE), evicted.capture());
+        assertTrue(evicted.getValue().test(IngredientQuery.of(List.of("flour")).cacheKey()));
+        assertTrue(evicted.getValue().test(
+                IngredientQuery.of(List.of("Egg", "sugar")).cacheKey()));
+        assertFalse(evicted.getValue().test(IngredientQuery.of(List.of("egg")).cacheKey()));
+    }
+
 
     @Test
     void updateIngredient_invalidId_throwsValidationException() {
@@ -294,4 +338,47 @@ class IngredientServiceTest {
         verify(ingredientRepository).save(existingIngredient);
     }
 
+
+    @Test
+    void suggestIngredients_readyTrie_returnsSuggestionsWithoutDatabase() {
+        // Arrange
+        when(ingredientAutocomplete.getMaxSuggestions()).thenReturn(20);
+        when(ingredientAutocomplete.suggest("to", 5)).thenReturn(List.of(
+                new IngredientAutocomplete.Suggestion(3L, "Tomato", 40),
+                new IngredientAutocomplete.Suggestion(8L, "Tofu", 2)));
+
+        // Act
+        List<IngredientDto> result = ingredientService.suggestIngredients("to", 5);
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(3L, result.get(0).getId());
+        assertEquals("Tomato", result.get(0).getName());
+        assertEquals("Tofu", result.get(1).getName());
+        verifyNoInteractions(ingredientRepository);
+    }
+
+    @Test
+    void suggestIngredients_trieNotBuilt_throwsServiceUnavailableException() {
+        // Arrange
+        when(ingredientAutocomplete.getMaxSuggestions()).thenReturn(20);
+        when(ingredientAutocomplete.suggest("to", 5)).thenReturn(null);
+
+        // Act & Assert
+        assertThrows(ServiceUnavailableException.class,
+                () -> ingredientService.suggestIngredients("to", 5));
+        verifyNoInteractions(ingredientRepository);
+    }
+
+    @Test
+    void suggestIngredients_invalidArguments_throwsValidationException() {
+        // Arrange
+        when(ingredientAutocomplete.getMaxSuggestions()).thenReturn(20);
+
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> ingredientService.suggestIngredients(" ", 5));
+        assertThrows(ValidationException.class,
+                () -> ingredientService.suggestIngredients("to", 21));
+    }
 }
@@ -0,0 +1,95 @@
+package com.example.recipes.service;
+
+import com.example.recipes.dto.RecipeDto;
+import com.example.recipes.entity.Recipe;
+import com.example.recipes.mapper.RecipeMapper;
+import com.example.recipes.repository.RecipeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecipeExportServiceTest {
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    @Mock
+    private RecipeMapper recipeMapper;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private RecipeExportService recipeExportService;
+
+    @BeforeEach
+    void setUp() {
+        recipeExportService = new RecipeExportService(recipeRepository, recipeMapper,
+                new ObjectMapper(), entityManager);
+    }
+
+    @Test
+    void exportRecipes_writesOneJsonObjectPerLine_andClosesCursor() throws IOException {
+        // Arrange
+        Recipe pasta = new Recipe(1L, "Pasta", "Description", "Instruction");
+        Recipe soup = new Recipe(2L, "Soup", "Description", "Instruction");
+        AtomicBoolean closed = new AtomicBoolean();
+        when(recipeRepository.streamAllForExport())
+                .thenReturn(Stream.of(pasta, soup).onClose(() -> closed.set(true)));
+        when(recipeMapper.convertToDto(pasta)).thenReturn(dto(1L, "Pasta"));
+        when(recipeMapper.convertToDto(soup)).thenReturn(dto(2L, "Soup"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long exported = recipeExportService.exportRecipes(out);
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, exported);
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"title\":\"Pasta\""));
+        assertTrue(lines[1].contains("\"title\":\"Soup\""));
+        assertTrue(closed.get());
+        verify(entityManager, times(1)).clear();
+    }
+
+    @Test
+    void exportRecipes_largeCatalogue_clearsPersistenceContextAfterEachChunk()
+            throws IOException {
+        // Arrange
+        int count = RecipeRepository.EXPORT_FETCH_SIZE * 2 + 1;
+        when(recipeRepository.streamAllForExport()).thenReturn(LongStream.rangeClosed(1, count)
+                .mapToObj(id -> new Recipe(id, "Recipe " + id, "Description", "Instruction")));
+        when(recipeMapper.convertToDto(any(Recipe.class)))
+                .thenAnswer(call -> dto(((Recipe) call.getArgument(0)).getId(), "Recipe"));
+
+        // Act
+        long exported = recipeExportService.exportRecipes(new ByteArrayOutputStream());
+
+        // Assert
+        assertEquals(count, exported);
+        verify(entityManager, times(3)).clear();
+    }
+
+    private static RecipeDto dto(Long id, String title) {
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setId(id);
+        recipeDto.setTitle(title);
+        return recipeDto;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.recipes.service;
+
+import com.example.recipes.config.CacheConfig;
+import com.example.recipes.config.CachedResponse;
+import com.example.recipes.dto.CursorPage;
+import com.example.recipes.dto.RecipeDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecipeResponseCacheTest {
+
+    @Mock
+    private RecipeService recipeService;
+
+    @Mock
+    private CacheConfig cacheService;
+
+    private RecipeResponseCache recipeResponseCache;
+
+    @BeforeEach
+    void setUp() {
+        recipeResponseCache = new RecipeResponseCache(recipeService, cacheService,
+                new ObjectMapper());
+    }
+
+    @Test
+    void getRecipeById_rendersJsonWithStrongETag() {
+        // Arrange
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setId(1L);
+        recipeDto.setTitle("Pasta");
+        when(recipeService.getRecipeById(1L)).thenReturn(recipeDto);
+        renderThroughCache();
+
+        // Act
+        CachedResponse response = recipeResponseCache.getRecipeById(1L);
+
+        // Assert
+        String json = new String(response.getBody(), StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"title\":\"Pasta\""));
+        assertTrue(response.getETag().startsWith("\""));
+        assertTrue(response.getDependencies().contains(CacheConfig.recipeDependency(1L)));
+        verify(cacheService, times(1)).getRecipeResponse(eq(1L), same(recipeDto), any());
+    }
+
+    @Test
+    void getAllRecipes_rendersPageWithCursorAndSharedDependency() {
+        // Arrange
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setId(7L);
+        String cursor = PageCursor.encode(7L);
+        when(recipeService.getAllRecipes(null, 1))
+                .thenReturn(new CursorPage<>(List.of(recipeDto), cursor));
+        when(cacheService.getOrLoad(eq("response_all_recipes_0_1"), any(), any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+
+        // Act
+        CachedResponse response = recipeResponseCache.getAllRecipes(null, 1);
+
+        // Assert
+        assertEquals(cursor, response.getNextCursor());
+        assertTrue(response.getDependencies().contains(RecipeResponseCache.ALL_RECIPES_KEY));
+        assertTrue(response.getDependencies().contains(CacheConfig.recipeDependency(7L)));
+        assertNotEquals(new CachedResponse(response.getBody(), Set.of()).getETag(),
+                response.getETag());
+    }
+
+    @Test
+    void matches_sameBodyAfterReload_sameETag() {
+        // Arrange
+        byte[] body = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        CachedResponse first = new CachedResponse(body, Set.of());
+        CachedResponse reloaded = new CachedResponse(body.clone(), Set.of());
+
+        // Act & Assert
+        assertTrue(reloaded.matches(first.getETag()));
+        assertTrue(reloaded.matches("W/" + first.getETag() + ", \"other\""));
+        assertTrue(reloaded.matches("*"));
+        assertFalse(reloaded.matches("\"other\""));
+        assertFalse(reloaded.matches(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void renderThroughCache() {
+        when(cacheService.getRecipeResponse(anyLong(), any(), any())).thenAnswer(invocation ->
+                ((Function<RecipeDto, CachedResponse>) invocation.getArgument(2))
+                        .apply(invocation.getArgument(1)));
+    }
+}
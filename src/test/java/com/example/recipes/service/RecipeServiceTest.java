@@ -1,12 +1,19 @@
 package com.example.recipes.service;
 
 import com.example.recipes.config.CacheConfig;
+import com.example.recipes.dto.CursorPage;
 import com.example.recipes.dto.IngredientDto;
+import com.example.recipes.dto.PantryRecipeDto;
 import com.example.recipes.dto.RecipeDto;
-import com.example.recipes.dto.RecipeFullDto;
 import com.example.recipes.entity.Ingredient;
 import com.example.recipes.entity.Recipe;
 import com.example.recipes.exceptions.NotFoundException;
+import com.example.recipes.index.FullTextIndex;
+import com.example.recipes.index.IngredientAutocomplete;
+import com.example.recipes.index.IngredientIndex;
+import com.example.recipes.index.RatingIndex;
+import com.example.recipes.index.TitleTrigramIndex;
+import com.example.recipes.exceptions.ServiceUnavailableException;
 import com.example.recipes.exceptions.ValidationException;
 import com.example.recipes.mapper.RecipeMapper;
 import com.example.recipes.repository.IngredientRepository;
@@ -16,11 +23,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.*;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,42 +53,63 @@ class RecipeServiceTest {
     @Mock
     private CacheConfig cacheService;
 
-    @Test
-    void getAllRecipes_success() {
-        // Arrange
-        List<Recipe> recipes = List.of(new Recipe(1L, "Recipe 1", "Description 1", "Instruction 1"));
-        List<RecipeFullDto> recipeDtos = List.of(new RecipeFullDto());
+    @Mock
+    private IngredientIndex ingredientIndex;
+
+    @Mock
+    private TitleTrigramIndex titleIndex;
 
-        recipeDtos.get(0).setId(1L);
-        recipeDtos.get(0).setTitle("Recipe 1");
-        recipeDtos.get(0).setDescription("Description 1");
-        recipeDtos.get(0).setInstruction("Instruction 1");
+    @Mock
+    private FullTextIndex textIndex;
+
+    @Mock
+    private IngredientAutocomplete ingredientAutocomplete;
+
+    @Mock
+    private RatingIndex ratingIndex;
 
-        when(recipeRepository.findAll()).thenReturn(recipes);
-        when(recipeMapper.convertToFullDto(any(Recipe.class))).thenReturn(recipeDtos.get(0));
+    @Test
+    void getAllRecipes_fullPage_loadsOnlyPageRecipesAndReturnsCursor() {
+        // Arrange
+        Recipe first = new Recipe(1L, "Recipe 1", "Description 1", "Instruction 1");
+        Recipe second = new Recipe(2L, "Recipe 2", "Description 2", "Instruction 2");
+        RecipeDto firstDto = recipeWithIngredients(1L, "Recipe 1");
+        when(recipeRepository.findRecipeIdsAfter(eq(0L), any())).thenReturn(List.of(1L, 2L));
+        when(recipeRepository.findByIdInOrderByIdAsc(List.of(1L))).thenReturn(List.of(first));
+        when(recipeMapper.convertToDto(first)).thenReturn(firstDto);
 
         // Act
-        List<RecipeFullDto> result = recipeService.getAllRecipes();
+        CursorPage<RecipeDto> result = recipeService.getAllRecipes(null, 1);
 
         // Assert
-        assertEquals(1, result.size());
-        assertEquals("Recipe 1", result.get(0).getTitle());
-        verify(recipeRepository, times(1)).findAll();
+        assertEquals(List.of(firstDto), result.getItems());
+        assertEquals(1L, PageCursor.decode(result.getNextCursor()));
+        verify(recipeRepository, never()).findAll();
+        verify(recipeMapper, never()).convertToDto(second);
     }
 
     @Test
-    void getAllRecipes_emptyList_success() {
+    void getAllRecipes_lastPage_hasNoCursor() {
         // Arrange
-        when(recipeRepository.findAll()).thenReturn(List.of());
+        when(recipeRepository.findRecipeIdsAfter(eq(5L), any())).thenReturn(List.of());
 
         // Act
-        List<RecipeFullDto> result = recipeService.getAllRecipes();
+        CursorPage<RecipeDto> result = recipeService.getAllRecipes(PageCursor.encode(5L), 10);
 
         // Assert
-        assertTrue(result.isEmpty());
-        verify(recipeRepository, times(1)).findAll();
+        assertTrue(result.getItems().isEmpty());
+        assertNull(result.getNextCursor());
+        verify(recipeRepository, never()).findByIdInOrderByIdAsc(any());
     }
 
+    @Test
+    void getAllRecipes_invalidCursorOrSize_throwsValidationException() {
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> recipeService.getAllRecipes("garbage!", 10));
+        assertThrows(ValidationException.class, () -> recipeService.getAllRecipes(null, 0));
+        assertThrows(ValidationException.class, () -> recipeService.getAllRecipes(null, 101));
+        verifyNoInteractions(recipeRepository);
+    }
 
     @Test
     void getRecipeById_fromCache_success() {
@@ -84,17 +117,15 @@ class RecipeServiceTest {
         Long recipeId = 1L;
         RecipeDto cachedRecipe = new RecipeDto();
         cachedRecipe.setTitle("Cached Recipe");
-        String cacheKey = "recipe_" + recipeId;
 
-        when(cacheService.containsKey(cacheKey)).thenReturn(true);
-        when(cacheService.get(cacheKey)).thenReturn(cachedRecipe);
+        when(cacheService.getRecipe(eq(recipeId.longValue()), any())).thenReturn(cachedRecipe);
 
         // Act
         RecipeDto result = recipeService.getRecipeById(recipeId);
 
         // Assert
         assertEquals("Cached Recipe", result.getTitle());
-        verify(cacheService, times(1)).get(cacheKey);
+        verify(cacheService, times(1)).getRecipe(eq(recipeId.longValue()), any());
         verifyNoInteractions(recipeRepository);
     }
 
@@ -102,17 +133,17 @@ class RecipeServiceTest {
     void getRecipeById_notFound_throwsNotFoundException() {
         // Arrange
         Long recipeId = 100L;
-        String cacheKey = "recipe_" + recipeId;
 
-        when(cacheService.containsKey(cacheKey)).thenReturn(false);
-        when(recipeRepository.findById(recipeId)).thenReturn(Optional.empty());
+        loadRecipeThroughCache();
+        when(recipeRepository.findWithIngredientsAndReviewsById(recipeId))
+                .thenReturn(Optional.empty());
 
         // Act & Assert
         NotFoundException exception = assertThrows(NotFoundException.class,
                 () -> recipeService.getRecipeById(recipeId));
         assertEquals("Recipe not found with ID " + recipeId, exception.getMessage());
-        verify(cacheService, times(1)).containsKey(cacheKey);
-        verify(recipeRepository, times(1)).findById(recipeId);
+        verify(cacheService, times(1)).getRecipe(eq(recipeId.longValue()), any());
+        verify(recipeRepository, times(1)).findWithIngredientsAndReviewsById(recipeId);
     }
 
     @Test
@@ -122,17 +153,18 @@ class RecipeServiceTest {
         Recipe recipe = new Recipe(recipeId, "Recipe From DB", "Description", "Instruction");
         RecipeDto recipeDto = new RecipeDto();
         recipeDto.setTitle("Recipe From DB");
-        String cacheKey = "recipe_" + recipeId;
 
-        when(cacheService.containsKey(cacheKey)).thenReturn(false);
-        when(recipeRepository.findById(recipeId)).thenReturn(Optional.of(recipe));
+        loadRecipeThroughCache();
+        when(recipeRepository.findWithIngredientsAndReviewsById(recipeId))
+                .thenReturn(Optional.of(recipe));
         when(recipeMapper.convertToDto(recipe)).thenReturn(recipeDto);
 
         // Act
-        recipeService.getRecipeById(recipeId);
+        RecipeDto result = recipeService.getRecipeById(recipeId);
 
         // Assert
-        verify(cacheService, times(1)).put(cacheKey, recipeDto); // Убедимся, что рецепт сохраняется в кэш
+        assertSame(recipeDto, result);
+        verify(cacheService, times(1)).getRecipe(eq(recipeId.longValue()), any()); // Убедимся, что рецепт загружается через кэш
     }
 
 
@@ -161,7 +193,7 @@ class RecipeServiceTest {
         ingredientDto.setName("Salt");
         recipeDto.setIngredients(Set.of(ingredientDto));
 
-        Recipe recipe = new Recipe("New Recipe", "Description", "Instruction");
+        Recipe recipe = new Recipe(1L, "New Recipe", "Description", "Instruction");
         recipe.setIngredients(new HashSet<>());
 
         Ingredient ingredient = new Ingredient("Salt");
@@ -179,6 +211,7 @@ class RecipeServiceTest {
         verify(ingredientRepository, times(1)).save(any(Ingredient.class));
         verify(recipeRepository, times(1)).save(any(Recipe.class));
         verify(recipeMapper, times(1)).convertToDto(any(Recipe.class)); // Добавьте эту проверку
+        verify(cacheService, times(1)).putRecipe(recipeDto);
     }
 
     @Test
@@ -228,7 +261,7 @@ class RecipeServiceTest {
         String title = "Unknown";
         String cacheKey = "recipes_by_title_" + title.toLowerCase();
 
-        when(cacheService.containsKey(cacheKey)).thenReturn(false);
+        loadThroughCache();
         when(recipeRepository.findByTitleContainingIgnoreCase(title)).thenReturn(List.of());
 
         // Act & Assert
@@ -236,6 +269,18 @@ class RecipeServiceTest {
         assertEquals("No recipes found with title containing: " + title, exception.getMessage());
     }
 
+    @Test
+    void findRecipesByTitle_cachedEmptyResult_throwsWithoutQuery() {
+        // Arrange
+        String title = "Unknown";
+        when(cacheService.getOrLoad(eq("recipes_by_title_unknown"), any(), any()))
+                .thenReturn(List.of());
+
+        // Act & Assert
+        assertThrows(NotFoundException.class, () -> recipeService.findRecipesByTitle(title));
+        verify(recipeRepository, never()).findByTitleContainingIgnoreCase(anyString());
+    }
+
     @Test
     void findRecipesByTitle_emptyTitle_throwsValidationException() {
         // Arrange
@@ -273,6 +318,35 @@ class RecipeServiceTest {
         // Assert
         verify(recipeRepository, times(1)).delete(recipe);
         verify(cacheService, times(1)).evict("recipe_" + recipeId);
+        verify(cacheService, times(1)).evictDependents(CacheConfig.recipeDependency(recipeId));
+        verify(cacheService, never()).invalidateNamespace(anyString());
+    }
+
+    @Test
+    void deleteRecipeById_insideTransaction_evictsOnlyAfterCommit() {
+        // Arrange
+        Long recipeId = 1L;
+        Recipe recipe = new Recipe(recipeId, "Recipe", "Description", "Instruction");
+        recipe.setIngredients(new HashSet<>());
+
+        when(recipeRepository.findById(recipeId)).thenReturn(Optional.of(recipe));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            recipeService.deleteRecipeById(recipeId);
+
+            // Assert
+            verify(cacheService, never()).evict(anyString());
+            verify(cacheService, never()).evictDependents(anyString());
+            verify(cacheService, never()).publishRecipeChange(anyLong());
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+            verify(cacheService, times(1)).evict("recipe_" + recipeId);
+            verify(cacheService, times(1)).evictDependents(CacheConfig.recipeDependency(recipeId));
+            verify(cacheService).publishRecipeChange(recipeId);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
     }
 
     @Test
@@ -339,23 +413,42 @@ class RecipeServiceTest {
         recipeDto.setTitle("Updated Recipe");
         recipeDto.setDescription("Updated Description");
         recipeDto.setInstruction("Updated Instruction");
+        IngredientDto ingredientDto = new IngredientDto();
+        ingredientDto.setId(10L);
+        ingredientDto.setName("Salt");
+        recipeDto.setIngredients(Set.of(ingredientDto));
 
+        Ingredient ingredient = new Ingredient("Salt");
+        ingredient.setId(10L);
         Recipe existingRecipe = new Recipe(recipeId, "Old Recipe", "Old Description", "Old Instruction");
         Recipe updatedRecipe = new Recipe(recipeId, "Updated Recipe", "Updated Description", "Updated Instruction");
+        updatedRecipe.setIngredients(Set.of(ingredient));
 
         when(recipeRepository.findById(recipeId)).thenReturn(Optional.of(existingRecipe));
+        when(ingredientRepository.findById(10L)).thenReturn(Optional.of(ingredient));
         when(recipeRepository.save(existingRecipe)).thenReturn(updatedRecipe);
         when(recipeMapper.convertToDto(updatedRecipe)).thenReturn(recipeDto);
-
-        // Act
-        RecipeDto result = recipeService.updateRecipe(recipeId, recipeDto);
-
-        // Assert
-        assertEquals("Updated Recipe", result.getTitle());
-        assertEquals("Updated Description", result.getDescription());
-        verify(recipeRepository, times(1)).findById(recipeId);
-        verify(recipeRepository, times(1)).save(existingRecipe);
-        verify(cacheService, times(1)).evict("recipe_" + recipeId);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            RecipeDto result = recipeService.updateRecipe(recipeId, recipeDto);
+
+            // Assert
+            assertEquals("Updated Recipe", result.getTitle());
+            assertEquals("Updated Description", result.getDescription());
+            verify(recipeRepository, times(1)).findById(recipeId);
+            verify(recipeRepository, times(1)).save(existingRecipe);
+            // До фиксации кэш не трогается
+            verify(cacheService, never()).putRecipe(any());
+            verify(cacheService, never()).evictDependents(anyString());
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+            verify(cacheService, times(1)).evictDependents(CacheConfig.recipeDependency(recipeId));
+            verify(cacheService, times(1)).putRecipe(recipeDto);
+            verify(cacheService, never()).evict("recipe_" + recipeId);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
     }
 
     @Test
@@ -403,14 +496,14 @@ class RecipeServiceTest {
     @Test
     void findRecipesByIngredientNames_success() {
         // Arrange
-        List<String> ingredientNames = List.of("Salt", "Sugar");
-        String cacheKey = "recipes_by_ingredients_" + ingredientNames.toString();
+        List<String> ingredientNames = List.of("Sugar", "Salt");
+        String cacheKey = "recipes_by_ingredients_salt,sugar";
 
         Recipe recipe = new Recipe(1L, "Pasta", "Description", "Instruction");
         RecipeDto recipeDto = new RecipeDto();
         recipeDto.setTitle("Pasta");
 
-        when(cacheService.containsKey(cacheKey)).thenReturn(false);
+        loadThroughCache();
         when(recipeRepository.findRecipesByIngredientNames(anyList(), anyLong())).thenReturn(List.of(recipe));
         when(recipeMapper.convertToDto(recipe)).thenReturn(recipeDto);
 
@@ -420,8 +513,65 @@ class RecipeServiceTest {
         // Assert
         assertEquals(1, result.size());
         assertEquals("Pasta", result.get(0).getTitle());
-        verify(cacheService, times(1)).put(cacheKey, result);
+        verify(cacheService, times(1)).getOrLoad(eq(cacheKey), any(), any());
+    }
+    @Test
+    void findRecipesByIngredientNames_cachedSubset_filteredWithoutQuery() {
+        // Arrange
+        RecipeDto pasta = recipeWithIngredients(1L, "Pasta", "Salt", "Sugar");
+        RecipeDto soup = recipeWithIngredients(2L, "Soup", "Salt");
+        loadThroughCache();
+        when(cacheService.getIfPresent("recipes_by_ingredients_salt"))
+                .thenReturn(List.of(pasta, soup));
+
+        // Act
+        List<RecipeDto> result = recipeService.findRecipesByIngredientNames(
+                List.of("sugar", " SALT", "Salt"));
+
+        // Assert
+        assertEquals(List.of(pasta), result);
+        verify(cacheService).getOrLoad(eq("recipes_by_ingredients_salt,sugar"), any(), any());
+        verify(recipeRepository, never()).findRecipesByIngredientNames(anyList(), anyLong());
+    }
+
+    @Test
+    void findRecipesByIngredientNames_indexReady_fetchesMatchedIdsWithoutJoin() {
+        // Arrange
+        Recipe recipe = new Recipe(7L, "Pasta", "Description", "Instruction");
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setTitle("Pasta");
+        loadThroughCache();
+        when(ingredientIndex.findRecipesWithAll(List.of("salt", "sugar")))
+                .thenReturn(new long[] {7L});
+        when(recipeRepository.findByIdInOrderByIdAsc(List.of(7L))).thenReturn(List.of(recipe));
+        when(recipeMapper.convertToDto(recipe)).thenReturn(recipeDto);
+
+        // Act
+        List<RecipeDto> result = recipeService.findRecipesByIngredientNames(
+                List.of("Salt", "Sugar"));
+
+        // Assert
+        assertEquals(List.of(recipeDto), result);
+        verify(recipeRepository, never()).findRecipesByIngredientNames(anyList(), anyLong());
     }
+
+    @Test
+    void findRecipesByIngredientNames_duplicateNames_queriesDistinctNames() {
+        // Arrange
+        Recipe recipe = new Recipe(1L, "Pasta", "Description", "Instruction");
+        loadThroughCache();
+        when(recipeRepository.findRecipesByIngredientNames(List.of("salt"), 1L))
+                .thenReturn(List.of(recipe));
+        when(recipeMapper.convertToDto(recipe)).thenReturn(new RecipeDto());
+
+        // Act
+        List<RecipeDto> result = recipeService.findRecipesByIngredientNames(
+                List.of("Salt", "salt"));
+
+        // Assert
+        assertEquals(1, result.size());
+    }
+
     @Test
     void findRecipesByTitle_ignoreCase_success() {
         // Arrange
@@ -430,7 +580,7 @@ class RecipeServiceTest {
         RecipeDto recipeDto = new RecipeDto();
         recipeDto.setTitle("Pasta");
 
-        when(cacheService.containsKey(anyString())).thenReturn(false);
+        loadThroughCache();
         when(recipeRepository.findByTitleContainingIgnoreCase(title)).thenReturn(List.of(recipe));
         when(recipeMapper.convertToDto(recipe)).thenReturn(recipeDto);
 
@@ -450,7 +600,7 @@ class RecipeServiceTest {
         RecipeDto recipeDto = new RecipeDto();
         recipeDto.setTitle("Pasta");
 
-        when(cacheService.containsKey(anyString())).thenReturn(false);
+        loadThroughCache();
         when(recipeRepository.findRecipesByAverageRating(anyDouble())).thenReturn(List.of(recipe));
         when(recipeMapper.convertToDto(recipe)).thenReturn(recipeDto);
 
@@ -473,7 +623,7 @@ class RecipeServiceTest {
         RecipeDto recipeDto2 = new RecipeDto();
         recipeDto2.setTitle("Cake");
 
-        when(cacheService.containsKey(anyString())).thenReturn(false);
+        loadThroughCache();
         when(recipeRepository.findByTitleContainingIgnoreCase(title)).thenReturn(List.of(recipe1, recipe2));
         when(recipeMapper.convertToDto(recipe1)).thenReturn(recipeDto1);
         when(recipeMapper.convertToDto(recipe2)).thenReturn(recipeDto2);
@@ -483,7 +633,7 @@ class RecipeServiceTest {
 
         // Assert
         assertEquals(2, result.size());
-        verify(cacheService, times(1)).put(anyString(), anyList());
+        verify(cacheService, times(1)).getOrLoad(anyString(), any(), any());
     }
 
     @Test
@@ -520,9 +670,8 @@ class RecipeServiceTest {
     void findRecipesByIngredientNames_notFound_throwsNotFoundException() {
         // Arrange
         List<String> ingredientNames = List.of("Unicorn Spice");
-        String cacheKey = "recipes_by_ingredients_" + ingredientNames.toString();
 
-        when(cacheService.containsKey(cacheKey)).thenReturn(false);
+        loadThroughCache();
         when(recipeRepository.findRecipesByIngredientNames(anyList(), anyLong())).thenReturn(List.of());
 
         // Act & Assert
@@ -538,7 +687,7 @@ class RecipeServiceTest {
         RecipeDto recipeDto = new RecipeDto();
         recipeDto.setTitle("Recipe 10");
 
-        when(cacheService.containsKey(anyString())).thenReturn(false);
+        loadThroughCache();
         when(recipeRepository.findRecipesByAverageRating(10.0)).thenReturn(List.of(recipe));
         when(recipeMapper.convertToDto(recipe)).thenReturn(recipeDto);
 
@@ -579,7 +728,7 @@ class RecipeServiceTest {
         double normalizedRating = 5.0;
 
         when(recipeRepository.findRecipesByAverageRating(normalizedRating)).thenReturn(Collections.emptyList());
-        when(cacheService.containsKey("recipes_by_rating_" + normalizedRating)).thenReturn(false);
+        loadThroughCache();
 
         // Act & Assert
         NotFoundException exception = assertThrows(NotFoundException.class,
@@ -618,5 +767,213 @@ class RecipeServiceTest {
         assertEquals("Ingredient list cannot be null or empty.", exception.getMessage());
     }
 
+    @Test
+    void findRecipesByPantry_indexReady_returnsPageInRankOrder() {
+        // Arrange
+        Recipe soup = new Recipe(3L, "Soup", "Description", "Instruction");
+        Recipe pasta = new Recipe(9L, "Pasta", "Description", "Instruction");
+        RecipeDto soupDto = recipeWithIngredients(3L, "Soup", "salt", "water");
+        RecipeDto pastaDto = recipeWithIngredients(9L, "Pasta", "salt");
+        when(ingredientIndex.findPantryMatches(List.of("salt", "water"), 1)).thenReturn(List.of(
+                new IngredientIndex.PantryMatch(9L, 0),
+                new IngredientIndex.PantryMatch(3L, 1),
+                new IngredientIndex.PantryMatch(5L, 1)));
+        when(recipeRepository.findByIdInOrderByIdAsc(List.of(3L, 9L)))
+                .thenReturn(List.of(soup, pasta));
+        when(recipeMapper.convertToDto(soup)).thenReturn(soupDto);
+        when(recipeMapper.convertToDto(pasta)).thenReturn(pastaDto);
+
+        // Act
+        List<PantryRecipeDto> result = recipeService.findRecipesByPantry(
+                List.of("Water", "salt"), 1, 0, 2);
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(pastaDto, result.get(0).getRecipe());
+        assertEquals(0, result.get(0).getMissingIngredients());
+        assertEquals(soupDto, result.get(1).getRecipe());
+        assertEquals(1, result.get(1).getMissingIngredients());
+        verify(recipeRepository, never()).findPantryMatches(anyCollection(), anyLong());
+    }
+
+    @Test
+    void findRecipesByPantry_indexNotReady_usesDatabaseCounts() {
+        // Arrange
+        Recipe soup = new Recipe(3L, "Soup", "Description", "Instruction");
+        RecipeDto soupDto = recipeWithIngredients(3L, "Soup", "salt", "water");
+        when(ingredientIndex.findPantryMatches(List.of("salt"), 2)).thenReturn(null);
+        when(recipeRepository.findPantryMatches(List.of("salt"), 2L)).thenReturn(List.of(
+                new Object[] {3L, 1L}, new Object[] {1L, 0L}));
+        when(recipeRepository.findByIdInOrderByIdAsc(List.of(3L))).thenReturn(List.of(soup));
+        when(recipeMapper.convertToDto(soup)).thenReturn(soupDto);
+
+        // Act
+        List<PantryRecipeDto> result = recipeService.findRecipesByPantry(
+                List.of("salt"), 2, 1, 1);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(soupDto, result.get(0).getRecipe());
+        assertEquals(1, result.get(0).getMissingIngredients());
+    }
+
+    @Test
+    void findRecipesByPantry_invalidPage_throwsValidationException() {
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> recipeService.findRecipesByPantry(List.of("salt"), 2, -1, 20));
+        assertThrows(ValidationException.class,
+                () -> recipeService.findRecipesByPantry(List.of("salt"), 2, 0, 0));
+        assertThrows(ValidationException.class,
+                () -> recipeService.findRecipesByPantry(List.of("salt"), -1, 0, 20));
+        assertThrows(ValidationException.class,
+                () -> recipeService.findRecipesByPantry(List.of(), 2, 0, 20));
+    }
+
+    @Test
+    void searchRecipesByText_indexReady_returnsRecipesInScoreOrder() {
+        // Arrange
+        Recipe bread = new Recipe(4L, "Bread", "Description", "Instruction");
+        Recipe soup = new Recipe(8L, "Soup", "Description", "Instruction");
+        RecipeDto breadDto = recipeWithIngredients(4L, "Bread");
+        RecipeDto soupDto = recipeWithIngredients(8L, "Soup");
+        when(textIndex.search("garlic", 20)).thenReturn(List.of(
+                new FullTextIndex.Hit(8L, 2.5), new FullTextIndex.Hit(4L, 1.0)));
+        when(recipeRepository.findByIdInOrderByIdAsc(List.of(4L, 8L)))
+                .thenReturn(List.of(bread, soup));
+        when(recipeMapper.convertToDto(bread)).thenReturn(breadDto);
+        when(recipeMapper.convertToDto(soup)).thenReturn(soupDto);
 
-}
\ No newline at end of file
+        // Act
+        List<RecipeDto> result = recipeService.searchRecipesByText("garlic", 20);
+
+        // Assert
+        assertEquals(List.of(soupDto, breadDto), result);
+    }
+
+    @Test
+    void searchRecipesByText_indexNotReady_throwsWithoutDatabaseQuery() {
+        // Arrange
+        when(textIndex.search("garlic", 20)).thenReturn(null);
+
+        // Act & Assert
+        assertThrows(ServiceUnavailableException.class,
+                () -> recipeService.searchRecipesByText("garlic", 20));
+        verifyNoInteractions(recipeRepository);
+    }
+
+    @Test
+    void searchRecipesByText_noMatches_throwsNotFoundException() {
+        // Arrange
+        when(textIndex.search("caviar", 20)).thenReturn(List.of());
+
+        // Act & Assert
+        assertThrows(NotFoundException.class,
+                () -> recipeService.searchRecipesByText("caviar", 20));
+    }
+
+    @Test
+    void searchRecipesByText_blankQuery_throwsValidationException() {
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> recipeService.searchRecipesByText(" ", 20));
+        assertThrows(ValidationException.class,
+                () -> recipeService.searchRecipesByText("garlic", 0));
+    }
+
+    @Test
+    void findTopRatedRecipes_indexReady_returnsRecipesInRatingOrder() {
+        // Arrange
+        Recipe bread = new Recipe(4L, "Bread", "Description", "Instruction");
+        Recipe soup = new Recipe(8L, "Soup", "Description", "Instruction");
+        RecipeDto breadDto = recipeWithIngredients(4L, "Bread");
+        RecipeDto soupDto = recipeWithIngredients(8L, "Soup");
+        when(ratingIndex.findTopRated(10, 2)).thenReturn(List.of(
+                new RatingIndex.Rating(8L, 10, 2), new RatingIndex.Rating(4L, 12, 3)));
+        when(recipeRepository.findByIdInOrderByIdAsc(List.of(4L, 8L)))
+                .thenReturn(List.of(bread, soup));
+        when(recipeMapper.convertToDto(bread)).thenReturn(breadDto);
+        when(recipeMapper.convertToDto(soup)).thenReturn(soupDto);
+
+        // Act
+        List<RecipeDto> result = recipeService.findTopRatedRecipes(10, 2);
+
+        // Assert
+        assertEquals(List.of(soupDto, breadDto), result);
+        verify(recipeRepository, never()).findTopRatedRecipeIds(anyInt(), any());
+    }
+
+    @Test
+    void findTopRatedRecipes_indexNotReady_readsOrderedIdsFromDatabase() {
+        // Arrange
+        Recipe soup = new Recipe(8L, "Soup", "Description", "Instruction");
+        RecipeDto soupDto = recipeWithIngredients(8L, "Soup");
+        when(ratingIndex.findTopRated(5, 1)).thenReturn(null);
+        when(recipeRepository.findTopRatedRecipeIds(eq(1), any())).thenReturn(List.of(8L));
+        when(recipeRepository.findByIdInOrderByIdAsc(List.of(8L))).thenReturn(List.of(soup));
+        when(recipeMapper.convertToDto(soup)).thenReturn(soupDto);
+
+        // Act
+        List<RecipeDto> result = recipeService.findTopRatedRecipes(5, 1);
+
+        // Assert
+        assertEquals(List.of(soupDto), result);
+    }
+
+    @Test
+    void findTopRatedRecipes_noRatedRecipes_throwsNotFoundException() {
+        // Arrange
+        when(ratingIndex.findTopRated(10, 1)).thenReturn(List.of());
+
+        // Act & Assert
+        assertThrows(NotFoundException.class, () -> recipeService.findTopRatedRecipes(10, 1));
+    }
+
+    @Test
+    void findTopRatedRecipes_invalidArguments_throwsValidationException() {
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> recipeService.findTopRatedRecipes(0, 1));
+        assertThrows(ValidationException.class, () -> recipeService.findTopRatedRecipes(10, 0));
+        verifyNoInteractions(ratingIndex, recipeRepository);
+    }
+
+    @Test
+    void correctIngredientNames_returnsOnlyCorrectedNames() {
+        // Arrange
+        when(ingredientAutocomplete.correctName("tomatoe")).thenReturn("tomato");
+        when(ingredientAutocomplete.correctName("salt")).thenReturn("salt");
+
+        // Act
+        Map<String, String> result = recipeService.correctIngredientNames(
+                Arrays.asList("Tomatoe", " salt", null));
+
+        // Assert
+        assertEquals(Map.of("Tomatoe", "tomato"), result);
+    }
+
+    private static RecipeDto recipeWithIngredients(long id, String title, String... names) {
+        RecipeDto recipeDto = new RecipeDto();
+        recipeDto.setId(id);
+        recipeDto.setTitle(title);
+        Set<IngredientDto> ingredients = new HashSet<>();
+        for (String name : names) {
+            IngredientDto ingredientDto = new IngredientDto();
+            ingredientDto.setName(name);
+            ingredients.add(ingredientDto);
+        }
+        recipeDto.setIngredients(ingredients);
+        return recipeDto;
+    }
+
+    // Кэш промахивается и выполняет переданный загрузчик
+    private void loadThroughCache() {
+        when(cacheService.getOrLoad(anyString(), any(), any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+    }
+
+    private void loadRecipeThroughCache() {
+        when(cacheService.getRecipe(anyLong(), any()))
+                .thenAnswer(invocation -> ((LongFunction<?>) invocation.getArgument(1))
+                        .apply(invocation.<Long>getArgument(0)));
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.recipes.service;
 
+import com.example.recipes.config.CacheConfig;
 import com.example.recipes.dto.ReviewDto;
 import com.example.recipes.entity.Recipe;
 import com.example.recipes.entity.Review;
 import com.example.recipes.exceptions.NotFoundException;
 import com.example.recipes.exceptions.ValidationException;
+import com.example.recipes.index.RatingIndex;
 import com.example.recipes.repository.RecipeRepository;
 import com.example.recipes.repository.ReviewRepository;
 import org.junit.jupiter.api.Test;
@@ -28,12 +30,18 @@ class ReviewServiceTest {
     @InjectMocks
     private ReviewService reviewService;
 
+    @Mock
+    private CacheConfig cacheService;
+
     @Mock
     private RecipeRepository recipeRepository;
 
     @Mock
     private ReviewRepository reviewRepository;
 
+    @Mock
+    private RatingIndex ratingIndex;
+
     @Test
     void deleteReviewFromRecipe_success() {
         Long recipeId = 1L;
@@ -342,4 +350,72 @@ class ReviewServiceTest {
         assertTrue(exception.getMessage().contains("Review message length cannot exceed 1000 characters."));
     }
 
+    @Test
+    void addReviewToRecipe_adjustsRatingAggregatesAndIndex() {
+        // Arrange
+        Long recipeId = 1L;
+        Recipe recipe = new Recipe();
+        recipe.setId(recipeId);
+        when(recipeRepository.findById(recipeId)).thenReturn(Optional.of(recipe));
+        when(reviewRepository.save(any(Review.class)))
+                .thenReturn(new Review(1L, "Great recipe!", 5, recipe));
+
+        // Act
+        reviewService.addReviewToRecipe(recipeId, new ReviewDto(null, "Great recipe!", 5));
+
+        // Assert
+        verify(recipeRepository).adjustRating(recipeId, 5, 1);
+        verify(ratingIndex).refreshRating(recipeId);
+    }
+
+    @Test
+    void updateReviewForRecipe_adjustsRatingSumByDifference() {
+        // Arrange
+        Long recipeId = 1L;
+        Long reviewId = 10L;
+        Recipe recipe = new Recipe();
+        recipe.setId(recipeId);
+        Review review = new Review(reviewId, "Original review", 5, recipe);
+        when(reviewRepository.findById(reviewId)).thenReturn(Optional.of(review));
+        when(reviewRepository.save(any(Review.class))).thenAnswer(call -> call.getArgument(0));
+
+        // Act
+        reviewService.updateReviewForRecipe(recipeId, reviewId,
+                new ReviewDto(null, "Updated review", 2));
+
+        // Assert
+        verify(recipeRepository).adjustRating(recipeId, -3, 0);
+        verify(ratingIndex).refreshRating(recipeId);
+    }
+
+    @Test
+    void deleteReviewFromRecipe_removesRatingFromAggregates() {
+        // Arrange
+        Long recipeId = 1L;
+        Long reviewId = 10L;
+        Recipe recipe = new Recipe();
+        recipe.setId(recipeId);
+        Review review = new Review(reviewId, "Great recipe!", 4, recipe);
+        when(reviewRepository.findById(reviewId)).thenReturn(Optional.of(review));
+
+        // Act
+        reviewService.deleteReviewFromRecipe(recipeId, reviewId);
+
+        // Assert
+        verify(recipeRepository).adjustRating(recipeId, -4, -1);
+        verify(ratingIndex).refreshRating(recipeId);
+    }
+
+    @Test
+    void backfillRatings_totalsMatch_stillRecalculatesDriftedRecipes() {
+        // Arrange
+        when(recipeRepository.recalculateRatings()).thenReturn(1);
+
+        // Act
+        reviewService.backfillRatings();
+
+        // Assert
+        verify(recipeRepository).recalculateRatings();
+        verify(reviewRepository, never()).count();
+    }
 }